@@ -0,0 +1,134 @@
+/**
+ * A fixed-length array of objects indexed by long, for holding more elements than a Java array
+ * can (at most Integer.MAX_VALUE - 8 or so).
+ *
+ * The elements are stored in segments: ordinary arrays of 2^segmentShift elements each (except
+ * the last, which is only as long as needed). Element i is found at position
+ * (i & (segmentLength - 1)) of segment (i >>> segmentShift), so every access costs one extra
+ * array dereference compared to a plain array.
+ *
+ * Object references cannot be stored off the Java heap, so unlike BigLongArray there is no
+ * off-heap variant.
+ *
+ * @param <T> type of elements in the array
+ */
+public class BigArray<T> {
+    /** The default log2 of the segment length: 2^27 references, or 512 MiB of compressed oops. */
+    static final int DEFAULT_SEGMENT_SHIFT = 27;
+
+    /** The segments holding the elements. */
+    private final Object[][] segments;
+
+    /** The number of elements in the array. */
+    private final long length;
+
+    /** The log2 of the length of each segment. */
+    private final int segmentShift;
+
+    /** The length of each segment, less one. */
+    private final int segmentMask;
+
+    /**
+     * Creates a new BigArray of the given length, with every element null.
+     *
+     * @param length number of elements
+     * @throws IllegalArgumentException if length is negative
+     */
+    public BigArray(long length) {
+        this(length, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    /**
+     * Creates a new BigArray of the given length, with every element null, stored in segments
+     * of the given length.
+     *
+     * @param length number of elements
+     * @param segmentShift log2 of the number of elements in each segment, from 1 to 30
+     * @throws IllegalArgumentException if length is negative, segmentShift is out of range, or
+     * length needs more segments than an array can hold
+     */
+    BigArray(long length, int segmentShift) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Length cannot be negative: " + length);
+        }
+        if (segmentShift < 1 || segmentShift > 30) {
+            throw new IllegalArgumentException("Segment shift must be between 1 and 30: " +
+                    segmentShift);
+        }
+        long segmentCount = segmentCount(length, segmentShift);
+        if (segmentCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Length is too large: " + length);
+        }
+        this.length = length;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1 << segmentShift) - 1;
+        this.segments = new Object[(int) segmentCount][];
+        for (int segment = 0; segment < this.segments.length; segment++) {
+            this.segments[segment] = new Object[segmentLength(length, segmentShift, segment)];
+        }
+    }
+
+    /**
+     * @param length number of elements
+     * @param segmentShift log2 of the number of elements in each segment
+     * @return the number of segments needed to hold the elements
+     */
+    static long segmentCount(long length, int segmentShift) {
+        return (length + (1L << segmentShift) - 1) >>> segmentShift;
+    }
+
+    /**
+     * @param length number of elements
+     * @param segmentShift log2 of the number of elements in each segment
+     * @param segment index of a segment
+     * @return the number of elements held by the given segment
+     */
+    static int segmentLength(long length, int segmentShift, int segment) {
+        return (int) Math.min(1L << segmentShift, length - ((long) segment << segmentShift));
+    }
+
+    /**
+     * @return the number of elements in this array
+     */
+    public long length() {
+        return this.length;
+    }
+
+    /**
+     * Worst case runtime complexity: O(1)
+     *
+     * @param index index of an element
+     * @return the element at the given index
+     * @throws ArrayIndexOutOfBoundsException if index is negative or not less than length()
+     */
+    @SuppressWarnings("unchecked")
+    public T get(long index) {
+        checkIndex(index);
+        return (T) this.segments[(int) (index >>> this.segmentShift)][(int) index &
+                this.segmentMask];
+    }
+
+    /**
+     * Worst case runtime complexity: O(1)
+     *
+     * @param index index of an element
+     * @param element element to place at the given index
+     * @throws ArrayIndexOutOfBoundsException if index is negative or not less than length()
+     */
+    public void set(long index, T element) {
+        checkIndex(index);
+        this.segments[(int) (index >>> this.segmentShift)][(int) index & this.segmentMask] =
+                element;
+    }
+
+    /**
+     * @param index index to check
+     * @throws ArrayIndexOutOfBoundsException if index is negative or not less than length()
+     */
+    private void checkIndex(long index) {
+        if (index < 0 || index >= this.length) {
+            throw new ArrayIndexOutOfBoundsException("Index " + index + " out of bounds for " +
+                    "length " + this.length);
+        }
+    }
+}
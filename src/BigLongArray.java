@@ -0,0 +1,179 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * A fixed-length array of longs indexed by long, for holding more elements than a Java array can.
+ *
+ * As in BigArray, the elements are stored in segments of 2^segmentShift elements each (except
+ * the last). The segments are either long arrays on the Java heap (onHeap), or direct buffers
+ * outside it (offHeap). Off-heap segments do not count towards the Java heap limit and are
+ * never moved by the garbage collector, which suits very large arrays; they are released only
+ * when the BigLongArray itself is garbage collected.
+ */
+public abstract class BigLongArray {
+    /** The default log2 of the segment length: 2^27 longs, or 1 GiB. */
+    static final int DEFAULT_SEGMENT_SHIFT = 27;
+
+    /** The number of elements in the array. */
+    final long length;
+
+    /** The log2 of the length of each segment. */
+    final int segmentShift;
+
+    /** The length of each segment, less one. */
+    final int segmentMask;
+
+    /**
+     * @param length number of elements
+     * @param segmentShift log2 of the number of elements in each segment, from 1 to 27
+     * @throws IllegalArgumentException if length is negative, segmentShift is out of range, or
+     * length needs more segments than an array can hold
+     */
+    BigLongArray(long length, int segmentShift) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Length cannot be negative: " + length);
+        }
+        if (segmentShift < 1 || segmentShift > DEFAULT_SEGMENT_SHIFT) {
+            throw new IllegalArgumentException("Segment shift must be between 1 and " +
+                    DEFAULT_SEGMENT_SHIFT + ": " + segmentShift);
+        }
+        if (BigArray.segmentCount(length, segmentShift) > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Length is too large: " + length);
+        }
+        this.length = length;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1 << segmentShift) - 1;
+    }
+
+    /**
+     * Creates a new BigLongArray of the given length, with every element 0, stored on the Java
+     * heap.
+     *
+     * @param length number of elements
+     * @return the array
+     * @throws IllegalArgumentException if length is negative
+     */
+    public static BigLongArray onHeap(long length) {
+        return new OnHeap(length, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    /**
+     * Creates a new BigLongArray of the given length, with every element 0, stored outside the
+     * Java heap in direct buffers (in native byte order).
+     *
+     * @param length number of elements
+     * @return the array
+     * @throws IllegalArgumentException if length is negative
+     */
+    public static BigLongArray offHeap(long length) {
+        return new OffHeap(length, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    /**
+     * @return the number of elements in this array
+     */
+    public long length() {
+        return this.length;
+    }
+
+    /**
+     * Worst case runtime complexity: O(1)
+     *
+     * @param index index of an element
+     * @return the element at the given index
+     * @throws IndexOutOfBoundsException if index is negative or not less than length()
+     */
+    public abstract long get(long index);
+
+    /**
+     * Worst case runtime complexity: O(1)
+     *
+     * @param index index of an element
+     * @param value value to place at the given index
+     * @throws IndexOutOfBoundsException if index is negative or not less than length()
+     */
+    public abstract void set(long index, long value);
+
+    /**
+     * @param index index to check
+     * @throws IndexOutOfBoundsException if index is negative or not less than length()
+     */
+    void checkIndex(long index) {
+        if (index < 0 || index >= this.length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " +
+                    this.length);
+        }
+    }
+
+    /**
+     * A BigLongArray whose segments are long arrays on the Java heap.
+     */
+    static class OnHeap extends BigLongArray {
+        /** The segments holding the elements. */
+        private final long[][] segments;
+
+        /**
+         * @param length number of elements
+         * @param segmentShift log2 of the number of elements in each segment
+         */
+        OnHeap(long length, int segmentShift) {
+            super(length, segmentShift);
+            this.segments = new long[(int) BigArray.segmentCount(length, segmentShift)][];
+            for (int segment = 0; segment < this.segments.length; segment++) {
+                this.segments[segment] =
+                        new long[BigArray.segmentLength(length, segmentShift, segment)];
+            }
+        }
+
+        @Override
+        public long get(long index) {
+            this.checkIndex(index);
+            return this.segments[(int) (index >>> this.segmentShift)][(int) index &
+                    this.segmentMask];
+        }
+
+        @Override
+        public void set(long index, long value) {
+            this.checkIndex(index);
+            this.segments[(int) (index >>> this.segmentShift)][(int) index & this.segmentMask] =
+                    value;
+        }
+    }
+
+    /**
+     * A BigLongArray whose segments are direct buffers outside the Java heap.
+     */
+    static class OffHeap extends BigLongArray {
+        /** The segments holding the elements. */
+        private final LongBuffer[] segments;
+
+        /**
+         * @param length number of elements
+         * @param segmentShift log2 of the number of elements in each segment
+         */
+        OffHeap(long length, int segmentShift) {
+            super(length, segmentShift);
+            this.segments = new LongBuffer[(int) BigArray.segmentCount(length, segmentShift)];
+            for (int segment = 0; segment < this.segments.length; segment++) {
+                int segmentLength = BigArray.segmentLength(length, segmentShift, segment);
+                this.segments[segment] = ByteBuffer.allocateDirect(segmentLength * Long.BYTES)
+                        .order(ByteOrder.nativeOrder()).asLongBuffer();
+            }
+        }
+
+        @Override
+        public long get(long index) {
+            this.checkIndex(index);
+            return this.segments[(int) (index >>> this.segmentShift)].get((int) index &
+                    this.segmentMask);
+        }
+
+        @Override
+        public void set(long index, long value) {
+            this.checkIndex(index);
+            this.segments[(int) (index >>> this.segmentShift)].put((int) index & this.segmentMask,
+                    value);
+        }
+    }
+}
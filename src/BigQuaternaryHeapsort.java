@@ -0,0 +1,179 @@
+import java.util.Comparator;
+
+/**
+ * Quaternary heap sort for BigArray and BigLongArray, which may hold more than 2^31 elements.
+ *
+ * The heap layout and sift operations are those of QuaternaryHeapsort, with positions held in
+ * longs. The downheap only descends from a node while it is no further than the last internal
+ * node, rather than while its first child (4i + 1) is within the heap, so no child position is
+ * ever computed that could overflow.
+ */
+public class BigQuaternaryHeapsort {
+
+    /**
+     * Sorts the input array, in-place, using a quaternary heap sort.
+     *
+     * Let n denote the number of nodes within the quaternary heap.
+     *
+     * Worst case runtime complexity: O(n log n)
+     *
+     * Worst case space complexity: O(1) auxiliary
+     *
+     * @param input to be sorted (modified in place)
+     */
+    public static <T extends Comparable<T>> void quaternaryHeapsort(BigArray<T> input) {
+        quaternaryHeapsort(input, Comparator.naturalOrder());
+    }
+
+    /**
+     * Sorts the input array, in-place, using a quaternary heap sort, into the order given by
+     * the comparator.
+     *
+     * Worst case runtime complexity: O(n log n)
+     *
+     * Worst case space complexity: O(1) auxiliary
+     *
+     * @param input to be sorted (modified in place)
+     * @param comparator ordering to sort by, from least to greatest
+     */
+    public static <T> void quaternaryHeapsort(BigArray<T> input,
+            Comparator<? super T> comparator) {
+        long length = input.length();
+        // Bottom-Up Heap Construction - start at last internal node
+        for (long position = lastInternal(length); position >= 0; position--) {
+            quaternaryDownheap(input, position, length, comparator);
+        }
+        for (long size = length - 1; size > 0; size--) {
+            // Move the maximum to its final position, then restore the heap order
+            T toSwap = input.get(size);
+            input.set(size, input.get(0));
+            input.set(0, toSwap);
+            quaternaryDownheap(input, 0, size, comparator);
+        }
+    }
+
+    /**
+     * Sorts the input array, in-place, into ascending order using a quaternary heap sort.
+     *
+     * Worst case runtime complexity: O(n log n)
+     *
+     * Worst case space complexity: O(1) auxiliary
+     *
+     * @param input to be sorted (modified in place)
+     */
+    public static void quaternaryHeapsort(BigLongArray input) {
+        long length = input.length();
+        for (long position = lastInternal(length); position >= 0; position--) {
+            quaternaryDownheap(input, position, length);
+        }
+        for (long size = length - 1; size > 0; size--) {
+            long toSwap = input.get(size);
+            input.set(size, input.get(0));
+            input.set(0, toSwap);
+            quaternaryDownheap(input, 0, size);
+        }
+    }
+
+    /**
+     * Performs a downheap from the element in the given position on the given max heap array,
+     * as QuaternaryHeapsort.quaternaryDownheap does.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param input array representing a quaternary max heap.
+     * @param start position in the array to start the downheap from.
+     * @param size the size of the heap in the input array, starting from index 0
+     * @param comparator ordering of the heap; greater elements are closer to the root
+     */
+    public static <T> void quaternaryDownheap(BigArray<T> input, long start, long size,
+            Comparator<? super T> comparator) {
+        long lastInternal = lastInternal(size);
+        long currentParent = start;
+        T toSift = input.get(start);
+        while (currentParent <= lastInternal) {
+            long farLeftPosition = farLeft(currentParent);
+            long largestChild = farLeftPosition;
+            T largest = input.get(farLeftPosition);
+            long lastChild = Math.min(farLeftPosition + 3, size - 1);
+            for (long child = farLeftPosition + 1; child <= lastChild; child++) {
+                T candidate = input.get(child);
+                if (comparator.compare(candidate, largest) > 0) {
+                    largestChild = child;
+                    largest = candidate;
+                }
+            }
+
+            // Downheap complete
+            if (comparator.compare(largest, toSift) <= 0) {
+                break;
+            }
+            input.set(currentParent, largest);
+            currentParent = largestChild;
+        }
+        input.set(currentParent, toSift);
+    }
+
+    /**
+     * Performs a downheap from the element in the given position on the given max heap array.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param input array representing a quaternary max heap.
+     * @param start position in the array to start the downheap from.
+     * @param size the size of the heap in the input array, starting from index 0
+     */
+    public static void quaternaryDownheap(BigLongArray input, long start, long size) {
+        long lastInternal = lastInternal(size);
+        long currentParent = start;
+        long toSift = input.get(start);
+        while (currentParent <= lastInternal) {
+            long farLeftPosition = farLeft(currentParent);
+            long largestChild = farLeftPosition;
+            long largest = input.get(farLeftPosition);
+            long lastChild = Math.min(farLeftPosition + 3, size - 1);
+            for (long child = farLeftPosition + 1; child <= lastChild; child++) {
+                long candidate = input.get(child);
+                if (candidate > largest) {
+                    largestChild = child;
+                    largest = candidate;
+                }
+            }
+
+            // Downheap complete
+            if (largest <= toSift) {
+                break;
+            }
+            input.set(currentParent, largest);
+            currentParent = largestChild;
+        }
+        input.set(currentParent, toSift);
+    }
+
+    /**
+     * Worst case runtime complexity: O(1)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param size number of nodes in the heap
+     * @return position of the last node with at least one child, or -1 if there is none
+     */
+    static long lastInternal(long size) {
+        return (size < 2) ? -1 : (size - 2) / 4;
+    }
+
+    /**
+     * Worst case runtime complexity: O(1)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param parentIndex position of an internal node, so that the result cannot overflow
+     * @return position of its first child
+     */
+    static long farLeft(long parentIndex) {
+        return 4 * parentIndex + 1;
+    }
+}
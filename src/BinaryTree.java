@@ -1,13 +1,50 @@
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+
 /**
  * A binary tree, where each node contains at most two children.
  * Each node contains a value and references to its left and right children (if they exist).
+ * Iterating over a tree visits its values in-order; BinaryTreeTraversals provides the other
+ * orders.
+ *
+ * Two trees are equal when they have the same shape and equal values at the same positions.
+ * Each node lazily computes and caches a structural fingerprint of its subtree, from which
+ * hashCode is derived and most unequal trees are told apart without a traversal; values must
+ * therefore not change their hash codes while in a tree.
+ *
+ * A node must be the child of at most one other node. Each node records only its latest parent,
+ * and a change to a subtree clears the cached fingerprints (and validator summaries) along that
+ * chain of parents alone. Another tree sharing the subtree may therefore keep a stale
+ * fingerprint, giving a stale hashCode and wrong equals results. Setting the subtree as a child
+ * again makes that node its latest parent and clears the node's caches.
  *
  * @param <E> the type of the tree's elements
  */
-public class BinaryTree<E> {
+public class BinaryTree<E> implements Iterable<E> {
     private E value; // the element at this node
     private BinaryTree<E> left; // the left child (subtree)
     private BinaryTree<E> right; // the right child (subtree)
+    private BinaryTree<E> parent; // the node this is the child of, or null
+
+    /**
+     * The value meaning a subtree has no cached summary.
+     */
+    static final long UNCACHED = Long.MIN_VALUE;
+
+    /**
+     * A summary of this subtree cached by a validator (see IncrementalStrongHeapValidator), or
+     * UNCACHED. Whenever a child is set, the caches of the node and all its ancestors are
+     * cleared, so that a cached summary always describes the subtree as it is. As a node without
+     * a cache never has an ancestor with one, clearing stops at the first node without one.
+     *
+     * Caching assumes each node is the child of at most one other node.
+     */
+    long cachedSummary = UNCACHED;
+
+    private long fingerprint; // the structural fingerprint of this subtree, if fingerprinted
+    private boolean fingerprinted; // whether fingerprint is up to date
 
     /**
      * Constructs a new binary tree node with the given value and no children.
@@ -29,6 +66,8 @@ public class BinaryTree<E> {
         this.value = value;
         this.left = left;
         this.right = right;
+        adopt(left);
+        adopt(right);
     }
 
     /**
@@ -54,7 +93,10 @@ public class BinaryTree<E> {
      * @param left the new left child or null
      */
     public void setLeft(BinaryTree<E> left) {
+        release(this.left);
         this.left = left;
+        adopt(left);
+        invalidate();
     }
 
     /**
@@ -64,7 +106,10 @@ public class BinaryTree<E> {
      * @param right the new right child or null
      */
     public void setRight(BinaryTree<E> right) {
+        release(this.right);
         this.right = right;
+        adopt(right);
+        invalidate();
     }
 
     /**
@@ -81,4 +126,191 @@ public class BinaryTree<E> {
         return right;
     }
 
+    /**
+     * Returns a 64-bit structural fingerprint of this subtree, combining the hash code of this
+     * node's value with the fingerprints of its children (a Merkle hash). Equal trees have
+     * equal fingerprints, and unequal trees almost always have different ones.
+     *
+     * Fingerprints are computed lazily, children before parents, and cached in every node of
+     * the subtree. Setting a child clears the cached fingerprints of the node and its
+     * ancestors only, so a fingerprint is recomputed along that path alone.
+     *
+     * Worst case runtime complexity: O(u), where u is the number of nodes of the subtree
+     * without a cached fingerprint; O(1) if this node has one
+     *
+     * Worst case space complexity: O(u)
+     *
+     * @return the fingerprint of this subtree
+     */
+    public long fingerprint() {
+        if (fingerprinted) {
+            return fingerprint;
+        }
+        // Every descendant of a fingerprinted node is fingerprinted, so only visit the others
+        ArrayDeque<BinaryTree<E>> stack = new ArrayDeque<>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            BinaryTree<E> current = stack.peek();
+            if (current.left != null && !current.left.fingerprinted) {
+                stack.push(current.left);
+            } else if (current.right != null && !current.right.fingerprinted) {
+                stack.push(current.right);
+            } else {
+                current.fingerprint = combine(Objects.hashCode(current.value),
+                        fingerprintOf(current.left), fingerprintOf(current.right));
+                current.fingerprinted = true;
+                stack.pop();
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Determines whether the given object is a binary tree of the same shape as this one, with
+     * equal values at the same positions.
+     *
+     * The fingerprints of the two trees are compared first, which rejects almost every unequal
+     * pair. Otherwise, both trees are walked in step with an explicit stack, skipping subtrees
+     * that are the same node, and stopping at the first pair of subtrees whose fingerprints
+     * differ.
+     *
+     * Worst case runtime complexity: O(n) (O(1) once fingerprinted, for most unequal trees)
+     *
+     * Worst case space complexity: O(n)
+     *
+     * @param other object to compare with
+     * @return true if other is an equal binary tree
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof BinaryTree)) {
+            return false;
+        }
+        ArrayDeque<BinaryTree<?>> stack = new ArrayDeque<>();
+        stack.push(this);
+        stack.push((BinaryTree<?>) other);
+        while (!stack.isEmpty()) {
+            BinaryTree<?> second = stack.pop();
+            BinaryTree<?> first = stack.pop();
+            if (first == second) {
+                continue;
+            }
+            if (first.fingerprint() != second.fingerprint() ||
+                    !Objects.equals(first.value, second.value) ||
+                    (first.left == null) != (second.left == null) ||
+                    (first.right == null) != (second.right == null)) {
+                return false;
+            }
+            if (first.left != null) {
+                stack.push(first.left);
+                stack.push(second.left);
+            }
+            if (first.right != null) {
+                stack.push(first.right);
+                stack.push(second.right);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Worst case runtime complexity: as fingerprint
+     *
+     * @return a hash code derived from the fingerprint of this tree
+     */
+    @Override
+    public int hashCode() {
+        long hash = fingerprint();
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Returns an iterator over the values of this tree in in-order (see
+     * BinaryTreeTraversals.inOrder), which never recurses.
+     *
+     * @return an iterator over the values of this tree
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return BinaryTreeTraversals.inOrder(this);
+    }
+
+    /**
+     * Returns a spliterator over the values of this tree, in no particular order, which splits
+     * by subtrees (see BinaryTreeTraversals.spliterator).
+     *
+     * @return a spliterator over the values of this tree
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return BinaryTreeTraversals.spliterator(this);
+    }
+
+    /**
+     * Makes this node the parent of the given child.
+     *
+     * @param child new child of this node, or null
+     */
+    private void adopt(BinaryTree<E> child) {
+        if (child != null) {
+            child.parent = this;
+        }
+    }
+
+    /**
+     * Detaches the given former child from this node, if it has not since been given another
+     * parent.
+     *
+     * @param child former child of this node, or null
+     */
+    private void release(BinaryTree<E> child) {
+        if (child != null && child.parent == this) {
+            child.parent = null;
+        }
+    }
+
+    /**
+     * Clears the cached summaries and fingerprints of this node and its ancestors, up to the
+     * first without either.
+     *
+     * Worst case runtime complexity: O(d), where d is the depth of this node
+     */
+    private void invalidate() {
+        for (BinaryTree<E> node = this;
+                node != null && (node.cachedSummary != UNCACHED || node.fingerprinted);
+                node = node.parent) {
+            node.cachedSummary = UNCACHED;
+            node.fingerprinted = false;
+        }
+    }
+
+    /**
+     * @param node a fingerprinted node, or null
+     * @return the node's fingerprint, or 0 for null
+     */
+    private static long fingerprintOf(BinaryTree<?> node) {
+        return (node == null) ? 0 : node.fingerprint;
+    }
+
+    /**
+     * Combines a node's value hash code with its children's fingerprints, giving each input a
+     * different odd multiplier so that swapping children changes the result, and then mixing
+     * all the bits (with the finaliser of SplitMix64).
+     *
+     * @param valueHash hash code of the node's value
+     * @param leftFingerprint fingerprint of the left child, or 0 if it has none
+     * @param rightFingerprint fingerprint of the right child, or 0 if it has none
+     * @return the fingerprint of the node's subtree
+     */
+    static long combine(int valueHash, long leftFingerprint, long rightFingerprint) {
+        long hash = valueHash * 0x9E3779B97F4A7C15L + leftFingerprint * 0xC2B2AE3D27D4EB4FL +
+                rightFingerprint * 0x165667B19E3779F9L + 1;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+
 }
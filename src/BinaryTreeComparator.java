@@ -1,3 +1,4 @@
+import java.util.Arrays;
 import java.util.Comparator;
 
 /**
@@ -53,4 +54,55 @@ public class BinaryTreeComparator<E extends Comparable<E>> implements Comparator
         }
         return result;
     }
+
+    /**
+     * Compares two compact binary trees in the same order as two pointer-based trees with the
+     * same shapes and values: by their left subtrees, their root values, then their right
+     * subtrees. An empty tree is less than a non-empty one.
+     *
+     * Rather than recursing, both trees are walked in-order in step, with an explicit stack of
+     * pairs of node indexes, so deep trees cannot overflow the call stack.
+     *
+     * Let n denote the number of nodes in the smaller tree.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(n)
+     *
+     * @param tree1 the first compact binary tree, cannot be null.
+     * @param tree2 the second compact binary tree, cannot be null.
+     * @return -1, 0, +1 if tree1 is less than, equal to, or greater than tree2, respectively.
+     */
+    public int compare(CompactBinaryTree<E> tree1, CompactBinaryTree<E> tree2) {
+        int[] stack = new int[16];
+        int depth = 0;
+        int node1 = tree1.root();
+        int node2 = tree2.root();
+        while (true) {
+            // Descend to the leftmost pair, where at least one tree has no node
+            while (node1 != CompactBinaryTree.NONE && node2 != CompactBinaryTree.NONE) {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                }
+                stack[depth++] = node1;
+                stack[depth++] = node2;
+                node1 = tree1.left(node1);
+                node2 = tree2.left(node2);
+            }
+            if (node1 != node2) {
+                return (node1 == CompactBinaryTree.NONE) ? -1 : 1;
+            }
+            if (depth == 0) {
+                return 0;
+            }
+            node2 = stack[--depth];
+            node1 = stack[--depth];
+            int result = tree1.value(node1).compareTo(tree2.value(node2));
+            if (result != 0) {
+                return Integer.signum(result);
+            }
+            node1 = tree1.right(node1);
+            node2 = tree2.right(node2);
+        }
+    }
 }
@@ -0,0 +1,362 @@
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterative traversals of the values of a BinaryTree.
+ *
+ * Each iterator keeps its own explicit stack (or, for level order, queue) of nodes, so no
+ * traversal recurses and deep or unbalanced trees cannot overflow the call stack. Apart from
+ * the occasional growth of that stack or queue, a traversal allocates nothing per node.
+ *
+ * The tree must not be modified while it is being traversed; modifications are not detected.
+ */
+public class BinaryTreeTraversals {
+
+    /**
+     * Returns an iterator over the values of the tree in in-order: each node's left subtree,
+     * then the node, then its right subtree.
+     *
+     * Worst case runtime complexity: O(n) for the whole traversal, and O(1) amortised per value
+     *
+     * Worst case space complexity: O(h), where h is the height of the tree
+     *
+     * @param root root of a binary tree, or null for an empty tree
+     * @param <E> the type of the tree's elements
+     * @return an iterator over the values of the tree, in in-order
+     */
+    public static <E> Iterator<E> inOrder(BinaryTree<E> root) {
+        return new InOrderIterator<>(root);
+    }
+
+    /**
+     * Returns an iterator over the values of the tree in pre-order: each node, then its left
+     * subtree, then its right subtree.
+     *
+     * Worst case runtime complexity: O(n) for the whole traversal, and O(1) per value
+     *
+     * Worst case space complexity: O(h), where h is the height of the tree
+     *
+     * @param root root of a binary tree, or null for an empty tree
+     * @param <E> the type of the tree's elements
+     * @return an iterator over the values of the tree, in pre-order
+     */
+    public static <E> Iterator<E> preOrder(BinaryTree<E> root) {
+        return new PreOrderIterator<>(root);
+    }
+
+    /**
+     * Returns an iterator over the values of the tree in post-order: each node's left subtree,
+     * then its right subtree, then the node.
+     *
+     * Worst case runtime complexity: O(n) for the whole traversal, and O(1) amortised per value
+     *
+     * Worst case space complexity: O(h), where h is the height of the tree
+     *
+     * @param root root of a binary tree, or null for an empty tree
+     * @param <E> the type of the tree's elements
+     * @return an iterator over the values of the tree, in post-order
+     */
+    public static <E> Iterator<E> postOrder(BinaryTree<E> root) {
+        return new PostOrderIterator<>(root);
+    }
+
+    /**
+     * Returns an iterator over the values of the tree in level order: by depth, and from left
+     * to right within each level.
+     *
+     * Worst case runtime complexity: O(n) for the whole traversal, and O(1) per value
+     *
+     * Worst case space complexity: O(w), where w is the greatest number of nodes on a level
+     *
+     * @param root root of a binary tree, or null for an empty tree
+     * @param <E> the type of the tree's elements
+     * @return an iterator over the values of the tree, in level order
+     */
+    public static <E> Iterator<E> levelOrder(BinaryTree<E> root) {
+        return new LevelOrderIterator<>(root);
+    }
+
+    /**
+     * Returns a spliterator over the values of the tree, in no particular order, which splits
+     * by handing whole subtrees to the new spliterator. A balanced tree therefore splits into
+     * roughly equal halves, and each worker of a parallel stream traverses its own subtrees.
+     *
+     * As the size of the tree is not known in advance, each split halves the estimated size of
+     * both parts, starting from an unknown size.
+     *
+     * @param root root of a binary tree, or null for an empty tree
+     * @param <E> the type of the tree's elements
+     * @return a spliterator over the values of the tree
+     */
+    public static <E> Spliterator<E> spliterator(BinaryTree<E> root) {
+        return new SubtreeSpliterator<>(root, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param root root of a binary tree, or null for an empty tree
+     * @param parallel true for a parallel stream, which splits the tree by subtrees
+     * @param <E> the type of the tree's elements
+     * @return a stream of the values of the tree, in no particular order
+     */
+    public static <E> Stream<E> stream(BinaryTree<E> root, boolean parallel) {
+        return StreamSupport.stream(spliterator(root), parallel);
+    }
+
+    /**
+     * An in-order iterator, whose stack holds the nodes whose left subtrees are being
+     * traversed: the top of the stack is always the next node.
+     */
+    private static class InOrderIterator<E> implements Iterator<E> {
+        /** The ancestors still to be visited, next on top. */
+        private final ArrayDeque<BinaryTree<E>> stack = new ArrayDeque<>();
+
+        /**
+         * @param root root of a binary tree, or null
+         */
+        InOrderIterator(BinaryTree<E> root) {
+            this.pushLeftPath(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.stack.isEmpty();
+        }
+
+        @Override
+        public E next() {
+            if (this.stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            BinaryTree<E> current = this.stack.pop();
+            this.pushLeftPath(current.getRight());
+            return current.getValue();
+        }
+
+        /**
+         * Pushes the given node and its chain of left children.
+         *
+         * @param node node, or null
+         */
+        private void pushLeftPath(BinaryTree<E> node) {
+            for (; node != null; node = node.getLeft()) {
+                this.stack.push(node);
+            }
+        }
+    }
+
+    /**
+     * A pre-order iterator, whose stack holds the roots of the subtrees still to be traversed,
+     * next on top.
+     */
+    private static class PreOrderIterator<E> implements Iterator<E> {
+        /** The subtrees still to be traversed, next on top. */
+        private final ArrayDeque<BinaryTree<E>> stack = new ArrayDeque<>();
+
+        /**
+         * @param root root of a binary tree, or null
+         */
+        PreOrderIterator(BinaryTree<E> root) {
+            if (root != null) {
+                this.stack.push(root);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.stack.isEmpty();
+        }
+
+        @Override
+        public E next() {
+            if (this.stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            BinaryTree<E> current = this.stack.pop();
+            if (current.getRight() != null) {
+                this.stack.push(current.getRight());
+            }
+            if (current.getLeft() != null) {
+                this.stack.push(current.getLeft());
+            }
+            return current.getValue();
+        }
+    }
+
+    /**
+     * A post-order iterator, whose stack holds the path from the root to the next node. After
+     * a node is visited, if its parent's right subtree has not been traversed yet, the leftmost
+     * leaf of that subtree is next; otherwise the parent is. Whether each node on the path is
+     * still in its left subtree is recorded by depth, rather than inferred by comparing the
+     * visited node with the parent's children, so a node that is both children of its parent is
+     * visited twice, as a recursive traversal would.
+     */
+    private static class PostOrderIterator<E> implements Iterator<E> {
+        /** The path from the root to the next node, next on top. */
+        private final ArrayDeque<BinaryTree<E>> stack = new ArrayDeque<>();
+
+        /** The depths on the path of the nodes whose left subtrees are being traversed. */
+        private final BitSet inLeftSubtree = new BitSet();
+
+        /**
+         * @param root root of a binary tree, or null
+         */
+        PostOrderIterator(BinaryTree<E> root) {
+            this.pushLeafPath(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.stack.isEmpty();
+        }
+
+        @Override
+        public E next() {
+            if (this.stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            BinaryTree<E> current = this.stack.pop();
+            int parentDepth = this.stack.size() - 1;
+            if (parentDepth >= 0 && this.inLeftSubtree.get(parentDepth)) {
+                this.inLeftSubtree.clear(parentDepth);
+                this.pushLeafPath(this.stack.peek().getRight());
+            }
+            return current.getValue();
+        }
+
+        /**
+         * Pushes the path from the given node to the first leaf reached by preferring left
+         * children.
+         *
+         * @param node node, or null
+         */
+        private void pushLeafPath(BinaryTree<E> node) {
+            while (node != null) {
+                this.inLeftSubtree.set(this.stack.size(), node.getLeft() != null);
+                this.stack.push(node);
+                node = (node.getLeft() != null) ? node.getLeft() : node.getRight();
+            }
+        }
+    }
+
+    /**
+     * A level-order iterator, whose queue holds the nodes of at most two adjacent levels.
+     */
+    private static class LevelOrderIterator<E> implements Iterator<E> {
+        /** The nodes still to be visited, next at the head. */
+        private final ArrayDeque<BinaryTree<E>> queue = new ArrayDeque<>();
+
+        /**
+         * @param root root of a binary tree, or null
+         */
+        LevelOrderIterator(BinaryTree<E> root) {
+            if (root != null) {
+                this.queue.add(root);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.queue.isEmpty();
+        }
+
+        @Override
+        public E next() {
+            if (this.queue.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            BinaryTree<E> current = this.queue.poll();
+            if (current.getLeft() != null) {
+                this.queue.add(current.getLeft());
+            }
+            if (current.getRight() != null) {
+                this.queue.add(current.getRight());
+            }
+            return current.getValue();
+        }
+    }
+
+    /**
+     * A spliterator over whole subtrees, each traversed in pre-order with an explicit stack.
+     *
+     * Splitting hands over the pending subtree at the bottom of the stack, which is the
+     * largest one (the right subtree of the shallowest node still being traversed). When only
+     * one subtree is pending, its root's value is set aside to be returned on its own, and its
+     * right subtree is handed over, unless the root has fewer than two children.
+     */
+    private static class SubtreeSpliterator<E> implements Spliterator<E> {
+        /** The subtrees still to be traversed, next on top. */
+        private final ArrayDeque<BinaryTree<E>> stack = new ArrayDeque<>();
+
+        /** Values whose nodes were split from their subtrees, still to be returned. */
+        private final ArrayDeque<E> values = new ArrayDeque<>();
+
+        /** The estimated number of values still to be returned. */
+        private long estimatedSize;
+
+        /**
+         * @param root root of a subtree, or null
+         * @param estimatedSize estimated number of nodes in the subtree
+         */
+        SubtreeSpliterator(BinaryTree<E> root, long estimatedSize) {
+            if (root != null) {
+                this.stack.push(root);
+            }
+            this.estimatedSize = (root == null) ? 0 : estimatedSize;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (!this.values.isEmpty()) {
+                action.accept(this.values.poll());
+                return true;
+            }
+            BinaryTree<E> current = this.stack.poll();
+            if (current == null) {
+                return false;
+            }
+            if (current.getRight() != null) {
+                this.stack.push(current.getRight());
+            }
+            if (current.getLeft() != null) {
+                this.stack.push(current.getLeft());
+            }
+            action.accept(current.getValue());
+            return true;
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            BinaryTree<E> handedOver;
+            if (this.stack.size() >= 2) {
+                handedOver = this.stack.pollLast();
+            } else {
+                BinaryTree<E> current = this.stack.peek();
+                if (current == null || current.getLeft() == null || current.getRight() == null) {
+                    return null;
+                }
+                this.stack.pop();
+                this.values.add(current.getValue());
+                this.stack.push(current.getLeft());
+                handedOver = current.getRight();
+            }
+            this.estimatedSize >>>= 1;
+            return new SubtreeSpliterator<>(handedOver, this.estimatedSize);
+        }
+
+        @Override
+        public long estimateSize() {
+            return this.estimatedSize;
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL;
+        }
+    }
+}
@@ -0,0 +1,434 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable binary tree stored as parallel arrays rather than as one object per node.
+ *
+ * Nodes are numbered from 0 in level order, and the value of node i is at index i of a values
+ * array. The children of each node are either stored in two parallel arrays of child indexes
+ * (explicit mode), or, when the tree is complete, computed as 2i + 1 and 2i + 2 (implicit mode),
+ * in which case the values array is all the tree holds. A missing child, or the root of an empty
+ * tree, is NONE.
+ *
+ * Explicit mode takes 8 bytes per node beyond the value, and implicit mode none, compared with
+ * an object header and three references for each BinaryTree node. OfInt stores int values
+ * unboxed, which also removes an Integer object per node. As nodes are numbered in level order,
+ * a traversal reads the arrays mostly sequentially instead of chasing pointers.
+ *
+ * @param <E> the type of the tree's elements
+ */
+public class CompactBinaryTree<E> {
+    /** The index of a missing node. */
+    public static final int NONE = -1;
+
+    /** The values of the nodes, in level order. */
+    private final Object[] values;
+
+    /** The structure of the tree. */
+    private final Shape shape;
+
+    /**
+     * @param values values of the nodes, in level order
+     * @param shape structure of the tree
+     */
+    private CompactBinaryTree(Object[] values, Shape shape) {
+        this.values = values;
+        this.shape = shape;
+    }
+
+    /**
+     * Creates a compact copy of the binary tree with the given root node, in implicit mode if
+     * the tree is complete, and in explicit mode otherwise.
+     *
+     * Let n denote the number of nodes in the given binary tree.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(n)
+     *
+     * @param root root of a binary tree, or null for an empty tree
+     * @param <E> the type of the tree's elements
+     * @return the compact tree
+     */
+    public static <E> CompactBinaryTree<E> fromBinaryTree(BinaryTree<E> root) {
+        List<BinaryTree<E>> nodes = levelOrder(root);
+        Object[] values = new Object[nodes.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = nodes.get(i).getValue();
+        }
+        return new CompactBinaryTree<>(values, Shape.of(nodes));
+    }
+
+    /**
+     * Creates a complete tree, in implicit mode, holding the given values in level order.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(n)
+     *
+     * @param values values of the nodes, in level order, none of which may be null
+     * @param <E> the type of the tree's elements
+     * @return the compact tree
+     */
+    @SafeVarargs
+    public static <E> CompactBinaryTree<E> ofComplete(E... values) {
+        for (E value : values) {
+            if (value == null) {
+                throw new NullPointerException("CompactBinaryTree does not permit null values");
+            }
+        }
+        return new CompactBinaryTree<>(Arrays.copyOf(values, values.length, Object[].class),
+                Shape.implicit(values.length));
+    }
+
+    /**
+     * Creates a pointer-based copy of this tree.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(n)
+     *
+     * @return the root of the copy, or null if this tree is empty
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BinaryTree<E> toBinaryTree() {
+        BinaryTree<E>[] nodes = new BinaryTree[this.size()];
+        // Children come after their parents in level order, so build from the end
+        for (int node = nodes.length - 1; node >= 0; node--) {
+            nodes[node] = new BinaryTree<>(this.value(node), nodeAt(nodes, this.left(node)),
+                    nodeAt(nodes, this.right(node)));
+        }
+        return nodeAt(nodes, this.root());
+    }
+
+    /**
+     * @return the number of nodes in the tree
+     */
+    public int size() {
+        return this.shape.size;
+    }
+
+    /**
+     * @return true if the tree is complete and stored in implicit mode
+     */
+    public boolean isImplicit() {
+        return this.shape.isImplicit();
+    }
+
+    /**
+     * @return the index of the root, or NONE if the tree is empty
+     */
+    public int root() {
+        return this.shape.root();
+    }
+
+    /**
+     * @param node index of a node
+     * @return the value stored at the node
+     */
+    @SuppressWarnings("unchecked")
+    public E value(int node) {
+        return (E) this.values[node];
+    }
+
+    /**
+     * @param node index of a node
+     * @return the index of the node's left child, or NONE if it has none
+     */
+    public int left(int node) {
+        return this.shape.left(node);
+    }
+
+    /**
+     * @param node index of a node
+     * @return the index of the node's right child, or NONE if it has none
+     */
+    public int right(int node) {
+        return this.shape.right(node);
+    }
+
+    /**
+     * A binary tree of int values, stored as CompactBinaryTree is, without boxing.
+     */
+    public static class OfInt {
+        /** The values of the nodes, in level order. */
+        private final int[] values;
+
+        /** The structure of the tree. */
+        private final Shape shape;
+
+        /**
+         * @param values values of the nodes, in level order
+         * @param shape structure of the tree
+         */
+        private OfInt(int[] values, Shape shape) {
+            this.values = values;
+            this.shape = shape;
+        }
+
+        /**
+         * Creates a compact copy of the binary tree with the given root node, in implicit mode
+         * if the tree is complete, and in explicit mode otherwise.
+         *
+         * Worst case runtime complexity: O(n)
+         *
+         * Worst case space complexity: O(n)
+         *
+         * @param root root of a binary tree, or null for an empty tree
+         * @return the compact tree
+         */
+        public static OfInt fromBinaryTree(BinaryTree<Integer> root) {
+            List<BinaryTree<Integer>> nodes = levelOrder(root);
+            int[] values = new int[nodes.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = nodes.get(i).getValue();
+            }
+            return new OfInt(values, Shape.of(nodes));
+        }
+
+        /**
+         * Creates a complete tree, in implicit mode, holding the given values in level order.
+         *
+         * Worst case runtime complexity: O(n)
+         *
+         * Worst case space complexity: O(n)
+         *
+         * @param values values of the nodes, in level order
+         * @return the compact tree
+         */
+        public static OfInt ofComplete(int... values) {
+            return new OfInt(values.clone(), Shape.implicit(values.length));
+        }
+
+        /**
+         * Creates a pointer-based copy of this tree.
+         *
+         * Worst case runtime complexity: O(n)
+         *
+         * Worst case space complexity: O(n)
+         *
+         * @return the root of the copy, or null if this tree is empty
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public BinaryTree<Integer> toBinaryTree() {
+            BinaryTree<Integer>[] nodes = new BinaryTree[this.size()];
+            for (int node = nodes.length - 1; node >= 0; node--) {
+                nodes[node] = new BinaryTree<>(this.value(node), nodeAt(nodes, this.left(node)),
+                        nodeAt(nodes, this.right(node)));
+            }
+            return nodeAt(nodes, this.root());
+        }
+
+        /**
+         * @return the number of nodes in the tree
+         */
+        public int size() {
+            return this.shape.size;
+        }
+
+        /**
+         * @return true if the tree is complete and stored in implicit mode
+         */
+        public boolean isImplicit() {
+            return this.shape.isImplicit();
+        }
+
+        /**
+         * @return the index of the root, or NONE if the tree is empty
+         */
+        public int root() {
+            return this.shape.root();
+        }
+
+        /**
+         * @param node index of a node
+         * @return the value stored at the node
+         */
+        public int value(int node) {
+            return this.values[node];
+        }
+
+        /**
+         * @param node index of a node
+         * @return the index of the node's left child, or NONE if it has none
+         */
+        public int left(int node) {
+            return this.shape.left(node);
+        }
+
+        /**
+         * @param node index of a node
+         * @return the index of the node's right child, or NONE if it has none
+         */
+        public int right(int node) {
+            return this.shape.right(node);
+        }
+
+        /**
+         * Determines whether this tree is complete, in which case its values, in level order,
+         * are an implicit binary tree.
+         *
+         * Worst case runtime complexity: O(1) in implicit mode, otherwise O(n)
+         *
+         * @return true if the tree is complete
+         */
+        boolean isComplete() {
+            return this.shape.isComplete();
+        }
+
+        /**
+         * @return the values of the nodes, in level order (not a copy)
+         */
+        int[] values() {
+            return this.values;
+        }
+    }
+
+    /**
+     * Lists the nodes of the binary tree with the given root in level order, iteratively.
+     *
+     * @param root root of a binary tree, or null
+     * @param <E> the type of the tree's elements
+     * @return the nodes of the tree, in level order
+     */
+    private static <E> List<BinaryTree<E>> levelOrder(BinaryTree<E> root) {
+        List<BinaryTree<E>> nodes = new ArrayList<>();
+        if (root != null) {
+            nodes.add(root);
+        }
+        // The list itself serves as the queue
+        for (int next = 0; next < nodes.size(); next++) {
+            BinaryTree<E> node = nodes.get(next);
+            if (node.getLeft() != null) {
+                nodes.add(node.getLeft());
+            }
+            if (node.getRight() != null) {
+                nodes.add(node.getRight());
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * @param nodes pointer-based nodes, by index
+     * @param node index of a node, or NONE
+     * @param <E> the type of the tree's elements
+     * @return the node at the given index, or null for NONE
+     */
+    private static <E> BinaryTree<E> nodeAt(BinaryTree<E>[] nodes, int node) {
+        return (node == NONE) ? null : nodes[node];
+    }
+
+    /**
+     * The structure of a compact tree of nodes numbered in level order: either explicit child
+     * index arrays, or, for a complete tree, none.
+     */
+    private static class Shape {
+        /** The number of nodes. */
+        private final int size;
+
+        /** The index of each node's left child, or null in implicit mode. */
+        private final int[] left;
+
+        /** The index of each node's right child, or null in implicit mode. */
+        private final int[] right;
+
+        /**
+         * @param size number of nodes
+         * @param left index of each node's left child, or null in implicit mode
+         * @param right index of each node's right child, or null in implicit mode
+         */
+        private Shape(int size, int[] left, int[] right) {
+            this.size = size;
+            this.left = left;
+            this.right = right;
+        }
+
+        /**
+         * @param size number of nodes
+         * @return the shape of a complete tree of that many nodes
+         */
+        static Shape implicit(int size) {
+            return new Shape(size, null, null);
+        }
+
+        /**
+         * Creates the shape of the tree with the given nodes, numbering each node's children in
+         * the order levelOrder lists them. The shape is implicit if the tree turns out to be
+         * complete.
+         *
+         * @param nodes the nodes of a tree, in level order
+         * @return the shape of the tree
+         */
+        static Shape of(List<? extends BinaryTree<?>> nodes) {
+            int size = nodes.size();
+            int[] left = new int[size];
+            int[] right = new int[size];
+            int next = 1;
+            for (int node = 0; node < size; node++) {
+                BinaryTree<?> current = nodes.get(node);
+                left[node] = (current.getLeft() == null) ? NONE : next++;
+                right[node] = (current.getRight() == null) ? NONE : next++;
+            }
+            Shape shape = new Shape(size, left, right);
+            return shape.isComplete() ? implicit(size) : shape;
+        }
+
+        /**
+         * @return true if the shape is implicit
+         */
+        boolean isImplicit() {
+            return this.left == null;
+        }
+
+        /**
+         * @return true if every node's children are where an implicit shape would put them
+         */
+        boolean isComplete() {
+            if (this.isImplicit()) {
+                return true;
+            }
+            for (int node = 0; node < this.size; node++) {
+                if (this.left[node] != implicitChild(node, 1) ||
+                        this.right[node] != implicitChild(node, 2)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the index of the root, or NONE if there are no nodes
+         */
+        int root() {
+            return (this.size == 0) ? NONE : 0;
+        }
+
+        /**
+         * @param node index of a node
+         * @return the index of its left child, or NONE
+         */
+        int left(int node) {
+            return this.isImplicit() ? implicitChild(node, 1) : this.left[node];
+        }
+
+        /**
+         * @param node index of a node
+         * @return the index of its right child, or NONE
+         */
+        int right(int node) {
+            return this.isImplicit() ? implicitChild(node, 2) : this.right[node];
+        }
+
+        /**
+         * @param node index of a node
+         * @param offset 1 for the left child, or 2 for the right
+         * @return the index of the child in a complete tree of this size, or NONE
+         */
+        private int implicitChild(int node, int offset) {
+            long child = 2L * node + offset;
+            return (child < this.size) ? (int) child : NONE;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe, relaxed priority queue made of several independently locked QuaternaryHeaps
+ * (a MultiQueue).
+ *
+ * Each offer adds its element to a randomly chosen heap, and each poll looks at the heads of two
+ * randomly chosen heaps and removes the lesser. As threads rarely contend for the same heap,
+ * throughput grows with the number of threads, unlike a priority queue behind a single lock.
+ * In exchange, poll does not always return the least element of the whole queue: the element
+ * returned is expected to be among the O(q) least, where q is the number of heaps, and the rank
+ * error is O(q log q) with high probability.
+ *
+ * While choosing a heap, locks are taken with tryLock, so a thread skips a busy heap rather
+ * than waiting for it when another will do. Only after several randomly chosen heaps were all
+ * found busy does an offer block on the lock of one more. The head of each heap is published in
+ * a volatile field so that heads can be compared without locking. When both heaps chosen by a
+ * poll are empty, or busy after several attempts, the poll falls back to stealing from any heap
+ * that has elements: it first tries each non-empty heap with tryLock, then blocks on the lock of
+ * each heap still published as non-empty in turn, and returns null once every heap was seen
+ * empty. A poll of an empty queue therefore takes no locks. remove(Object) and the iterator
+ * block on each heap's lock in turn.
+ *
+ * Like QuaternaryHeap, the head is the least element with respect to the comparator (or the
+ * natural ordering), and null elements are not permitted. size() is exact only when no other
+ * thread is modifying the queue, and the iterator returns a snapshot of the elements, in no
+ * particular order, without support for removal (remove(Object) is supported).
+ *
+ * @param <T> type of elements in the queue
+ */
+public class ConcurrentMultiQueue<T> extends AbstractQueue<T> {
+    /** The number of heaps per available processor when none is given. */
+    private static final int DEFAULT_HEAPS_PER_PROCESSOR = 2;
+
+    /** The number of random attempts an operation makes before falling back to a full scan. */
+    private static final int RANDOM_ATTEMPTS = 8;
+
+    /** The heaps making up the queue. */
+    private final Shard<T>[] shards;
+
+    /** The ordering of the queue. */
+    private final Comparator<? super T> comparator;
+
+    /**
+     * Creates a new, empty queue with two heaps per available processor, ordered by the natural
+     * ordering of its elements.
+     */
+    public ConcurrentMultiQueue() {
+        this(DEFAULT_HEAPS_PER_PROCESSOR * Runtime.getRuntime().availableProcessors(), null);
+    }
+
+    /**
+     * Creates a new, empty queue ordered by the given comparator.
+     *
+     * @param heapCount number of heaps; at least twice the number of threads is recommended
+     * @param comparator ordering of the queue, or null for the natural ordering
+     * @throws IllegalArgumentException if heapCount is not positive
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ConcurrentMultiQueue(int heapCount, Comparator<? super T> comparator) {
+        if (heapCount <= 0) {
+            throw new IllegalArgumentException("Heap count must be positive: " + heapCount);
+        }
+        this.shards = (Shard<T>[]) new Shard[heapCount];
+        for (int i = 0; i < heapCount; i++) {
+            this.shards[i] = new Shard<>(comparator);
+        }
+        this.comparator = (comparator == null) ?
+                (Comparator<? super T>) Comparator.naturalOrder() : comparator;
+    }
+
+    /**
+     * Inserts the given element into a randomly chosen heap.
+     *
+     * Worst case runtime complexity: O(log n), amortised, when uncontended
+     *
+     * @param element element to insert
+     * @return true
+     * @throws NullPointerException if element is null
+     */
+    @Override
+    public boolean offer(T element) {
+        if (element == null) {
+            throw new NullPointerException("ConcurrentMultiQueue does not permit null elements");
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 0; attempt < RANDOM_ATTEMPTS; attempt++) {
+            Shard<T> shard = this.shards[random.nextInt(this.shards.length)];
+            if (shard.lock.tryLock()) {
+                try {
+                    shard.offer(element);
+                    return true;
+                } finally {
+                    shard.lock.unlock();
+                }
+            }
+        }
+        // Every heap tried was busy - wait for one
+        Shard<T> shard = this.shards[random.nextInt(this.shards.length)];
+        shard.lock.lock();
+        try {
+            shard.offer(element);
+        } finally {
+            shard.lock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves and removes the lesser of the heads of two randomly chosen heaps, or steals
+     * from any non-empty heap if that fails.
+     *
+     * Worst case runtime complexity: O(log n) when uncontended, and O(q) when stealing
+     *
+     * @return an element near the head of the queue, or null if every heap was found empty
+     */
+    @Override
+    public T poll() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 0; attempt < RANDOM_ATTEMPTS; attempt++) {
+            Shard<T> first = this.shards[random.nextInt(this.shards.length)];
+            Shard<T> second = this.shards[random.nextInt(this.shards.length)];
+            T firstHead = first.head;
+            T secondHead = second.head;
+            if (firstHead == null && secondHead == null) {
+                break;
+            }
+            Shard<T> chosen = (secondHead == null ||
+                    (firstHead != null && this.comparator.compare(firstHead, secondHead) <= 0)) ?
+                    first : second;
+            if (chosen.lock.tryLock()) {
+                try {
+                    // The head may have been taken since it was read
+                    if (chosen.heap.peek() != null) {
+                        return chosen.poll();
+                    }
+                } finally {
+                    chosen.lock.unlock();
+                }
+            }
+        }
+        return this.steal();
+    }
+
+    /**
+     * Removes the head of the first non-empty heap found, scanning from a random heap. Busy heaps
+     * are first skipped, then waited for; heaps published as empty are never locked, so null is
+     * returned once every heap has been seen empty.
+     *
+     * @return the head of a non-empty heap, or null if every heap was empty
+     */
+    private T steal() {
+        int start = ThreadLocalRandom.current().nextInt(this.shards.length);
+        for (int i = 0; i < this.shards.length; i++) {
+            Shard<T> shard = this.shards[(start + i) % this.shards.length];
+            if (shard.head != null && shard.lock.tryLock()) {
+                try {
+                    if (shard.heap.peek() != null) {
+                        return shard.poll();
+                    }
+                } finally {
+                    shard.lock.unlock();
+                }
+            }
+        }
+        for (int i = 0; i < this.shards.length; i++) {
+            Shard<T> shard = this.shards[(start + i) % this.shards.length];
+            if (shard.head == null) {
+                continue;
+            }
+            shard.lock.lock();
+            try {
+                if (shard.heap.peek() != null) {
+                    return shard.poll();
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves, but does not remove, the least of the heads of all heaps, as last published.
+     *
+     * Worst case runtime complexity: O(q)
+     *
+     * @return the least head, or null if every heap appeared empty
+     */
+    @Override
+    public T peek() {
+        T least = null;
+        for (Shard<T> shard : this.shards) {
+            T head = shard.head;
+            if (head != null && (least == null || this.comparator.compare(head, least) < 0)) {
+                least = head;
+            }
+        }
+        return least;
+    }
+
+    /**
+     * @return the number of elements in the queue, which may be out of date if other threads
+     * are modifying it
+     */
+    @Override
+    public int size() {
+        long size = 0;
+        for (Shard<T> shard : this.shards) {
+            size += shard.size;
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return true if every heap appeared empty
+     */
+    @Override
+    public boolean isEmpty() {
+        for (Shard<T> shard : this.shards) {
+            if (shard.head != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes a single instance of the given element, if present, from the first heap found to
+     * hold it. Heaps published as empty are skipped.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * @param element element to remove
+     * @return true if an element was removed
+     */
+    @Override
+    public boolean remove(Object element) {
+        if (element == null) {
+            return false;
+        }
+        for (Shard<T> shard : this.shards) {
+            if (shard.head == null) {
+                continue;
+            }
+            shard.lock.lock();
+            try {
+                if (shard.remove(element)) {
+                    return true;
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the elements of this queue, in no particular order.
+     * The snapshot of each heap is taken under its lock, but the heaps are not all locked at
+     * once. The iterator does not support removal.
+     *
+     * @return an iterator over the elements of this queue
+     */
+    @Override
+    public Iterator<T> iterator() {
+        List<T> snapshot = new ArrayList<>();
+        for (Shard<T> shard : this.shards) {
+            shard.lock.lock();
+            try {
+                snapshot.addAll(shard.heap);
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    /**
+     * One of the heaps making up the queue, with its lock.
+     *
+     * @param <T> type of elements in the heap
+     */
+    private static class Shard<T> {
+        /** The lock guarding heap. */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /** The elements of this shard. */
+        private final QuaternaryHeap<T> heap;
+
+        /** The head of heap, published for lock-free comparison, or null if it is empty. */
+        private volatile T head;
+
+        /** The size of heap, published for size(). */
+        private volatile int size;
+
+        /**
+         * @param comparator ordering of the heap, or null for the natural ordering
+         */
+        Shard(Comparator<? super T> comparator) {
+            this.heap = new QuaternaryHeap<>(comparator);
+        }
+
+        /**
+         * Inserts the given element. Must be called with the lock held.
+         *
+         * @param element element to insert
+         */
+        void offer(T element) {
+            this.heap.offer(element);
+            this.publish();
+        }
+
+        /**
+         * Removes the head of the heap. Must be called with the lock held.
+         *
+         * @return the removed head, or null if the heap was empty
+         */
+        T poll() {
+            T removed = this.heap.poll();
+            this.publish();
+            return removed;
+        }
+
+        /**
+         * Removes a single instance of the given element, if present. Must be called with the
+         * lock held.
+         *
+         * @param element element to remove
+         * @return true if an element was removed
+         */
+        boolean remove(Object element) {
+            if (!this.heap.remove(element)) {
+                return false;
+            }
+            this.publish();
+            return true;
+        }
+
+        /**
+         * Publishes the head and size of the heap for lock-free readers.
+         */
+        private void publish() {
+            this.head = this.heap.peek();
+            this.size = this.heap.size();
+        }
+    }
+}
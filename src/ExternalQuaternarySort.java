@@ -0,0 +1,458 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sorts files of fixed-width records that are too large to be held in memory.
+ *
+ * Sorting takes place in two phases:
+ *  - Run generation: records are streamed through a QuaternaryHeap using replacement selection.
+ *    Each record read replaces the record just written; if it is no smaller than that record it
+ *    joins the current run, otherwise it is held back for the next one. On random input this
+ *    produces sorted runs of about twice as many records as fit in the heap.
+ *  - Merging: the runs are merged with a QuaternaryHeap of run cursors, at most a memory-limited
+ *    number of runs at a time, until a single run remains, which becomes the output.
+ *
+ * All reads and writes go through FileChannels with large direct ByteBuffers. The memory budget
+ * bounds the records held in the heap together with the I/O buffers; run files are written to
+ * the given temporary directory and deleted once merged.
+ */
+public class ExternalQuaternarySort {
+    /** The largest I/O buffer used for a single file. */
+    private static final int MAX_BUFFER_SIZE = 1 << 20;
+
+    /** Approximate memory used per record held in the heap, in addition to the record itself. */
+    private static final int RECORD_OVERHEAD = 48;
+
+    /** The width of every record, in bytes. */
+    private final int recordWidth;
+
+    /** The memory budget for records and I/O buffers, in bytes. */
+    private final long memoryBytes;
+
+    /** The directory in which run files are created. */
+    private final Path tempDirectory;
+
+    /** The ordering of records. */
+    private final Comparator<byte[]> comparator;
+
+    /** The size of each I/O buffer, a multiple of the record width. */
+    private final int bufferSize;
+
+    /**
+     * Creates a new external sort for records of the given width, ordered as unsigned bytes
+     * from first to last (i.e. lexicographically).
+     *
+     * @param recordWidth width of each record, in bytes
+     * @param memoryBytes memory budget for records and I/O buffers, in bytes
+     * @param tempDirectory directory in which to create run files
+     * @throws IllegalArgumentException if recordWidth is not positive, or memoryBytes is too
+     * small to hold four records
+     */
+    public ExternalQuaternarySort(int recordWidth, long memoryBytes, Path tempDirectory) {
+        this(recordWidth, memoryBytes, tempDirectory, Arrays::compareUnsigned);
+    }
+
+    /**
+     * Creates a new external sort for records of the given width, ordered by the given
+     * comparator.
+     *
+     * @param recordWidth width of each record, in bytes
+     * @param memoryBytes memory budget for records and I/O buffers, in bytes
+     * @param tempDirectory directory in which to create run files
+     * @param comparator ordering of records, each given as a byte array of recordWidth bytes
+     * @throws IllegalArgumentException if recordWidth is not positive, or memoryBytes is too
+     * small to hold four records
+     */
+    public ExternalQuaternarySort(int recordWidth, long memoryBytes, Path tempDirectory,
+            Comparator<byte[]> comparator) {
+        if (recordWidth <= 0) {
+            throw new IllegalArgumentException("Record width must be positive: " + recordWidth);
+        }
+        if (memoryBytes < 4L * (recordWidth + RECORD_OVERHEAD)) {
+            throw new IllegalArgumentException("Memory budget of " + memoryBytes +
+                    " bytes is too small for records of width " + recordWidth);
+        }
+        this.recordWidth = recordWidth;
+        this.memoryBytes = memoryBytes;
+        this.tempDirectory = tempDirectory;
+        this.comparator = comparator;
+
+        // An eighth of the budget per buffer, leaves room for the heap and a merge of 7 runs
+        long buffer = Math.min(MAX_BUFFER_SIZE, memoryBytes / 8);
+        this.bufferSize = (int) Math.max(recordWidth, buffer / recordWidth * recordWidth);
+    }
+
+    /**
+     * Sorts the records of the input file into the output file. The input file is not modified,
+     * and the output file is replaced if it exists.
+     *
+     * Let n denote the number of records, and m the number of records that fit in memory.
+     *
+     * Worst case runtime complexity: O(n log n), over O(log_m (n / m)) passes over the data
+     *
+     * Worst case space complexity: O(m) memory, and O(n) temporary disk space
+     *
+     * @param input file of fixed-width records
+     * @param output file to write the sorted records to
+     * @return the number of sorted runs generated before merging
+     * @throws IOException if a file cannot be read or written, or the input file's length is not
+     * a multiple of the record width
+     */
+    public int sort(Path input, Path output) throws IOException {
+        List<Path> runs = new ArrayList<>();
+        // The runs created by the current merge pass, including any being written
+        List<Path> merged = new ArrayList<>();
+        try {
+            this.generateRuns(input, runs);
+            int generated = runs.size();
+            if (runs.isEmpty()) {
+                Files.deleteIfExists(output);
+                Files.createFile(output);
+                return 0;
+            }
+
+            // Merge runs, as many at a time as buffers fit in memory, until only one remains
+            int maxFanIn = (int) Math.max(2, this.memoryBytes / this.bufferSize - 1);
+            while (runs.size() > 1) {
+                merged = new ArrayList<>();
+                for (int from = 0; from < runs.size(); from += maxFanIn) {
+                    List<Path> group = runs.subList(from, Math.min(from + maxFanIn, runs.size()));
+                    if (group.size() == 1) {
+                        merged.add(group.get(0));
+                        continue;
+                    }
+                    Path run = this.createRunFile();
+                    merged.add(run);
+                    this.merge(group, run);
+                    for (Path mergedRun : group) {
+                        Files.delete(mergedRun);
+                    }
+                }
+                runs = merged;
+            }
+            Files.move(runs.get(0), output, StandardCopyOption.REPLACE_EXISTING);
+            runs.clear();
+            return generated;
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+            for (Path run : merged) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    /**
+     * Splits the input file into sorted runs using replacement selection on a quaternary heap.
+     *
+     * @param input file of fixed-width records
+     * @param runs list to add the created run files to, in order
+     * @throws IOException if a file cannot be read or written
+     */
+    private void generateRuns(Path input, List<Path> runs) throws IOException {
+        long heapBudget = this.memoryBytes - 2L * this.bufferSize;
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8,
+                Math.max(1, heapBudget / (this.recordWidth + RECORD_OVERHEAD)));
+
+        // Order first by run, so records held back for the next run sink below the current run
+        QuaternaryHeap<HeapRecord> heap = new QuaternaryHeap<>(Math.min(capacity, 1 << 16),
+                (record1, record2) -> (record1.run != record2.run) ?
+                        Integer.compare(record1.run, record2.run) :
+                        this.comparator.compare(record1.bytes, record2.bytes));
+
+        try (RecordReader reader = new RecordReader(input)) {
+            while (heap.size() < capacity) {
+                byte[] bytes = new byte[this.recordWidth];
+                if (!reader.read(bytes)) {
+                    break;
+                }
+                heap.offer(new HeapRecord(0, bytes));
+            }
+
+            byte[] lastWritten = new byte[this.recordWidth];
+            int currentRun = -1;
+            RecordWriter writer = null;
+            try {
+                while (!heap.isEmpty()) {
+                    HeapRecord smallest = heap.poll();
+                    if (smallest.run != currentRun) {
+                        if (writer != null) {
+                            writer.close();
+                        }
+                        Path run = this.createRunFile();
+                        runs.add(run);
+                        writer = new RecordWriter(run);
+                        currentRun = smallest.run;
+                    }
+                    writer.write(smallest.bytes);
+                    System.arraycopy(smallest.bytes, 0, lastWritten, 0, this.recordWidth);
+
+                    // Reuse the written record for the next input record
+                    if (reader.read(smallest.bytes)) {
+                        boolean fitsRun = this.comparator.compare(smallest.bytes, lastWritten) >= 0;
+                        smallest.run = fitsRun ? currentRun : currentRun + 1;
+                        heap.offer(smallest);
+                    }
+                }
+            } finally {
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges the given sorted runs into a single sorted run, using a quaternary heap of cursors
+     * ordered by their current records.
+     *
+     * @param runs sorted run files to merge
+     * @param output file to write the merged run to
+     * @throws IOException if a file cannot be read or written
+     */
+    private void merge(List<Path> runs, Path output) throws IOException {
+        int readerBuffer = (int) Math.max(this.recordWidth,
+                this.memoryBytes / (runs.size() + 1) / this.recordWidth * this.recordWidth);
+        readerBuffer = Math.min(readerBuffer, MAX_BUFFER_SIZE / this.recordWidth * this.recordWidth);
+
+        QuaternaryHeap<RecordReader> heap = new QuaternaryHeap<>(runs.size(),
+                (reader1, reader2) -> this.comparator.compare(reader1.current, reader2.current));
+        // A reader that has been opened or polled, but is in neither the heap nor closed
+        RecordReader inFlight = null;
+        try (RecordWriter writer = new RecordWriter(output)) {
+            try {
+                for (Path run : runs) {
+                    inFlight = new RecordReader(run, readerBuffer);
+                    if (inFlight.advance()) {
+                        heap.offer(inFlight);
+                    } else {
+                        inFlight.close();
+                    }
+                    inFlight = null;
+                }
+                while (!heap.isEmpty()) {
+                    inFlight = heap.poll();
+                    writer.write(inFlight.current);
+                    if (inFlight.advance()) {
+                        heap.offer(inFlight);
+                    } else {
+                        inFlight.close();
+                    }
+                    inFlight = null;
+                }
+            } finally {
+                closeAll(inFlight, heap);
+            }
+        }
+    }
+
+    /**
+     * Closes the given reader and every reader in the given heap, even if closing some of them
+     * fails.
+     *
+     * @param reader reader to close, or null
+     * @param heap readers to close
+     * @throws IOException if any reader could not be closed (with any further failures
+     * suppressed)
+     */
+    private static void closeAll(RecordReader reader, QuaternaryHeap<RecordReader> heap)
+            throws IOException {
+        IOException failure = null;
+        List<RecordReader> readers = new ArrayList<>(heap);
+        if (reader != null) {
+            readers.add(reader);
+        }
+        for (RecordReader toClose : readers) {
+            try {
+                toClose.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * @return a new, empty run file in the temporary directory
+     * @throws IOException if the file cannot be created
+     */
+    private Path createRunFile() throws IOException {
+        return Files.createTempFile(this.tempDirectory, "run", ".tmp");
+    }
+
+    /**
+     * A record held in the run generation heap, along with the run it belongs to.
+     */
+    private static class HeapRecord {
+        /** The run this record will be written to. */
+        int run;
+
+        /** The contents of the record. */
+        final byte[] bytes;
+
+        /**
+         * @param run the run this record will be written to
+         * @param bytes the contents of the record
+         */
+        HeapRecord(int run, byte[] bytes) {
+            this.run = run;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Reads fixed-width records from a file through a buffered FileChannel.
+     */
+    private class RecordReader implements AutoCloseable {
+        /** The channel records are read from. */
+        private final FileChannel channel;
+
+        /** The buffer of records read from the channel but not yet returned. */
+        private final ByteBuffer buffer;
+
+        /** The record most recently read by advance(). */
+        final byte[] current;
+
+        /**
+         * Opens the given file with the default buffer size.
+         *
+         * @param file file of fixed-width records
+         * @throws IOException if the file cannot be opened, or its length is not a multiple of
+         * the record width
+         */
+        RecordReader(Path file) throws IOException {
+            this(file, bufferSize);
+        }
+
+        /**
+         * Opens the given file with the given buffer size.
+         *
+         * @param file file of fixed-width records
+         * @param capacity size of the buffer, a multiple of the record width
+         * @throws IOException if the file cannot be opened, or its length is not a multiple of
+         * the record width
+         */
+        RecordReader(Path file, int capacity) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            if (this.channel.size() % recordWidth != 0) {
+                this.channel.close();
+                throw new IOException("Length of " + file + " is not a multiple of the record " +
+                        "width " + recordWidth);
+            }
+            this.buffer = ByteBuffer.allocateDirect(capacity);
+            this.buffer.flip();
+            this.current = new byte[recordWidth];
+        }
+
+        /**
+         * Reads the next record into the given array.
+         *
+         * @param record array of recordWidth bytes to read into
+         * @return false if there are no records left
+         * @throws IOException if the file cannot be read
+         */
+        boolean read(byte[] record) throws IOException {
+            if (this.buffer.remaining() < recordWidth) {
+                this.buffer.compact();
+                while (this.buffer.hasRemaining() && this.channel.read(this.buffer) >= 0) {
+                    // Fill the buffer as far as the file allows
+                }
+                this.buffer.flip();
+                if (this.buffer.remaining() < recordWidth) {
+                    return false;
+                }
+            }
+            this.buffer.get(record);
+            return true;
+        }
+
+        /**
+         * Reads the next record into current.
+         *
+         * @return false if there are no records left
+         * @throws IOException if the file cannot be read
+         */
+        boolean advance() throws IOException {
+            return this.read(this.current);
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Writes fixed-width records to a file through a buffered FileChannel.
+     */
+    private class RecordWriter implements AutoCloseable {
+        /** The channel records are written to. */
+        private final FileChannel channel;
+
+        /** The buffer of records not yet written to the channel. */
+        private final ByteBuffer buffer;
+
+        /**
+         * Creates or truncates the given file for writing.
+         *
+         * @param file file to write records to
+         * @throws IOException if the file cannot be opened
+         */
+        RecordWriter(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        /**
+         * Writes the given record.
+         *
+         * @param record array of recordWidth bytes to write
+         * @throws IOException if the file cannot be written
+         */
+        void write(byte[] record) throws IOException {
+            if (this.buffer.remaining() < recordWidth) {
+                this.flush();
+            }
+            this.buffer.put(record);
+        }
+
+        /**
+         * Writes all buffered records to the channel.
+         *
+         * @throws IOException if the file cannot be written
+         */
+        private void flush() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                this.flush();
+            } finally {
+                this.channel.close();
+            }
+        }
+    }
+}
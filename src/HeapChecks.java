@@ -0,0 +1,228 @@
+import java.util.Comparator;
+
+/**
+ * Checks of the heap invariants of implicit, array-encoded heaps, without building a tree.
+ *
+ * Each check is a single allocation-free scan of the array, in level order, which stops at the
+ * first violation. The isX methods report whether the invariant holds, and the matching
+ * firstXViolation methods report the position of the first node (in level order) that violates
+ * it against its parent or grandparent, or -1 if there is none.
+ */
+public class HeapChecks {
+
+    /**
+     * Determines whether the first size values of the given array, in level order, form a
+     * strong binary max heap: each value is smaller than its parent, and the sum of each value
+     * and its parent is smaller than its grandparent. Sums are computed with longs, so values
+     * near the int limits cannot overflow.
+     *
+     * Let n denote the given size.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param heap values in level order (the children of position i are at 2i + 1 and 2i + 2)
+     * @param size number of values, from index 0, in the heap
+     * @return true if they form a strong heap
+     * @throws IllegalArgumentException if size is negative or greater than the array's length
+     */
+    public static boolean isStrongHeap(int[] heap, int size) {
+        return firstStrongHeapViolation(heap, size) < 0;
+    }
+
+    /**
+     * Finds the first position, in level order, whose value is not smaller than its parent, or
+     * whose sum with its parent is not smaller than its grandparent.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param heap values in level order (the children of position i are at 2i + 1 and 2i + 2)
+     * @param size number of values, from index 0, in the heap
+     * @return the first violating position, or -1 if the values form a strong heap
+     * @throws IllegalArgumentException if size is negative or greater than the array's length
+     */
+    public static int firstStrongHeapViolation(int[] heap, int size) {
+        checkSize(heap.length, size);
+        // The children of the root have no grandparent
+        for (int position = 1; position < Math.min(size, 3); position++) {
+            if (heap[position] >= heap[0]) {
+                return position;
+            }
+        }
+        for (int position = 3; position < size; position++) {
+            int parent = (position - 1) >>> 1;
+            long value = heap[position];
+            long parentValue = heap[parent];
+            if (value >= parentValue | value + parentValue >= heap[(parent - 1) >>> 1]) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Determines whether the given array, in level order, forms a max heap of the given arity:
+     * no value is greater than its parent.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param heap values in level order (the children of position i are at positions
+     *             arity * i + 1 to arity * i + arity)
+     * @param arity number of children of each internal node
+     * @return true if the values form a max heap
+     * @throws IllegalArgumentException if arity is not positive
+     */
+    public static boolean isMaxHeap(int[] heap, int arity) {
+        return firstMaxHeapViolation(heap, heap.length, arity) < 0;
+    }
+
+    /**
+     * Determines whether the first size values of the given array, in level order, form a max
+     * heap of the given arity: no value is greater than its parent.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param heap values in level order (the children of position i are at positions
+     *             arity * i + 1 to arity * i + arity)
+     * @param size number of values, from index 0, in the heap
+     * @param arity number of children of each internal node
+     * @return true if the values form a max heap
+     * @throws IllegalArgumentException if size is negative or greater than the array's length,
+     * or arity is not positive
+     */
+    public static boolean isMaxHeap(int[] heap, int size, int arity) {
+        return firstMaxHeapViolation(heap, size, arity) < 0;
+    }
+
+    /**
+     * Finds the first position, in level order, whose value is greater than its parent's.
+     *
+     * The scan runs over parents rather than children, so each parent's value is read once
+     * and no division is needed to find it.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param heap values in level order (the children of position i are at positions
+     *             arity * i + 1 to arity * i + arity)
+     * @param size number of values, from index 0, in the heap
+     * @param arity number of children of each internal node
+     * @return the first violating position, or -1 if the values form a max heap
+     * @throws IllegalArgumentException if size is negative or greater than the array's length,
+     * or arity is not positive
+     */
+    public static int firstMaxHeapViolation(int[] heap, int size, int arity) {
+        checkSize(heap.length, size);
+        checkArity(arity);
+        int child = 1;
+        for (int parent = 0; child < size; parent++) {
+            int parentValue = heap[parent];
+            int lastChild = (int) Math.min((long) child + arity, size);
+            for (; child < lastChild; child++) {
+                if (heap[child] > parentValue) {
+                    return child;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Determines whether the first size elements of the given array form a quaternary max heap
+     * in the layout of QuaternaryHeapsort, with respect to the natural ordering.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param heap elements in level order (the children of position i are at positions 4i + 1
+     *             to 4i + 4)
+     * @param size number of elements, from index 0, in the heap
+     * @return true if no element is greater than its parent
+     * @throws IllegalArgumentException if size is negative or greater than the array's length
+     */
+    public static <T extends Comparable<T>> boolean isQuaternaryHeap(T[] heap, int size) {
+        return firstQuaternaryHeapViolation(heap, size, Comparator.naturalOrder()) < 0;
+    }
+
+    /**
+     * Determines whether the first size elements of the given array form a quaternary max heap
+     * in the layout of QuaternaryHeapsort, with respect to the given comparator.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param heap elements in level order (the children of position i are at positions 4i + 1
+     *             to 4i + 4)
+     * @param size number of elements, from index 0, in the heap
+     * @param comparator ordering of the heap; the greatest element belongs at index 0
+     * @return true if no element is greater than its parent
+     * @throws IllegalArgumentException if size is negative or greater than the array's length
+     */
+    public static <T> boolean isQuaternaryHeap(T[] heap, int size,
+            Comparator<? super T> comparator) {
+        return firstQuaternaryHeapViolation(heap, size, comparator) < 0;
+    }
+
+    /**
+     * Finds the first position, in level order, whose element is greater than its parent with
+     * respect to the given comparator, in the layout of QuaternaryHeapsort.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param heap elements in level order (the children of position i are at positions 4i + 1
+     *             to 4i + 4)
+     * @param size number of elements, from index 0, in the heap
+     * @param comparator ordering of the heap; the greatest element belongs at index 0
+     * @return the first violating position, or -1 if the elements form a quaternary max heap
+     * @throws IllegalArgumentException if size is negative or greater than the array's length
+     */
+    public static <T> int firstQuaternaryHeapViolation(T[] heap, int size,
+            Comparator<? super T> comparator) {
+        checkSize(heap.length, size);
+        for (int parent = 0; parent <= QuaternaryHeapsort.lastInternal(size); parent++) {
+            T parentElement = heap[parent];
+            int firstChild = QuaternaryHeapsort.farLeft(parent);
+            int lastChild = (int) Math.min(firstChild + 3L, size - 1L);
+            for (int child = firstChild; child <= lastChild; child++) {
+                if (comparator.compare(heap[child], parentElement) > 0) {
+                    return child;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param length length of the array holding the heap
+     * @param size number of values, from index 0, in the heap
+     * @throws IllegalArgumentException if size is negative or greater than length
+     */
+    private static void checkSize(int length, int size) {
+        if (size < 0 || size > length) {
+            throw new IllegalArgumentException("Size " + size + " is outside array of length " +
+                    length);
+        }
+    }
+
+    /**
+     * @param arity number of children of each internal node
+     * @throws IllegalArgumentException if arity is not positive
+     */
+    private static void checkArity(int arity) {
+        if (arity <= 0) {
+            throw new IllegalArgumentException("Arity must be positive: " + arity);
+        }
+    }
+}
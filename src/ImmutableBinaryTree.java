@@ -0,0 +1,447 @@
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * An immutable binary tree whose nodes are hash-consed: every node is created through a
+ * Factory, which returns the same canonical node whenever it is asked for a node with an equal
+ * value and the same children. Identical subtrees are therefore stored once, however often
+ * they occur, and two trees from the same factory are equal exactly when they are the same
+ * node.
+ *
+ * Nodes cannot be changed. Instead, the factory's update operations return a new root that
+ * shares every subtree off the path to the change with the old one, copying (or finding) only
+ * the nodes on that path.
+ *
+ * Each node holds the same structural fingerprint that BinaryTree.fingerprint computes for an
+ * equal pointer-based tree, fixed when the node is created, and the number of nodes of its
+ * subtree (counting shared subtrees once per occurrence).
+ *
+ * @param <E> the type of the tree's elements
+ */
+public final class ImmutableBinaryTree<E> {
+    private final E value; // the element at this node
+    private final ImmutableBinaryTree<E> left; // the left child (subtree)
+    private final ImmutableBinaryTree<E> right; // the right child (subtree)
+    private final long fingerprint; // the structural fingerprint of this subtree
+    private final long size; // the number of nodes of this subtree
+
+    /**
+     * @param value element to store at this node, not null
+     * @param left left subtree, or null
+     * @param right right subtree, or null
+     * @param fingerprint fingerprint of the subtree
+     */
+    private ImmutableBinaryTree(E value, ImmutableBinaryTree<E> left,
+            ImmutableBinaryTree<E> right, long fingerprint) {
+        this.value = value;
+        this.left = left;
+        this.right = right;
+        this.fingerprint = fingerprint;
+        this.size = 1 + sizeOf(left) + sizeOf(right);
+    }
+
+    /**
+     * @return value stored at this node
+     */
+    public E getValue() {
+        return this.value;
+    }
+
+    /**
+     * @return the left child subtree of this node, or null
+     */
+    public ImmutableBinaryTree<E> getLeft() {
+        return this.left;
+    }
+
+    /**
+     * @return the right child subtree of this node, or null
+     */
+    public ImmutableBinaryTree<E> getRight() {
+        return this.right;
+    }
+
+    /**
+     * @return whether this is a leaf node, i.e. whether it has no children
+     */
+    public boolean isLeaf() {
+        return this.left == null && this.right == null;
+    }
+
+    /**
+     * @return the number of nodes of this subtree, counting each occurrence of a shared
+     * subtree
+     */
+    public long size() {
+        return this.size;
+    }
+
+    /**
+     * @return the structural fingerprint of this subtree, equal to BinaryTree.fingerprint of
+     * an equal pointer-based tree
+     */
+    public long fingerprint() {
+        return this.fingerprint;
+    }
+
+    /**
+     * Creates a pointer-based copy of this tree, with a separate node for every occurrence of
+     * a shared subtree.
+     *
+     * Worst case runtime complexity: O(size())
+     *
+     * Worst case space complexity: O(size())
+     *
+     * @return the root of the copy
+     */
+    public BinaryTree<E> toBinaryTree() {
+        BinaryTree<E> root = new BinaryTree<>(this.value);
+        // Pairs of an immutable node and its copy, whose children are still to be copied
+        ArrayDeque<ImmutableBinaryTree<E>> originals = new ArrayDeque<>();
+        ArrayDeque<BinaryTree<E>> copies = new ArrayDeque<>();
+        originals.push(this);
+        copies.push(root);
+        while (!originals.isEmpty()) {
+            ImmutableBinaryTree<E> original = originals.pop();
+            BinaryTree<E> copy = copies.pop();
+            if (original.left != null) {
+                BinaryTree<E> leftCopy = new BinaryTree<>(original.left.value);
+                copy.setLeft(leftCopy);
+                originals.push(original.left);
+                copies.push(leftCopy);
+            }
+            if (original.right != null) {
+                BinaryTree<E> rightCopy = new BinaryTree<>(original.right.value);
+                copy.setRight(rightCopy);
+                originals.push(original.right);
+                copies.push(rightCopy);
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Determines whether the given object is an immutable tree of the same shape as this one,
+     * with equal values at the same positions. Trees from the same factory are equal only if
+     * they are the same node, which is checked first; trees from different factories are
+     * compared by fingerprint, then walked in step, skipping subtrees that are the same node.
+     *
+     * Worst case runtime complexity: O(n), and O(1) for trees from the same factory or with
+     * different fingerprints
+     *
+     * Worst case space complexity: O(n)
+     *
+     * @param other object to compare with
+     * @return true if other is an equal immutable tree
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ImmutableBinaryTree)) {
+            return false;
+        }
+        ArrayDeque<ImmutableBinaryTree<?>> stack = new ArrayDeque<>();
+        stack.push(this);
+        stack.push((ImmutableBinaryTree<?>) other);
+        while (!stack.isEmpty()) {
+            ImmutableBinaryTree<?> second = stack.pop();
+            ImmutableBinaryTree<?> first = stack.pop();
+            if (first == second) {
+                continue;
+            }
+            if (first.fingerprint != second.fingerprint || first.size != second.size ||
+                    !first.value.equals(second.value) ||
+                    (first.left == null) != (second.left == null) ||
+                    (first.right == null) != (second.right == null)) {
+                return false;
+            }
+            if (first.left != null) {
+                stack.push(first.left);
+                stack.push(second.left);
+            }
+            if (first.right != null) {
+                stack.push(first.right);
+                stack.push(second.right);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return a hash code derived from the fingerprint of this tree, equal to the hash code of
+     * an equal BinaryTree
+     */
+    @Override
+    public int hashCode() {
+        return (int) (this.fingerprint ^ (this.fingerprint >>> 32));
+    }
+
+    /**
+     * @param node a node, or null
+     * @return the number of nodes of its subtree, or 0 for null
+     */
+    private static long sizeOf(ImmutableBinaryTree<?> node) {
+        return (node == null) ? 0 : node.size;
+    }
+
+    /**
+     * @param node a node, or null
+     * @return its fingerprint, or 0 for null (as BinaryTree uses for a missing child)
+     */
+    private static long fingerprintOf(ImmutableBinaryTree<?> node) {
+        return (node == null) ? 0 : node.fingerprint;
+    }
+
+    /**
+     * Creates and interns the nodes of immutable trees. Nodes from one factory should only be
+     * combined with nodes from the same factory, so that their children are canonical.
+     *
+     * The canonical nodes are kept in a hashtable, using linear probing, which is doubled in
+     * size whenever it becomes half full. The table holds every node the factory has created
+     * for as long as the factory is reachable, so a factory should be discarded along with the
+     * trees built by it. A factory is not thread-safe.
+     *
+     * @param <E> the type of the trees' elements
+     */
+    public static class Factory<E> {
+        /** The initial capacity of the hashtable; a power of two. */
+        private static final int INITIAL_CAPACITY = 16;
+
+        /** The canonical nodes, by the hash of their value and children. */
+        private ImmutableBinaryTree<E>[] table;
+
+        /** The number of canonical nodes. */
+        private int count;
+
+        /**
+         * Creates a new factory, with no canonical nodes.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public Factory() {
+            this.table = new ImmutableBinaryTree[INITIAL_CAPACITY];
+            this.count = 0;
+        }
+
+        /**
+         * @return the number of distinct nodes this factory has created
+         */
+        public int size() {
+            return this.count;
+        }
+
+        /**
+         * @param value element to store at the node, cannot be null
+         * @return the canonical leaf with the given value
+         */
+        public ImmutableBinaryTree<E> leaf(E value) {
+            return this.node(value, null, null);
+        }
+
+        /**
+         * Returns the canonical node with the given value and children, creating it if this
+         * factory has not done so before.
+         *
+         * Worst case runtime complexity: O(1) expected, amortised
+         *
+         * @param value element to store at the node, cannot be null
+         * @param left left subtree, from this factory, or null
+         * @param right right subtree, from this factory, or null
+         * @return the canonical node
+         * @throws NullPointerException if value is null
+         */
+        public ImmutableBinaryTree<E> node(E value, ImmutableBinaryTree<E> left,
+                ImmutableBinaryTree<E> right) {
+            Objects.requireNonNull(value, "ImmutableBinaryTree does not permit null values");
+            long fingerprint = BinaryTree.combine(value.hashCode(), fingerprintOf(left),
+                    fingerprintOf(right));
+            int mask = this.table.length - 1;
+            int slot = (int) fingerprint & mask;
+            for (ImmutableBinaryTree<E> existing; (existing = this.table[slot]) != null;
+                    slot = (slot + 1) & mask) {
+                if (existing.fingerprint == fingerprint && existing.left == left &&
+                        existing.right == right && existing.value.equals(value)) {
+                    return existing;
+                }
+            }
+            ImmutableBinaryTree<E> created =
+                    new ImmutableBinaryTree<>(value, left, right, fingerprint);
+            this.table[slot] = created;
+            if (++this.count > this.table.length / 2) {
+                this.resize();
+            }
+            return created;
+        }
+
+        /**
+         * Interns a copy of the given pointer-based tree, so that identical subtrees of it are
+         * stored once.
+         *
+         * Worst case runtime complexity: O(n) expected
+         *
+         * Worst case space complexity: O(n)
+         *
+         * @param root root of a binary tree, or null
+         * @return the canonical root of the copy, or null for an empty tree
+         */
+        public ImmutableBinaryTree<E> fromBinaryTree(BinaryTree<E> root) {
+            if (root == null) {
+                return null;
+            }
+            // Post-order, with an explicit stack holding the path to the next node, the depths
+            // on it of the nodes whose left subtrees are being traversed, and the interned
+            // subtrees of visited nodes whose parents are still to be visited
+            ArrayDeque<BinaryTree<E>> path = new ArrayDeque<>();
+            BitSet inLeftSubtree = new BitSet();
+            ArrayDeque<ImmutableBinaryTree<E>> interned = new ArrayDeque<>();
+            pushLeafPath(path, inLeftSubtree, root);
+            while (!path.isEmpty()) {
+                BinaryTree<E> current = path.pop();
+                ImmutableBinaryTree<E> right =
+                        (current.getRight() == null) ? null : interned.pop();
+                ImmutableBinaryTree<E> left = (current.getLeft() == null) ? null : interned.pop();
+                interned.push(this.node(current.getValue(), left, right));
+
+                int parentDepth = path.size() - 1;
+                if (parentDepth >= 0 && inLeftSubtree.get(parentDepth)) {
+                    inLeftSubtree.clear(parentDepth);
+                    BinaryTree<E> parent = path.peek();
+                    if (parent.getRight() == current) {
+                        // One node is both children, so its copy is too
+                        interned.push(interned.peek());
+                    } else {
+                        pushLeafPath(path, inLeftSubtree, parent.getRight());
+                    }
+                }
+            }
+            return interned.pop();
+        }
+
+        /**
+         * Returns the root of a tree equal to the given one, except that the subtree at the
+         * given path is replaced. Only the nodes on the path are copied (or found, if they
+         * already exist); every other subtree is shared with the given tree.
+         *
+         * The path is a sequence of 'L' and 'R' characters, each choosing the left or right
+         * child, starting from the root. Every node on the path must exist, except that the
+         * last step may lead to a missing child, to add a subtree there.
+         *
+         * Worst case runtime complexity: O(d) expected, where d is the length of the path
+         *
+         * Worst case space complexity: O(d)
+         *
+         * @param root root of a tree from this factory, cannot be null
+         * @param path path from root to the subtree to replace
+         * @param subtree replacement subtree, from this factory, or null to remove the subtree
+         * @return the root of the updated tree, or null if the whole tree was removed
+         * @throws IllegalArgumentException if the path contains another character, or passes
+         * through a missing node
+         */
+        public ImmutableBinaryTree<E> withSubtree(ImmutableBinaryTree<E> root,
+                CharSequence path, ImmutableBinaryTree<E> subtree) {
+            // The nodes on the path, above the subtree being replaced
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            ImmutableBinaryTree<E>[] ancestors = new ImmutableBinaryTree[path.length()];
+            ImmutableBinaryTree<E> current = root;
+            for (int step = 0; step < path.length(); step++) {
+                if (current == null) {
+                    throw new IllegalArgumentException("Path " + path + " passes through a " +
+                            "missing node after " + step + " steps");
+                }
+                ancestors[step] = current;
+                current = isLeftStep(path, step) ? current.left : current.right;
+            }
+
+            ImmutableBinaryTree<E> replacement = subtree;
+            for (int step = path.length() - 1; step >= 0; step--) {
+                ImmutableBinaryTree<E> ancestor = ancestors[step];
+                replacement = isLeftStep(path, step) ?
+                        this.node(ancestor.value, replacement, ancestor.right) :
+                        this.node(ancestor.value, ancestor.left, replacement);
+            }
+            return replacement;
+        }
+
+        /**
+         * Returns the root of a tree equal to the given one, except that the node at the given
+         * path has the given value. Only the nodes on the path are copied (or found).
+         *
+         * Worst case runtime complexity: O(d) expected, where d is the length of the path
+         *
+         * Worst case space complexity: O(d)
+         *
+         * @param root root of a tree from this factory, cannot be null
+         * @param path path from root to the node, as for withSubtree
+         * @param value new value of the node, cannot be null
+         * @return the root of the updated tree
+         * @throws IllegalArgumentException if the path contains another character, or does
+         * not lead to a node
+         */
+        public ImmutableBinaryTree<E> withValue(ImmutableBinaryTree<E> root, CharSequence path,
+                E value) {
+            ImmutableBinaryTree<E> target = root;
+            for (int step = 0; step < path.length() && target != null; step++) {
+                target = isLeftStep(path, step) ? target.left : target.right;
+            }
+            if (target == null) {
+                throw new IllegalArgumentException("Path " + path + " does not lead to a node");
+            }
+            return this.withSubtree(root, path, this.node(value, target.left, target.right));
+        }
+
+        /**
+         * Doubles the capacity of the hashtable, reinserting every canonical node.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private void resize() {
+            ImmutableBinaryTree<E>[] old = this.table;
+            this.table = new ImmutableBinaryTree[old.length * 2];
+            int mask = this.table.length - 1;
+            for (ImmutableBinaryTree<E> node : old) {
+                if (node != null) {
+                    int slot = (int) node.fingerprint & mask;
+                    while (this.table[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    this.table[slot] = node;
+                }
+            }
+        }
+
+        /**
+         * @param path path of 'L' and 'R' characters
+         * @param step index of a step of the path
+         * @return true if the step goes to the left child, or false for the right
+         * @throws IllegalArgumentException if the step is neither 'L' nor 'R'
+         */
+        private static boolean isLeftStep(CharSequence path, int step) {
+            char direction = path.charAt(step);
+            if (direction != 'L' && direction != 'R') {
+                throw new IllegalArgumentException("Path " + path + " has step " + direction +
+                        ", rather than L or R");
+            }
+            return direction == 'L';
+        }
+
+        /**
+         * Pushes the path from the given node to the first leaf reached by preferring left
+         * children, recording which of the pushed nodes continue to their left children.
+         *
+         * @param path stack to push onto
+         * @param inLeftSubtree depths on the path of the nodes whose left subtrees are being
+         * traversed
+         * @param node node, or null
+         * @param <E> the type of the tree's elements
+         */
+        private static <E> void pushLeafPath(ArrayDeque<BinaryTree<E>> path, BitSet inLeftSubtree,
+                BinaryTree<E> node) {
+            while (node != null) {
+                inLeftSubtree.set(path.size(), node.getLeft() != null);
+                path.push(node);
+                node = (node.getLeft() != null) ? node.getLeft() : node.getRight();
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+import java.util.ArrayDeque;
+
+/**
+ * Strong heap validation that caches its result for every subtree, used by
+ * StrongHeap.isStrongHeapIncremental.
+ *
+ * The summary of each subtree is the number of its nodes if it is a complete strong heap, or
+ * INVALID if it is not. A node's summary depends only on its children's summaries and on the
+ * values of its children and grandchildren (see StrongHeap.isComplete and
+ * StrongHeap.satisfiesStrongMaxHeapProperty). Summaries are cached in the nodes themselves, and
+ * BinaryTree clears the caches of a node and its ancestors whenever one of the node's children
+ * is set, which covers every summary the edit could change.
+ *
+ * A validation therefore only recomputes the summaries of nodes without one: after a single
+ * edit, those on the path from the edited node to the root. They are computed in post-order
+ * with an explicit stack, so deep or unbalanced trees cannot overflow the call stack.
+ */
+class IncrementalStrongHeapValidator {
+    /** The summary of a subtree that is not a complete strong heap. */
+    private static final long INVALID = -1;
+
+    /**
+     * Determines whether the binary tree with the given root node is a strong heap, reusing
+     * the cached summaries of unchanged subtrees.
+     *
+     * Let u denote the number of nodes without a cached summary: n for the first validation of
+     * a tree, and O(d) after an edit at depth d.
+     *
+     * Worst case runtime complexity: O(u)
+     *
+     * Worst case space complexity: O(u)
+     *
+     * @param root root of a binary tree, cannot be null
+     * @return true if the tree is a strong heap, otherwise false
+     */
+    static boolean isStrongHeap(BinaryTree<Integer> root) {
+        return summarise(root) != INVALID;
+    }
+
+    /**
+     * Computes, and caches, the summary of every uncached node of the given subtree, children
+     * before parents.
+     *
+     * @param root root of a subtree, cannot be null
+     * @return the summary of root
+     */
+    private static long summarise(BinaryTree<Integer> root) {
+        if (root.cachedSummary != BinaryTree.UNCACHED) {
+            return root.cachedSummary;
+        }
+        ArrayDeque<BinaryTree<Integer>> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            BinaryTree<Integer> current = stack.peek();
+            BinaryTree<Integer> left = current.getLeft();
+            BinaryTree<Integer> right = current.getRight();
+            // Every descendant of a cached node is cached, so cached children are finished
+            if (left != null && left.cachedSummary == BinaryTree.UNCACHED) {
+                stack.push(left);
+            } else if (right != null && right.cachedSummary == BinaryTree.UNCACHED) {
+                stack.push(right);
+            } else {
+                current.cachedSummary = summary(current, left, right);
+                stack.pop();
+            }
+        }
+        return root.cachedSummary;
+    }
+
+    /**
+     * @param node node whose children's summaries are cached
+     * @param left left child of node, or null
+     * @param right right child of node, or null
+     * @return the summary of node
+     */
+    private static long summary(BinaryTree<Integer> node, BinaryTree<Integer> left,
+            BinaryTree<Integer> right) {
+        long leftSize = (left == null) ? 0 : left.cachedSummary;
+        long rightSize = (right == null) ? 0 : right.cachedSummary;
+        if (leftSize == INVALID || rightSize == INVALID ||
+                !StrongHeap.isComplete(leftSize, rightSize) ||
+                !StrongHeap.satisfiesStrongMaxHeapProperty(node, left) ||
+                !StrongHeap.satisfiesStrongMaxHeapProperty(node, right)) {
+            return INVALID;
+        }
+        return leftSize + rightSize + 1;
+    }
+}
@@ -0,0 +1,591 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+
+/**
+ * An indexed min priority queue backed by a quaternary (4-ary) heap.
+ *
+ * Each item in the queue is identified by an integer handle between 0 and (capacity - 1), such
+ * as a vertex number in a graph search. Alongside the heap of handles, the position of every
+ * handle within the heap is recorded, so that the priority of an item already in the queue can
+ * be changed, or the item removed, in O(log n) time without searching for it. This avoids the
+ * stale duplicate entries that build up when a plain priority queue is used for Dijkstra's or A*.
+ *
+ * The heap uses the same layout as QuaternaryHeapsort (the children of position i are at
+ * positions 4i + 1 to 4i + 4), and its sift operations follow quaternaryDownheap and
+ * quaternaryUpheap, but also keep the position of each moved handle up to date.
+ *
+ * Priorities are held by one of the concrete variants: OfObject (with a Comparator), OfDouble
+ * or OfLong. The primitive variants store priorities in a primitive array indexed by handle, so
+ * no boxing takes place.
+ */
+public abstract class IndexedQuaternaryHeap {
+    /** Position of a handle that is not in the queue. */
+    private static final int ABSENT = -1;
+
+    /** The handles in the heap, in positions 0 to (size - 1). */
+    private final int[] heap;
+
+    /** The position of each handle within heap, or ABSENT if it is not in the queue. */
+    private final int[] positions;
+
+    /** The number of handles in the queue. */
+    private int size;
+
+    /**
+     * Creates a new, empty queue that accepts the handles 0 to (capacity - 1).
+     *
+     * @param capacity number of handles
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    IndexedQuaternaryHeap(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative: " + capacity);
+        }
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(this.positions, ABSENT);
+        this.size = 0;
+    }
+
+    /**
+     * Compares the priorities of the two given handles.
+     *
+     * @param handle1 first handle
+     * @param handle2 second handle
+     * @return true if the priority of handle1 is strictly less than that of handle2
+     */
+    abstract boolean less(int handle1, int handle2);
+
+    /**
+     * Called when the given handle leaves the queue, so that variants may release its priority.
+     *
+     * @param handle handle that was removed
+     */
+    void release(int handle) {
+        // Primitive priorities need not be released
+    }
+
+    /**
+     * @return the number of handles this queue accepts
+     */
+    public int capacity() {
+        return this.heap.length;
+    }
+
+    /**
+     * @return the number of handles in the queue
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return true if there are no handles in the queue
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Returns whether the given handle is in the queue.
+     *
+     * Worst case runtime complexity: O(1)
+     *
+     * @param handle handle to check
+     * @return true if the handle is in the queue
+     * @throws IndexOutOfBoundsException if handle is not between 0 and (capacity - 1)
+     */
+    public boolean contains(int handle) {
+        return this.positions[this.checkHandle(handle)] != ABSENT;
+    }
+
+    /**
+     * Returns, but does not remove, the handle with the least priority.
+     *
+     * Worst case runtime complexity: O(1)
+     *
+     * @return the handle with the least priority
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public int peek() {
+        if (this.size == 0) {
+            throw new NoSuchElementException("Queue is empty.");
+        }
+        return this.heap[0];
+    }
+
+    /**
+     * Removes and returns the handle with the least priority.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * @return the handle with the least priority
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public int poll() {
+        int head = this.peek();
+        this.removeAt(0);
+        return head;
+    }
+
+    /**
+     * Removes the given handle from the queue.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * @param handle handle to remove
+     * @throws IndexOutOfBoundsException if handle is not between 0 and (capacity - 1)
+     * @throws NoSuchElementException if the handle is not in the queue
+     */
+    public void remove(int handle) {
+        this.removeAt(this.positionOf(handle));
+    }
+
+    /**
+     * Removes all handles from the queue.
+     *
+     * Worst case runtime complexity: O(n)
+     */
+    public void clear() {
+        for (int i = 0; i < this.size; i++) {
+            this.positions[this.heap[i]] = ABSENT;
+            this.release(this.heap[i]);
+        }
+        this.size = 0;
+    }
+
+    /**
+     * Adds the given handle, whose priority has already been recorded, to the queue.
+     *
+     * @param handle handle to add
+     * @throws IllegalArgumentException if the handle is already in the queue
+     */
+    final void add(int handle) {
+        if (this.positions[handle] != ABSENT) {
+            throw new IllegalArgumentException("Handle " + handle + " is already in the queue");
+        }
+        this.heap[this.size] = handle;
+        this.positions[handle] = this.size;
+        this.size++;
+        this.upheap(this.size - 1);
+    }
+
+    /**
+     * Restores the heap order after the priority of the given handle decreased.
+     *
+     * @param handle handle in the queue
+     */
+    final void decreased(int handle) {
+        this.upheap(this.positions[handle]);
+    }
+
+    /**
+     * Restores the heap order after the priority of the given handle increased.
+     *
+     * @param handle handle in the queue
+     */
+    final void increased(int handle) {
+        this.downheap(this.positions[handle]);
+    }
+
+    /**
+     * Returns the heap position of the given handle.
+     *
+     * @param handle handle to find
+     * @return position of the handle within heap
+     * @throws IndexOutOfBoundsException if handle is not between 0 and (capacity - 1)
+     * @throws NoSuchElementException if the handle is not in the queue
+     */
+    final int positionOf(int handle) {
+        int position = this.positions[this.checkHandle(handle)];
+        if (position == ABSENT) {
+            throw new NoSuchElementException("Handle " + handle + " is not in the queue");
+        }
+        return position;
+    }
+
+    /**
+     * Checks that the given handle is accepted by this queue.
+     *
+     * @param handle handle to check
+     * @return the handle
+     * @throws IndexOutOfBoundsException if handle is not between 0 and (capacity - 1)
+     */
+    final int checkHandle(int handle) {
+        if (handle < 0 || handle >= this.heap.length) {
+            throw new IndexOutOfBoundsException("Handle " + handle + " is not between 0 and " +
+                    (this.heap.length - 1));
+        }
+        return handle;
+    }
+
+    /**
+     * Removes the handle at the given heap position, replacing it with the last handle and
+     * restoring the heap order.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * @param position position of the handle to remove
+     */
+    private void removeAt(int position) {
+        int removed = this.heap[position];
+        this.size--;
+        this.positions[removed] = ABSENT;
+        this.release(removed);
+        if (position == this.size) {
+            return;
+        }
+        int moved = this.heap[this.size];
+        this.heap[position] = moved;
+        this.positions[moved] = position;
+        this.downheap(position);
+        if (this.heap[position] == moved) {
+            // Did not move down, so it may need to move up instead
+            this.upheap(position);
+        }
+    }
+
+    /**
+     * Moves the handle at the given position up until its parent's priority is no greater.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * @param position position of the handle to sift
+     */
+    private void upheap(int position) {
+        int toSift = this.heap[position];
+        while (position > 0) {
+            int parentPosition = QuaternaryHeapsort.parent(position);
+
+            // Upheap complete
+            if (!this.less(toSift, this.heap[parentPosition])) {
+                break;
+            }
+            this.heap[position] = this.heap[parentPosition];
+            this.positions[this.heap[position]] = position;
+            position = parentPosition;
+        }
+        this.heap[position] = toSift;
+        this.positions[toSift] = position;
+    }
+
+    /**
+     * Moves the handle at the given position down until none of its children has a lesser
+     * priority.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * @param position position of the handle to sift
+     */
+    private void downheap(int position) {
+        int toSift = this.heap[position];
+        int farLeftPosition;
+        while ((farLeftPosition = QuaternaryHeapsort.farLeft(position)) < this.size) {
+            // Find the child with the least priority
+            int smallestChild = farLeftPosition;
+            int lastChild = Math.min(farLeftPosition + 3, this.size - 1);
+            for (int child = farLeftPosition + 1; child <= lastChild; child++) {
+                if (this.less(this.heap[child], this.heap[smallestChild])) {
+                    smallestChild = child;
+                }
+            }
+
+            // Downheap complete
+            if (!this.less(this.heap[smallestChild], toSift)) {
+                break;
+            }
+            this.heap[position] = this.heap[smallestChild];
+            this.positions[this.heap[position]] = position;
+            position = smallestChild;
+        }
+        this.heap[position] = toSift;
+        this.positions[toSift] = position;
+    }
+
+    /**
+     * An indexed quaternary heap whose priorities are objects, ordered by a Comparator.
+     *
+     * @param <T> type of priorities
+     */
+    public static class OfObject<T> extends IndexedQuaternaryHeap {
+        /** The priority of each handle in the queue, indexed by handle. */
+        private final Object[] priorities;
+
+        /** The ordering of priorities. */
+        private final Comparator<? super T> comparator;
+
+        /**
+         * Creates a new, empty queue that accepts the handles 0 to (capacity - 1).
+         *
+         * @param capacity number of handles
+         * @param comparator ordering of priorities
+         * @throws IllegalArgumentException if capacity is negative
+         */
+        public OfObject(int capacity, Comparator<? super T> comparator) {
+            super(capacity);
+            this.priorities = new Object[capacity];
+            this.comparator = comparator;
+        }
+
+        /**
+         * Adds the given handle to the queue with the given priority.
+         *
+         * Worst case runtime complexity: O(log n)
+         *
+         * @param handle handle to add
+         * @param priority priority of the handle
+         * @throws IndexOutOfBoundsException if handle is not between 0 and (capacity - 1)
+         * @throws IllegalArgumentException if the handle is already in the queue
+         */
+        public void insert(int handle, T priority) {
+            if (this.contains(handle)) {
+                throw new IllegalArgumentException("Handle " + handle + " is already in the queue");
+            }
+            this.priorities[handle] = priority;
+            this.add(handle);
+        }
+
+        /**
+         * Returns the priority of the given handle.
+         *
+         * @param handle handle in the queue
+         * @return its priority
+         * @throws NoSuchElementException if the handle is not in the queue
+         */
+        @SuppressWarnings("unchecked")
+        public T priority(int handle) {
+            this.positionOf(handle);
+            return (T) this.priorities[handle];
+        }
+
+        /**
+         * Lowers the priority of the given handle.
+         *
+         * Worst case runtime complexity: O(log n)
+         *
+         * @param handle handle in the queue
+         * @param priority new priority, no greater than the current one
+         * @throws NoSuchElementException if the handle is not in the queue
+         * @throws IllegalArgumentException if the new priority is greater than the current one
+         */
+        public void decreaseKey(int handle, T priority) {
+            if (this.comparator.compare(priority, this.priority(handle)) > 0) {
+                throw new IllegalArgumentException("New priority is greater than the current one");
+            }
+            this.priorities[handle] = priority;
+            this.decreased(handle);
+        }
+
+        /**
+         * Raises the priority of the given handle.
+         *
+         * Worst case runtime complexity: O(log n)
+         *
+         * @param handle handle in the queue
+         * @param priority new priority, no less than the current one
+         * @throws NoSuchElementException if the handle is not in the queue
+         * @throws IllegalArgumentException if the new priority is less than the current one
+         */
+        public void increaseKey(int handle, T priority) {
+            if (this.comparator.compare(priority, this.priority(handle)) < 0) {
+                throw new IllegalArgumentException("New priority is less than the current one");
+            }
+            this.priorities[handle] = priority;
+            this.increased(handle);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        boolean less(int handle1, int handle2) {
+            return this.comparator.compare((T) this.priorities[handle1],
+                    (T) this.priorities[handle2]) < 0;
+        }
+
+        @Override
+        void release(int handle) {
+            this.priorities[handle] = null;
+        }
+    }
+
+    /**
+     * An indexed quaternary heap whose priorities are primitive doubles, ordered as by
+     * Double.compare.
+     */
+    public static class OfDouble extends IndexedQuaternaryHeap {
+        /** The priority of each handle in the queue, indexed by handle. */
+        private final double[] priorities;
+
+        /**
+         * Creates a new, empty queue that accepts the handles 0 to (capacity - 1).
+         *
+         * @param capacity number of handles
+         * @throws IllegalArgumentException if capacity is negative
+         */
+        public OfDouble(int capacity) {
+            super(capacity);
+            this.priorities = new double[capacity];
+        }
+
+        /**
+         * Adds the given handle to the queue with the given priority.
+         *
+         * Worst case runtime complexity: O(log n)
+         *
+         * @param handle handle to add
+         * @param priority priority of the handle
+         * @throws IndexOutOfBoundsException if handle is not between 0 and (capacity - 1)
+         * @throws IllegalArgumentException if the handle is already in the queue
+         */
+        public void insert(int handle, double priority) {
+            if (this.contains(handle)) {
+                throw new IllegalArgumentException("Handle " + handle + " is already in the queue");
+            }
+            this.priorities[handle] = priority;
+            this.add(handle);
+        }
+
+        /**
+         * Returns the priority of the given handle.
+         *
+         * @param handle handle in the queue
+         * @return its priority
+         * @throws NoSuchElementException if the handle is not in the queue
+         */
+        public double priority(int handle) {
+            this.positionOf(handle);
+            return this.priorities[handle];
+        }
+
+        /**
+         * Lowers the priority of the given handle.
+         *
+         * Worst case runtime complexity: O(log n)
+         *
+         * @param handle handle in the queue
+         * @param priority new priority, no greater than the current one
+         * @throws NoSuchElementException if the handle is not in the queue
+         * @throws IllegalArgumentException if the new priority is greater than the current one
+         */
+        public void decreaseKey(int handle, double priority) {
+            if (Double.compare(priority, this.priority(handle)) > 0) {
+                throw new IllegalArgumentException("New priority is greater than the current one");
+            }
+            this.priorities[handle] = priority;
+            this.decreased(handle);
+        }
+
+        /**
+         * Raises the priority of the given handle.
+         *
+         * Worst case runtime complexity: O(log n)
+         *
+         * @param handle handle in the queue
+         * @param priority new priority, no less than the current one
+         * @throws NoSuchElementException if the handle is not in the queue
+         * @throws IllegalArgumentException if the new priority is less than the current one
+         */
+        public void increaseKey(int handle, double priority) {
+            if (Double.compare(priority, this.priority(handle)) < 0) {
+                throw new IllegalArgumentException("New priority is less than the current one");
+            }
+            this.priorities[handle] = priority;
+            this.increased(handle);
+        }
+
+        @Override
+        boolean less(int handle1, int handle2) {
+            return Double.compare(this.priorities[handle1], this.priorities[handle2]) < 0;
+        }
+    }
+
+    /**
+     * An indexed quaternary heap whose priorities are primitive longs.
+     */
+    public static class OfLong extends IndexedQuaternaryHeap {
+        /** The priority of each handle in the queue, indexed by handle. */
+        private final long[] priorities;
+
+        /**
+         * Creates a new, empty queue that accepts the handles 0 to (capacity - 1).
+         *
+         * @param capacity number of handles
+         * @throws IllegalArgumentException if capacity is negative
+         */
+        public OfLong(int capacity) {
+            super(capacity);
+            this.priorities = new long[capacity];
+        }
+
+        /**
+         * Adds the given handle to the queue with the given priority.
+         *
+         * Worst case runtime complexity: O(log n)
+         *
+         * @param handle handle to add
+         * @param priority priority of the handle
+         * @throws IndexOutOfBoundsException if handle is not between 0 and (capacity - 1)
+         * @throws IllegalArgumentException if the handle is already in the queue
+         */
+        public void insert(int handle, long priority) {
+            if (this.contains(handle)) {
+                throw new IllegalArgumentException("Handle " + handle + " is already in the queue");
+            }
+            this.priorities[handle] = priority;
+            this.add(handle);
+        }
+
+        /**
+         * Returns the priority of the given handle.
+         *
+         * @param handle handle in the queue
+         * @return its priority
+         * @throws NoSuchElementException if the handle is not in the queue
+         */
+        public long priority(int handle) {
+            this.positionOf(handle);
+            return this.priorities[handle];
+        }
+
+        /**
+         * Lowers the priority of the given handle.
+         *
+         * Worst case runtime complexity: O(log n)
+         *
+         * @param handle handle in the queue
+         * @param priority new priority, no greater than the current one
+         * @throws NoSuchElementException if the handle is not in the queue
+         * @throws IllegalArgumentException if the new priority is greater than the current one
+         */
+        public void decreaseKey(int handle, long priority) {
+            if (priority > this.priority(handle)) {
+                throw new IllegalArgumentException("New priority is greater than the current one");
+            }
+            this.priorities[handle] = priority;
+            this.decreased(handle);
+        }
+
+        /**
+         * Raises the priority of the given handle.
+         *
+         * Worst case runtime complexity: O(log n)
+         *
+         * @param handle handle in the queue
+         * @param priority new priority, no less than the current one
+         * @throws NoSuchElementException if the handle is not in the queue
+         * @throws IllegalArgumentException if the new priority is less than the current one
+         */
+        public void increaseKey(int handle, long priority) {
+            if (priority < this.priority(handle)) {
+                throw new IllegalArgumentException("New priority is less than the current one");
+            }
+            this.priorities[handle] = priority;
+            this.increased(handle);
+        }
+
+        @Override
+        boolean less(int handle1, int handle2) {
+            return this.priorities[handle1] < this.priorities[handle2];
+        }
+    }
+}
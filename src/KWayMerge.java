@@ -0,0 +1,453 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * An iterator over the merged contents of several sorted sources, such as sorted runs, sorted
+ * files or the outputs of several shards.
+ *
+ * A quaternary heap holds one cursor per non-empty source, ordered by the cursor's current
+ * head. Each call to next() returns the head of the cursor at the root, advances that cursor,
+ * and restores the heap order with QuaternaryHeapsort.quaternaryDownheap, so merging k sources
+ * costs O(log4 k) comparisons per element. Elements that compare equal are returned in the
+ * order of their sources (earliest source first), so the merge is stable.
+ *
+ * Iterator sources are read in batches into a buffer per source, and sorted arrays are read in
+ * place. Elements can also be taken in batches with nextBatch(), which avoids a call to
+ * hasNext() and next() per element.
+ *
+ * Each source must already be sorted by the merge's ordering; this is not checked. Primitive
+ * int and long arrays are merged without boxing by the OfInt and OfLong variants.
+ *
+ * @param <T> type of elements being merged
+ */
+public class KWayMerge<T> implements Iterator<T> {
+    /** The number of elements read from an iterator source at a time. */
+    static final int BATCH_SIZE = 64;
+
+    /** The cursors of the non-empty sources, as a quaternary heap with the least head first. */
+    private final Cursor<T>[] heap;
+
+    /** The number of cursors in the heap. */
+    private int size;
+
+    /** The ordering of cursors within the heap; the greatest cursor is the least head. */
+    private final Comparator<Cursor<T>> heapOrder;
+
+    /**
+     * Creates a merge of the given sources.
+     *
+     * @param cursors cursors over the sources, in source order
+     * @param comparator ordering of the sources
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private KWayMerge(List<Cursor<T>> cursors, Comparator<? super T> comparator) {
+        this.heap = (Cursor<T>[]) new Cursor[cursors.size()];
+        this.size = 0;
+        for (Cursor<T> cursor : cursors) {
+            if (cursor.advance()) {
+                this.heap[this.size++] = cursor;
+            }
+        }
+        this.heapOrder = (cursor1, cursor2) -> {
+            int comparison = comparator.compare(cursor2.head, cursor1.head);
+            return (comparison != 0) ? comparison : Integer.compare(cursor2.source, cursor1.source);
+        };
+        QuaternaryHeapsort.quaternaryHeapify(this.heap, this.size, this.heapOrder);
+    }
+
+    /**
+     * Creates a merge of the given sorted iterators, by their natural ordering.
+     *
+     * @param sources iterators, each sorted by the natural ordering of its elements
+     * @return an iterator over the merged elements
+     */
+    public static <T extends Comparable<? super T>> KWayMerge<T> ofIterators(
+            Collection<? extends Iterator<? extends T>> sources) {
+        return ofIterators(sources, Comparator.naturalOrder());
+    }
+
+    /**
+     * Creates a merge of the given sorted iterators, by the given comparator.
+     *
+     * @param sources iterators, each sorted by the comparator
+     * @param comparator ordering of the sources
+     * @return an iterator over the merged elements
+     */
+    public static <T> KWayMerge<T> ofIterators(Collection<? extends Iterator<? extends T>> sources,
+            Comparator<? super T> comparator) {
+        Cursor<T>[] cursors = newCursors(sources.size());
+        int source = 0;
+        for (Iterator<? extends T> iterator : sources) {
+            cursors[source] = new Cursor<>(source, iterator);
+            source++;
+        }
+        return new KWayMerge<>(Arrays.asList(cursors), comparator);
+    }
+
+    /**
+     * Creates a merge of the given sorted arrays, by their natural ordering. The arrays are read
+     * in place, so must not be modified during the merge.
+     *
+     * @param sources arrays, each sorted by the natural ordering of its elements
+     * @return an iterator over the merged elements
+     */
+    public static <T extends Comparable<? super T>> KWayMerge<T> ofArrays(
+            Collection<? extends T[]> sources) {
+        return ofArrays(sources, Comparator.naturalOrder());
+    }
+
+    /**
+     * Creates a merge of the given sorted arrays, by the given comparator. The arrays are read
+     * in place, so must not be modified during the merge.
+     *
+     * @param sources arrays, each sorted by the comparator
+     * @param comparator ordering of the sources
+     * @return an iterator over the merged elements
+     */
+    public static <T> KWayMerge<T> ofArrays(Collection<? extends T[]> sources,
+            Comparator<? super T> comparator) {
+        Cursor<T>[] cursors = newCursors(sources.size());
+        int source = 0;
+        for (T[] array : sources) {
+            cursors[source] = new Cursor<>(source, array);
+            source++;
+        }
+        return new KWayMerge<>(Arrays.asList(cursors), comparator);
+    }
+
+    /**
+     * @param length number of cursors
+     * @return a new array of cursors
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Cursor<T>[] newCursors(int length) {
+        return (Cursor<T>[]) new Cursor[length];
+    }
+
+    /**
+     * @return true if any source has elements left
+     */
+    @Override
+    public boolean hasNext() {
+        return this.size > 0;
+    }
+
+    /**
+     * Returns the least remaining element of all the sources.
+     *
+     * Worst case runtime complexity: O(log k), where k is the number of sources
+     *
+     * @return the next element of the merge
+     * @throws NoSuchElementException if no sources have elements left
+     */
+    @Override
+    public T next() {
+        if (this.size == 0) {
+            throw new NoSuchElementException("No elements left.");
+        }
+        return this.take();
+    }
+
+    /**
+     * Fills the given array with the next elements of the merge, until it is full or no
+     * elements are left.
+     *
+     * Worst case runtime complexity: O(m log k), where m is the length of output
+     *
+     * @param output array to fill, from index 0
+     * @return the number of elements written to output
+     */
+    public int nextBatch(T[] output) {
+        int count = 0;
+        while (count < output.length && this.size > 0) {
+            output[count++] = this.take();
+        }
+        return count;
+    }
+
+    /**
+     * Removes the head of the cursor at the root, and restores the heap order.
+     *
+     * @return the least remaining element
+     */
+    private T take() {
+        Cursor<T> least = this.heap[0];
+        T head = least.head;
+        if (!least.advance()) {
+            // Source exhausted - replace it with the last cursor
+            this.size--;
+            this.heap[0] = this.heap[this.size];
+            this.heap[this.size] = null;
+        }
+        QuaternaryHeapsort.quaternaryDownheap(this.heap, 0, this.size, this.heapOrder);
+        return head;
+    }
+
+    /**
+     * The position reached within one source.
+     *
+     * @param <T> type of elements in the source
+     */
+    private static class Cursor<T> {
+        /** The index of the source, for ordering equal elements. */
+        private final int source;
+
+        /** The source iterator, or null if the source is an array. */
+        private final Iterator<? extends T> iterator;
+
+        /** The buffer of elements read from the iterator, or the source array itself. */
+        private final Object[] buffer;
+
+        /** The position of the next element in buffer. */
+        private int position;
+
+        /** The number of valid elements in buffer. */
+        private int limit;
+
+        /** The current head of the source. */
+        private T head;
+
+        /**
+         * @param source index of the source
+         * @param iterator the source
+         */
+        Cursor(int source, Iterator<? extends T> iterator) {
+            this.source = source;
+            this.iterator = iterator;
+            this.buffer = new Object[BATCH_SIZE];
+            this.position = 0;
+            this.limit = 0;
+        }
+
+        /**
+         * @param source index of the source
+         * @param array the source
+         */
+        Cursor(int source, T[] array) {
+            this.source = source;
+            this.iterator = null;
+            this.buffer = array;
+            this.position = 0;
+            this.limit = array.length;
+        }
+
+        /**
+         * Moves to the next element of the source, refilling the buffer if needed.
+         *
+         * @return true if there was a next element, which is now the head
+         */
+        @SuppressWarnings("unchecked")
+        boolean advance() {
+            if (this.position == this.limit) {
+                if (this.iterator == null) {
+                    return false;
+                }
+                this.limit = 0;
+                while (this.limit < this.buffer.length && this.iterator.hasNext()) {
+                    this.buffer[this.limit++] = this.iterator.next();
+                }
+                this.position = 0;
+                if (this.limit == 0) {
+                    return false;
+                }
+            }
+            this.head = (T) this.buffer[this.position];
+            if (this.iterator != null) {
+                // Release the buffered reference, as the caller now holds the element
+                this.buffer[this.position] = null;
+            }
+            this.position++;
+            return true;
+        }
+    }
+
+    /**
+     * A merge of sorted int arrays, without boxing.
+     *
+     * The heap holds the bitwise complement of each source's head, which reverses the order of
+     * ints exactly, so the max heap of PrimitiveQuaternaryHeapsort keeps the least head at the
+     * root, with the source index as its companion.
+     */
+    public static class OfInt implements PrimitiveIterator.OfInt {
+        /** The sources. */
+        private final int[][] sources;
+
+        /** The position of the next element within each source. */
+        private final int[] positions;
+
+        /** The complement of the head of each non-empty source, as a quaternary max heap. */
+        private final int[] heads;
+
+        /** The index of the source of each entry in heads. */
+        private final int[] heapSources;
+
+        /** The number of non-empty sources. */
+        private int size;
+
+        /**
+         * Creates a merge of the given arrays, each sorted into ascending order. The arrays are
+         * read in place, so must not be modified during the merge.
+         *
+         * @param sources sorted arrays
+         */
+        public OfInt(int[]... sources) {
+            this.sources = sources;
+            this.positions = new int[sources.length];
+            this.heads = new int[sources.length];
+            this.heapSources = new int[sources.length];
+            for (int source = 0; source < sources.length; source++) {
+                if (sources[source].length > 0) {
+                    this.heads[this.size] = ~sources[source][0];
+                    this.heapSources[this.size] = source;
+                    this.positions[source] = 1;
+                    this.size++;
+                }
+            }
+            PrimitiveQuaternaryHeapsort.quaternaryHeapify(this.heads, this.heapSources,
+                    this.size);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.size > 0;
+        }
+
+        /**
+         * Returns the least remaining element of all the sources.
+         *
+         * Worst case runtime complexity: O(log k), where k is the number of sources
+         *
+         * @return the next element of the merge
+         * @throws NoSuchElementException if no sources have elements left
+         */
+        @Override
+        public int nextInt() {
+            if (this.size == 0) {
+                throw new NoSuchElementException("No elements left.");
+            }
+            int least = ~this.heads[0];
+            int source = this.heapSources[0];
+            if (this.positions[source] < this.sources[source].length) {
+                this.heads[0] = ~this.sources[source][this.positions[source]++];
+            } else {
+                // Source exhausted - replace it with the last source
+                this.size--;
+                this.heads[0] = this.heads[this.size];
+                this.heapSources[0] = this.heapSources[this.size];
+            }
+            PrimitiveQuaternaryHeapsort.quaternaryDownheap(this.heads, this.heapSources, 0,
+                    this.size);
+            return least;
+        }
+
+        /**
+         * Fills the given array with the next elements of the merge, until it is full or no
+         * elements are left.
+         *
+         * @param output array to fill, from index 0
+         * @return the number of elements written to output
+         */
+        public int nextBatch(int[] output) {
+            int count = 0;
+            while (count < output.length && this.size > 0) {
+                output[count++] = this.nextInt();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * A merge of sorted long arrays, without boxing. See OfInt.
+     */
+    public static class OfLong implements PrimitiveIterator.OfLong {
+        /** The sources. */
+        private final long[][] sources;
+
+        /** The position of the next element within each source. */
+        private final int[] positions;
+
+        /** The complement of the head of each non-empty source, as a quaternary max heap. */
+        private final long[] heads;
+
+        /** The index of the source of each entry in heads. */
+        private final int[] heapSources;
+
+        /** The number of non-empty sources. */
+        private int size;
+
+        /**
+         * Creates a merge of the given arrays, each sorted into ascending order. The arrays are
+         * read in place, so must not be modified during the merge.
+         *
+         * @param sources sorted arrays
+         */
+        public OfLong(long[]... sources) {
+            this.sources = sources;
+            this.positions = new int[sources.length];
+            this.heads = new long[sources.length];
+            this.heapSources = new int[sources.length];
+            for (int source = 0; source < sources.length; source++) {
+                if (sources[source].length > 0) {
+                    this.heads[this.size] = ~sources[source][0];
+                    this.heapSources[this.size] = source;
+                    this.positions[source] = 1;
+                    this.size++;
+                }
+            }
+            PrimitiveQuaternaryHeapsort.quaternaryHeapify(this.heads, this.heapSources,
+                    this.size);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.size > 0;
+        }
+
+        /**
+         * Returns the least remaining element of all the sources.
+         *
+         * Worst case runtime complexity: O(log k), where k is the number of sources
+         *
+         * @return the next element of the merge
+         * @throws NoSuchElementException if no sources have elements left
+         */
+        @Override
+        public long nextLong() {
+            if (this.size == 0) {
+                throw new NoSuchElementException("No elements left.");
+            }
+            long least = ~this.heads[0];
+            int source = this.heapSources[0];
+            if (this.positions[source] < this.sources[source].length) {
+                this.heads[0] = ~this.sources[source][this.positions[source]++];
+            } else {
+                this.size--;
+                this.heads[0] = this.heads[this.size];
+                this.heapSources[0] = this.heapSources[this.size];
+            }
+            PrimitiveQuaternaryHeapsort.quaternaryDownheap(this.heads, this.heapSources, 0,
+                    this.size);
+            return least;
+        }
+
+        /**
+         * Fills the given array with the next elements of the merge, until it is full or no
+         * elements are left.
+         *
+         * @param output array to fill, from index 0
+         * @return the number of elements written to output
+         */
+        public int nextBatch(long[] output) {
+            int count = 0;
+            while (count < output.length && this.size > 0) {
+                output[count++] = this.nextLong();
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Parallel bottom-up construction of a quaternary heap, shared by QuaternaryHeapsort and
+ * PrimitiveQuaternaryHeapsort.
+ *
+ * The four subtrees of any node are disjoint, so they can be heapified independently. Starting
+ * from the root, each fork-join task forks one task per child subtree, waits for them, and then
+ * performs the downheap of its own node; the top levels of the heap are therefore finished
+ * sequentially once the lower levels are done. A subtree with few enough levels is heapified
+ * sequentially by its task, level by level from the bottom up, as in the sequential
+ * construction.
+ *
+ * The heap itself is only touched through the given downheap operation, which must be safe to
+ * run concurrently on positions in disjoint subtrees (as the array-based downheaps are).
+ */
+class ParallelQuaternaryHeapify {
+    /** The number of internal levels below which a subtree is heapified sequentially. */
+    static final int SEQUENTIAL_LEVELS = 8;
+
+    /**
+     * Rearranges a heap of the given size into a quaternary max heap, performing the downheaps
+     * of disjoint subtrees in parallel in the common fork-join pool.
+     *
+     * Worst case runtime complexity: O(n) work, and O(n / p + log^2 n) time on p processors
+     *
+     * Worst case space complexity: O(log n)
+     *
+     * @param size number of positions, starting from 0, to include in the heap
+     * @param downheap performs a downheap from the given position, within a heap of this size
+     */
+    static void heapify(int size, IntConsumer downheap) {
+        int lastInternal = QuaternaryHeapsort.lastInternal(size);
+        if (lastInternal < 0) {
+            return;
+        }
+        if (internalLevels(0, lastInternal) <= SEQUENTIAL_LEVELS) {
+            heapifySubtree(0, lastInternal, downheap);
+        } else {
+            ForkJoinPool.commonPool().invoke(new HeapifyTask(0, lastInternal, downheap));
+        }
+    }
+
+    /**
+     * @param root position of a node
+     * @param depth number of levels below the node
+     * @return position of the first descendant of the node on the given level below it
+     */
+    private static long firstDescendant(int root, int depth) {
+        long width = 1L << (2 * depth);
+        return root * width + (width - 1) / 3;
+    }
+
+    /**
+     * @param root position of an internal node
+     * @param lastInternal position of the last internal node of the heap
+     * @return the number of levels of the node's subtree that contain internal nodes
+     */
+    private static int internalLevels(int root, int lastInternal) {
+        int levels = 1;
+        while (firstDescendant(root, levels) <= lastInternal) {
+            levels++;
+        }
+        return levels;
+    }
+
+    /**
+     * Heapifies the subtree rooted at the given node sequentially, by performing a downheap
+     * from each of its internal nodes, deepest level first.
+     *
+     * @param root position of an internal node
+     * @param lastInternal position of the last internal node of the heap
+     * @param downheap performs a downheap from the given position
+     */
+    private static void heapifySubtree(int root, int lastInternal, IntConsumer downheap) {
+        for (int depth = internalLevels(root, lastInternal) - 1; depth >= 0; depth--) {
+            long first = firstDescendant(root, depth);
+            long last = Math.min(first + (1L << (2 * depth)) - 1, lastInternal);
+            for (long position = last; position >= first; position--) {
+                downheap.accept((int) position);
+            }
+        }
+    }
+
+    /**
+     * Heapifies the subtree rooted at a given internal node.
+     */
+    private static class HeapifyTask extends RecursiveAction {
+        /** Tasks are never serialised, but RecursiveAction is Serializable. */
+        private static final long serialVersionUID = 1L;
+
+        /** The position of the root of the subtree. */
+        private final int root;
+
+        /** The position of the last internal node of the heap. */
+        private final int lastInternal;
+
+        /** Performs a downheap from the given position. */
+        private final IntConsumer downheap;
+
+        /**
+         * @param root position of the root of the subtree, an internal node
+         * @param lastInternal position of the last internal node of the heap
+         * @param downheap performs a downheap from the given position
+         */
+        HeapifyTask(int root, int lastInternal, IntConsumer downheap) {
+            this.root = root;
+            this.lastInternal = lastInternal;
+            this.downheap = downheap;
+        }
+
+        @Override
+        protected void compute() {
+            if (internalLevels(this.root, this.lastInternal) <= SEQUENTIAL_LEVELS) {
+                heapifySubtree(this.root, this.lastInternal, this.downheap);
+                return;
+            }
+            // Tasks for any children that are leaves find no internal nodes to downheap
+            int farLeftPosition = QuaternaryHeapsort.farLeft(this.root);
+            invokeAll(new HeapifyTask(farLeftPosition, this.lastInternal, this.downheap),
+                    new HeapifyTask(farLeftPosition + 1, this.lastInternal, this.downheap),
+                    new HeapifyTask(farLeftPosition + 2, this.lastInternal, this.downheap),
+                    new HeapifyTask(farLeftPosition + 3, this.lastInternal, this.downheap));
+            this.downheap.accept(this.root);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parallel validation of strong heaps, used by StrongHeap.isStrongHeapParallel.
+ *
+ * The left and right subtrees of any node can be validated independently. Starting from the
+ * root, each fork-join task forks a task for its left subtree, validates its right subtree
+ * itself, and then combines the two. Below a fixed number of levels, which gives every
+ * processor several subtrees to work on, a subtree is validated sequentially by a level-order
+ * pass with an explicit queue, as in StrongHeap.isStrongHeap (so deep or unbalanced trees
+ * cannot overflow the stack).
+ *
+ * Each task reports the number of nodes of its subtree, or INVALID if the subtree is not a
+ * complete strong heap. A complete subtree of n nodes has bitLength(n) levels, and is perfect
+ * exactly when n + 1 is a power of two, so the node counts of two subtrees are enough to decide
+ * whether they form a complete tree under their parent: either the left subtree is perfect and
+ * the right has the same height, or the right subtree is perfect and one level shorter than the
+ * left.
+ *
+ * The first task to find a violation raises a flag shared by all tasks of the validation. Tasks
+ * check the flag before forking, and sequential passes check it periodically, so the remaining
+ * tasks give up soon after.
+ */
+class ParallelStrongHeapValidator {
+    /** The result of a task whose subtree is not a complete strong heap. */
+    private static final long INVALID = -1;
+
+    /** The number of levels forked per doubling of the number of processors, plus this. */
+    private static final int EXTRA_FORK_LEVELS = 4;
+
+    /** The number of nodes a sequential pass visits between checks of the cancelled flag. */
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    /** Set once any task of this validation has found a violation. */
+    private volatile boolean cancelled;
+
+    /** The number of levels of the tree, from the root, whose subtrees are forked. */
+    private final int forkLevels;
+
+    /**
+     * @param parallelism number of processors the validation may use
+     */
+    private ParallelStrongHeapValidator(int parallelism) {
+        this.forkLevels = (32 - Integer.numberOfLeadingZeros(parallelism - 1)) +
+                EXTRA_FORK_LEVELS;
+    }
+
+    /**
+     * Determines whether the binary tree with the given root node is a strong heap, validating
+     * disjoint subtrees in parallel in the common fork-join pool.
+     *
+     * Worst case runtime complexity: O(n) work, and O(n / p + log n) time on p processors for a
+     * complete tree
+     *
+     * Worst case space complexity: O(n)
+     *
+     * @param root root of a binary tree, cannot be null
+     * @return true if the tree is a strong heap, otherwise false
+     */
+    static boolean isStrongHeap(BinaryTree<Integer> root) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        ParallelStrongHeapValidator validator =
+                new ParallelStrongHeapValidator(pool.getParallelism());
+        return pool.invoke(validator.new ValidateTask(root, 0)) != INVALID;
+    }
+
+    /**
+     * Validates the subtree with the given root sequentially, in a single level-order pass, as
+     * StrongHeap.isStrongHeap does, giving up early if the validation has been cancelled.
+     *
+     * Worst case runtime complexity: O(m), where m is the number of nodes of the subtree
+     *
+     * Worst case space complexity: O(m)
+     *
+     * @param root root of the subtree, or null
+     * @return the number of nodes of the subtree, or INVALID if it is not a complete strong heap
+     * (or the validation was cancelled)
+     */
+    private long validateSequentially(BinaryTree<Integer> root) {
+        if (root == null) {
+            return 0;
+        }
+        ArrayDeque<BinaryTree<Integer>> queue = new ArrayDeque<>();
+        queue.add(root);
+        boolean missingChildSeen = false;
+        long size = 0;
+
+        while (!queue.isEmpty()) {
+            if (++size % CANCEL_CHECK_INTERVAL == 0 && this.cancelled) {
+                return INVALID;
+            }
+            BinaryTree<Integer> current = queue.poll();
+            BinaryTree<Integer> left = current.getLeft();
+            BinaryTree<Integer> right = current.getRight();
+
+            // Completeness - no child may follow a missing child in level order
+            if (left == null) {
+                missingChildSeen = true;
+            } else if (missingChildSeen) {
+                return INVALID;
+            }
+            if (right == null) {
+                missingChildSeen = true;
+            } else if (missingChildSeen) {
+                return INVALID;
+            }
+
+            if (!StrongHeap.satisfiesStrongMaxHeapProperty(current, left) ||
+                    !StrongHeap.satisfiesStrongMaxHeapProperty(current, right)) {
+                return INVALID;
+            }
+            if (left != null) {
+                queue.add(left);
+            }
+            if (right != null) {
+                queue.add(right);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Validates the subtree rooted at a given node.
+     */
+    private class ValidateTask extends RecursiveTask<Long> {
+        /** Tasks are never serialised, but RecursiveTask is Serializable. */
+        private static final long serialVersionUID = 1L;
+
+        /** The root of the subtree, or null. */
+        private final BinaryTree<Integer> root;
+
+        /** The depth of root in the whole tree. */
+        private final int depth;
+
+        /**
+         * @param root root of the subtree, or null
+         * @param depth depth of root in the whole tree
+         */
+        ValidateTask(BinaryTree<Integer> root, int depth) {
+            this.root = root;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            long result = this.validate();
+            if (result == INVALID) {
+                cancelled = true;
+            }
+            return result;
+        }
+
+        /**
+         * @return the number of nodes of the subtree, or INVALID if it is not a complete strong
+         * heap (or the validation was cancelled)
+         */
+        private long validate() {
+            if (cancelled) {
+                return INVALID;
+            }
+            if (this.root == null || this.depth >= forkLevels) {
+                return validateSequentially(this.root);
+            }
+            BinaryTree<Integer> left = this.root.getLeft();
+            BinaryTree<Integer> right = this.root.getRight();
+            if (!StrongHeap.satisfiesStrongMaxHeapProperty(this.root, left) ||
+                    !StrongHeap.satisfiesStrongMaxHeapProperty(this.root, right)) {
+                return INVALID;
+            }
+
+            ValidateTask leftTask = new ValidateTask(left, this.depth + 1);
+            leftTask.fork();
+            long rightSize = new ValidateTask(right, this.depth + 1).compute();
+            long leftSize = leftTask.join();
+            if (leftSize == INVALID || rightSize == INVALID ||
+                    !StrongHeap.isComplete(leftSize, rightSize)) {
+                return INVALID;
+            }
+            return leftSize + rightSize + 1;
+        }
+    }
+}
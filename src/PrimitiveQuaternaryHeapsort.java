@@ -0,0 +1,612 @@
+/**
+ * Quaternary heap sorts over primitive arrays.
+ *
+ * These mirror QuaternaryHeapsort (the children of position i are at positions 4i + 1 to 4i + 4)
+ * but compare primitive keys directly, without boxing or calls to compareTo. Each sort may carry
+ * an int companion array along with the keys (e.g. the original index of each key), which is
+ * rearranged in exactly the same way as the keys; the companion may be null.
+ *
+ * Doubles are ordered as by Double.compare, so -0.0 sorts before 0.0, and NaN sorts last.
+ */
+public class PrimitiveQuaternaryHeapsort {
+
+    /**
+     * Sorts the keys into ascending order, in-place, applying the same rearrangement to the
+     * companion array.
+     *
+     * Let n denote the number of keys.
+     *
+     * Worst case runtime complexity: O(n log n)
+     *
+     * Worst case space complexity: O(1) auxiliary
+     *
+     * @param keys to be sorted (modified in place)
+     * @param companion values to rearrange along with the keys, at least as long as keys, or null
+     */
+    public static void quaternaryHeapsort(int[] keys, int[] companion) {
+        quaternaryHeapify(keys, companion, keys.length);
+        for (int size = keys.length - 1; size > 0; size--) {
+            // Move the maximum to its final position, then sift the displaced key
+            swap(keys, companion, 0, size);
+            quaternaryDownheap(keys, companion, 0, size);
+        }
+    }
+
+    /**
+     * Sorts the keys into ascending order, in-place, applying the same rearrangement to the
+     * companion array.
+     *
+     * Worst case runtime complexity: O(n log n)
+     *
+     * Worst case space complexity: O(1) auxiliary
+     *
+     * @param keys to be sorted (modified in place)
+     * @param companion values to rearrange along with the keys, at least as long as keys, or null
+     */
+    public static void quaternaryHeapsort(long[] keys, int[] companion) {
+        quaternaryHeapify(keys, companion, keys.length);
+        for (int size = keys.length - 1; size > 0; size--) {
+            swap(keys, companion, 0, size);
+            quaternaryDownheap(keys, companion, 0, size);
+        }
+    }
+
+    /**
+     * Sorts the keys into ascending order (as by Double.compare), in-place, applying the same
+     * rearrangement to the companion array.
+     *
+     * Worst case runtime complexity: O(n log n)
+     *
+     * Worst case space complexity: O(1) auxiliary
+     *
+     * @param keys to be sorted (modified in place)
+     * @param companion values to rearrange along with the keys, at least as long as keys, or null
+     */
+    public static void quaternaryHeapsort(double[] keys, int[] companion) {
+        quaternaryHeapify(keys, companion, keys.length);
+        for (int size = keys.length - 1; size > 0; size--) {
+            swap(keys, companion, 0, size);
+            quaternaryDownheap(keys, companion, 0, size);
+        }
+    }
+
+    /**
+     * Rearranges the first size keys into a quaternary max heap, using bottom-up heap
+     * construction.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param keys array whose first size keys are to form the heap (modified in place)
+     * @param companion values to rearrange along with the keys, or null
+     * @param size number of keys, starting from index 0, to include in the heap
+     */
+    public static void quaternaryHeapify(int[] keys, int[] companion, int size) {
+        for (int position = QuaternaryHeapsort.lastInternal(size); position >= 0; position--) {
+            quaternaryDownheap(keys, companion, position, size);
+        }
+    }
+
+    /**
+     * Rearranges the first size keys into a quaternary max heap, using bottom-up heap
+     * construction.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param keys array whose first size keys are to form the heap (modified in place)
+     * @param companion values to rearrange along with the keys, or null
+     * @param size number of keys, starting from index 0, to include in the heap
+     */
+    public static void quaternaryHeapify(long[] keys, int[] companion, int size) {
+        for (int position = QuaternaryHeapsort.lastInternal(size); position >= 0; position--) {
+            quaternaryDownheap(keys, companion, position, size);
+        }
+    }
+
+    /**
+     * Rearranges the first size keys into a quaternary max heap, using bottom-up heap
+     * construction.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param keys array whose first size keys are to form the heap (modified in place)
+     * @param companion values to rearrange along with the keys, or null
+     * @param size number of keys, starting from index 0, to include in the heap
+     */
+    public static void quaternaryHeapify(double[] keys, int[] companion, int size) {
+        for (int position = QuaternaryHeapsort.lastInternal(size); position >= 0; position--) {
+            quaternaryDownheap(keys, companion, position, size);
+        }
+    }
+
+    /**
+     * Rearranges the first size keys into a quaternary max heap, as quaternaryHeapify does, but
+     * heapifies disjoint subtrees in parallel in the common fork-join pool (see
+     * ParallelQuaternaryHeapify).
+     *
+     * Worst case runtime complexity: O(n) work, and O(n / p + log^2 n) time on p processors
+     *
+     * Worst case space complexity: O(log n)
+     *
+     * @param keys array whose first size keys are to form the heap (modified in place)
+     * @param companion values to rearrange along with the keys, or null
+     * @param size number of keys, starting from index 0, to include in the heap
+     */
+    public static void parallelQuaternaryHeapify(int[] keys, int[] companion, int size) {
+        ParallelQuaternaryHeapify.heapify(size,
+                position -> quaternaryDownheap(keys, companion, position, size));
+    }
+
+    /**
+     * Rearranges the first size keys into a quaternary max heap, as quaternaryHeapify does, but
+     * heapifies disjoint subtrees in parallel in the common fork-join pool (see
+     * ParallelQuaternaryHeapify).
+     *
+     * Worst case runtime complexity: O(n) work, and O(n / p + log^2 n) time on p processors
+     *
+     * Worst case space complexity: O(log n)
+     *
+     * @param keys array whose first size keys are to form the heap (modified in place)
+     * @param companion values to rearrange along with the keys, or null
+     * @param size number of keys, starting from index 0, to include in the heap
+     */
+    public static void parallelQuaternaryHeapify(long[] keys, int[] companion, int size) {
+        ParallelQuaternaryHeapify.heapify(size,
+                position -> quaternaryDownheap(keys, companion, position, size));
+    }
+
+    /**
+     * Rearranges the first size keys into a quaternary max heap, as quaternaryHeapify does, but
+     * heapifies disjoint subtrees in parallel in the common fork-join pool (see
+     * ParallelQuaternaryHeapify).
+     *
+     * Worst case runtime complexity: O(n) work, and O(n / p + log^2 n) time on p processors
+     *
+     * Worst case space complexity: O(log n)
+     *
+     * @param keys array whose first size keys are to form the heap (modified in place)
+     * @param companion values to rearrange along with the keys, or null
+     * @param size number of keys, starting from index 0, to include in the heap
+     */
+    public static void parallelQuaternaryHeapify(double[] keys, int[] companion, int size) {
+        ParallelQuaternaryHeapify.heapify(size,
+                position -> quaternaryDownheap(keys, companion, position, size));
+    }
+
+    /**
+     * Performs a downheap from the key in the given position on the given max heap array,
+     * moving larger children up (rather than swapping) until the key's position is found.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param keys array representing a quaternary max heap.
+     * @param companion values to rearrange along with the keys, or null
+     * @param start position in the array to start the downheap from.
+     * @param size the size of the heap in the array, starting from index 0
+     */
+    public static void quaternaryDownheap(int[] keys, int[] companion, int start, int size) {
+        int toSift = keys[start];
+        int toSiftCompanion = (companion == null) ? 0 : companion[start];
+        int currentParent = start;
+        int farLeftPosition;
+        while ((farLeftPosition = QuaternaryHeapsort.farLeft(currentParent)) < size) {
+            int largestChild;
+            if (farLeftPosition + 3 < size) {
+                largestChild = largestOfFour(keys, farLeftPosition);
+            } else {
+                // Partial last group of children
+                largestChild = farLeftPosition;
+                for (int child = farLeftPosition + 1; child < size; child++) {
+                    if (keys[child] > keys[largestChild]) {
+                        largestChild = child;
+                    }
+                }
+            }
+
+            // Downheap complete
+            if (keys[largestChild] <= toSift) {
+                break;
+            }
+            keys[currentParent] = keys[largestChild];
+            if (companion != null) {
+                companion[currentParent] = companion[largestChild];
+            }
+            currentParent = largestChild;
+        }
+        keys[currentParent] = toSift;
+        if (companion != null) {
+            companion[currentParent] = toSiftCompanion;
+        }
+    }
+
+    /**
+     * Performs a downheap from the key in the given position on the given max heap array,
+     * moving larger children up (rather than swapping) until the key's position is found.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param keys array representing a quaternary max heap.
+     * @param companion values to rearrange along with the keys, or null
+     * @param start position in the array to start the downheap from.
+     * @param size the size of the heap in the array, starting from index 0
+     */
+    public static void quaternaryDownheap(long[] keys, int[] companion, int start, int size) {
+        long toSift = keys[start];
+        int toSiftCompanion = (companion == null) ? 0 : companion[start];
+        int currentParent = start;
+        int farLeftPosition;
+        while ((farLeftPosition = QuaternaryHeapsort.farLeft(currentParent)) < size) {
+            int largestChild = farLeftPosition;
+            int lastChild = Math.min(farLeftPosition + 3, size - 1);
+            for (int child = farLeftPosition + 1; child <= lastChild; child++) {
+                if (keys[child] > keys[largestChild]) {
+                    largestChild = child;
+                }
+            }
+
+            // Downheap complete
+            if (keys[largestChild] <= toSift) {
+                break;
+            }
+            keys[currentParent] = keys[largestChild];
+            if (companion != null) {
+                companion[currentParent] = companion[largestChild];
+            }
+            currentParent = largestChild;
+        }
+        keys[currentParent] = toSift;
+        if (companion != null) {
+            companion[currentParent] = toSiftCompanion;
+        }
+    }
+
+    /**
+     * Finds the largest of the four keys starting at the given position (the first, if several
+     * are equally large).
+     *
+     * The keys are compared as a tournament of two independent pairs, and each comparison only
+     * selects between two values, which the JIT compiles to conditional moves rather than
+     * branches. This avoids the branch mispredictions of comparing the children one by one,
+     * which are frequent as the largest child is effectively random.
+     *
+     * Worst case runtime complexity: O(1)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param keys array of keys
+     * @param first position of the first of four adjacent keys
+     * @return position of the largest key
+     */
+    private static int largestOfFour(int[] keys, int first) {
+        int key0 = keys[first];
+        int key1 = keys[first + 1];
+        int key2 = keys[first + 2];
+        int key3 = keys[first + 3];
+        int largestLeft = (key1 > key0) ? first + 1 : first;
+        int largestLeftKey = Math.max(key0, key1);
+        int largestRight = (key3 > key2) ? first + 3 : first + 2;
+        int largestRightKey = Math.max(key2, key3);
+        return (largestRightKey > largestLeftKey) ? largestRight : largestLeft;
+    }
+
+    /**
+     * Performs a downheap from the key in the given position on the given max heap array
+     * (ordered as by Double.compare), moving larger children up (rather than swapping) until the
+     * key's position is found.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param keys array representing a quaternary max heap.
+     * @param companion values to rearrange along with the keys, or null
+     * @param start position in the array to start the downheap from.
+     * @param size the size of the heap in the array, starting from index 0
+     */
+    public static void quaternaryDownheap(double[] keys, int[] companion, int start, int size) {
+        double toSift = keys[start];
+        int toSiftCompanion = (companion == null) ? 0 : companion[start];
+        int currentParent = start;
+        int farLeftPosition;
+        while ((farLeftPosition = QuaternaryHeapsort.farLeft(currentParent)) < size) {
+            int largestChild = farLeftPosition;
+            int lastChild = Math.min(farLeftPosition + 3, size - 1);
+            for (int child = farLeftPosition + 1; child <= lastChild; child++) {
+                if (Double.compare(keys[child], keys[largestChild]) > 0) {
+                    largestChild = child;
+                }
+            }
+
+            // Downheap complete
+            if (Double.compare(keys[largestChild], toSift) <= 0) {
+                break;
+            }
+            keys[currentParent] = keys[largestChild];
+            if (companion != null) {
+                companion[currentParent] = companion[largestChild];
+            }
+            currentParent = largestChild;
+        }
+        keys[currentParent] = toSift;
+        if (companion != null) {
+            companion[currentParent] = toSiftCompanion;
+        }
+    }
+
+    /**
+     * Returns the permutation that sorts the keys into ascending order, without modifying
+     * them: keys[order[i]] is the i-th smallest key, where order is the returned array.
+     *
+     * The permutation is found by heap sorting an array of indexes, comparing the keys they
+     * refer to; no other memory is allocated.
+     *
+     * Let n denote the number of keys.
+     *
+     * Worst case runtime complexity: O(n log n)
+     *
+     * Worst case space complexity: O(n), for the returned array only
+     *
+     * @param keys to find the sorted order of (not modified)
+     * @return the indexes of the keys, in ascending order of the keys they refer to
+     */
+    public static int[] quaternaryArgsort(int[] keys) {
+        int[] order = QuaternaryHeapsort.identityPermutation(keys.length);
+        for (int position = QuaternaryHeapsort.lastInternal(order.length); position >= 0;
+                position--) {
+            indirectDownheap(keys, order, position, order.length);
+        }
+        for (int size = order.length - 1; size > 0; size--) {
+            swap(order, 0, size);
+            indirectDownheap(keys, order, 0, size);
+        }
+        return order;
+    }
+
+    /**
+     * Returns the permutation that sorts the keys into ascending order, without modifying
+     * them: keys[order[i]] is the i-th smallest key, where order is the returned array.
+     *
+     * The permutation is found by heap sorting an array of indexes, comparing the keys they
+     * refer to; no other memory is allocated.
+     *
+     * Let n denote the number of keys.
+     *
+     * Worst case runtime complexity: O(n log n)
+     *
+     * Worst case space complexity: O(n), for the returned array only
+     *
+     * @param keys to find the sorted order of (not modified)
+     * @return the indexes of the keys, in ascending order of the keys they refer to
+     */
+    public static int[] quaternaryArgsort(long[] keys) {
+        int[] order = QuaternaryHeapsort.identityPermutation(keys.length);
+        for (int position = QuaternaryHeapsort.lastInternal(order.length); position >= 0;
+                position--) {
+            indirectDownheap(keys, order, position, order.length);
+        }
+        for (int size = order.length - 1; size > 0; size--) {
+            swap(order, 0, size);
+            indirectDownheap(keys, order, 0, size);
+        }
+        return order;
+    }
+
+    /**
+     * Returns the permutation that sorts the keys into ascending order (as by Double.compare),
+     * without modifying them: keys[order[i]] is the i-th smallest key, where order is the
+     * returned array.
+     *
+     * The permutation is found by heap sorting an array of indexes, comparing the keys they
+     * refer to; no other memory is allocated.
+     *
+     * Let n denote the number of keys.
+     *
+     * Worst case runtime complexity: O(n log n)
+     *
+     * Worst case space complexity: O(n), for the returned array only
+     *
+     * @param keys to find the sorted order of (not modified)
+     * @return the indexes of the keys, in ascending order of the keys they refer to
+     */
+    public static int[] quaternaryArgsort(double[] keys) {
+        int[] order = QuaternaryHeapsort.identityPermutation(keys.length);
+        for (int position = QuaternaryHeapsort.lastInternal(order.length); position >= 0;
+                position--) {
+            indirectDownheap(keys, order, position, order.length);
+        }
+        for (int size = order.length - 1; size > 0; size--) {
+            swap(order, 0, size);
+            indirectDownheap(keys, order, 0, size);
+        }
+        return order;
+    }
+
+    /**
+     * Performs a downheap on a quaternary max heap of indexes, ordered by the keys that they
+     * refer to.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param keys keys referred to by the indexes (not modified)
+     * @param order array of indexes representing a quaternary max heap.
+     * @param start position in the order array to start the downheap from.
+     * @param size the size of the heap in the order array, starting from index 0
+     */
+    private static void indirectDownheap(int[] keys, int[] order, int start, int size) {
+        int toSift = order[start];
+        int toSiftKey = keys[toSift];
+        int currentParent = start;
+        int farLeftPosition;
+        while ((farLeftPosition = QuaternaryHeapsort.farLeft(currentParent)) < size) {
+            int largestChild = farLeftPosition;
+            int largestKey = keys[order[largestChild]];
+            int lastChild = Math.min(farLeftPosition + 3, size - 1);
+            for (int child = farLeftPosition + 1; child <= lastChild; child++) {
+                int childKey = keys[order[child]];
+                if (childKey > largestKey) {
+                    largestChild = child;
+                    largestKey = childKey;
+                }
+            }
+
+            // Downheap complete
+            if (largestKey <= toSiftKey) {
+                break;
+            }
+            order[currentParent] = order[largestChild];
+            currentParent = largestChild;
+        }
+        order[currentParent] = toSift;
+    }
+
+    /**
+     * Performs a downheap on a quaternary max heap of indexes, ordered by the keys that they
+     * refer to.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param keys keys referred to by the indexes (not modified)
+     * @param order array of indexes representing a quaternary max heap.
+     * @param start position in the order array to start the downheap from.
+     * @param size the size of the heap in the order array, starting from index 0
+     */
+    private static void indirectDownheap(long[] keys, int[] order, int start, int size) {
+        int toSift = order[start];
+        long toSiftKey = keys[toSift];
+        int currentParent = start;
+        int farLeftPosition;
+        while ((farLeftPosition = QuaternaryHeapsort.farLeft(currentParent)) < size) {
+            int largestChild = farLeftPosition;
+            long largestKey = keys[order[largestChild]];
+            int lastChild = Math.min(farLeftPosition + 3, size - 1);
+            for (int child = farLeftPosition + 1; child <= lastChild; child++) {
+                long childKey = keys[order[child]];
+                if (childKey > largestKey) {
+                    largestChild = child;
+                    largestKey = childKey;
+                }
+            }
+
+            // Downheap complete
+            if (largestKey <= toSiftKey) {
+                break;
+            }
+            order[currentParent] = order[largestChild];
+            currentParent = largestChild;
+        }
+        order[currentParent] = toSift;
+    }
+
+    /**
+     * Performs a downheap on a quaternary max heap of indexes, ordered by the keys that they
+     * refer to (as by Double.compare).
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param keys keys referred to by the indexes (not modified)
+     * @param order array of indexes representing a quaternary max heap.
+     * @param start position in the order array to start the downheap from.
+     * @param size the size of the heap in the order array, starting from index 0
+     */
+    private static void indirectDownheap(double[] keys, int[] order, int start, int size) {
+        int toSift = order[start];
+        double toSiftKey = keys[toSift];
+        int currentParent = start;
+        int farLeftPosition;
+        while ((farLeftPosition = QuaternaryHeapsort.farLeft(currentParent)) < size) {
+            int largestChild = farLeftPosition;
+            double largestKey = keys[order[largestChild]];
+            int lastChild = Math.min(farLeftPosition + 3, size - 1);
+            for (int child = farLeftPosition + 1; child <= lastChild; child++) {
+                double childKey = keys[order[child]];
+                if (Double.compare(childKey, largestKey) > 0) {
+                    largestChild = child;
+                    largestKey = childKey;
+                }
+            }
+
+            // Downheap complete
+            if (Double.compare(largestKey, toSiftKey) <= 0) {
+                break;
+            }
+            order[currentParent] = order[largestChild];
+            currentParent = largestChild;
+        }
+        order[currentParent] = toSift;
+    }
+
+    /**
+     * Swaps the keys (and companion values, if any) at the two given positions.
+     *
+     * @param keys array of keys
+     * @param companion values rearranged along with the keys, or null
+     * @param position1 first position
+     * @param position2 second position
+     */
+    private static void swap(int[] keys, int[] companion, int position1, int position2) {
+        int toSwap = keys[position1];
+        keys[position1] = keys[position2];
+        keys[position2] = toSwap;
+        swap(companion, position1, position2);
+    }
+
+    /**
+     * Swaps the keys (and companion values, if any) at the two given positions.
+     *
+     * @param keys array of keys
+     * @param companion values rearranged along with the keys, or null
+     * @param position1 first position
+     * @param position2 second position
+     */
+    private static void swap(long[] keys, int[] companion, int position1, int position2) {
+        long toSwap = keys[position1];
+        keys[position1] = keys[position2];
+        keys[position2] = toSwap;
+        swap(companion, position1, position2);
+    }
+
+    /**
+     * Swaps the keys (and companion values, if any) at the two given positions.
+     *
+     * @param keys array of keys
+     * @param companion values rearranged along with the keys, or null
+     * @param position1 first position
+     * @param position2 second position
+     */
+    private static void swap(double[] keys, int[] companion, int position1, int position2) {
+        double toSwap = keys[position1];
+        keys[position1] = keys[position2];
+        keys[position2] = toSwap;
+        swap(companion, position1, position2);
+    }
+
+    /**
+     * Swaps the companion values at the two given positions, if there is a companion array.
+     *
+     * @param companion values rearranged along with the keys, or null
+     * @param position1 first position
+     * @param position2 second position
+     */
+    private static void swap(int[] companion, int position1, int position2) {
+        if (companion != null) {
+            int toSwap = companion[position1];
+            companion[position1] = companion[position2];
+            companion[position2] = toSwap;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+import java.util.Comparator;
+
+/**
+ * A cache-aware, blocked arrangement of a quaternary heap within an array.
+ *
+ * In the usual (implicit) layout used by QuaternaryHeapsort, the node at logical position i has
+ * its children at positions 4i + 1 to 4i + 4, so every level of a downheap in a very large heap
+ * touches a different cache line, and eventually a different page. In this layout the heap is
+ * instead cut into blocks, each a complete subtree of levelsPerBlock levels, and the nodes of
+ * each block are stored next to each other (as a B-heap does). A downheap then stays within one
+ * block for levelsPerBlock levels at a time. With 4 byte (compressed) references, a block of 2
+ * levels (5 nodes, 20 bytes) is the tallest that fits a 64 byte cache line, and a block of 5
+ * levels (341 nodes, 1364 bytes) is the tallest that fits a 4 KiB page, as 6 levels (1365
+ * nodes, 5460 bytes) would not. These sizes count only the references, not the elements they
+ * refer to.
+ *
+ * Nodes are still addressed by their logical (implicit layout) position; physical() maps them to
+ * array positions. Only the first blockedLevels levels are arranged in blocks: the level below
+ * them, which is the only one that may be partially filled, is stored after the blocks in plain
+ * order, so a heap of n nodes occupies exactly n array positions.
+ *
+ * The sift operations mirror those of QuaternaryHeapsort, with every array access going through
+ * the mapping.
+ */
+public class QuaternaryBlockedLayout {
+    /** The greatest number of levels a heap of int-indexed nodes can have. */
+    private static final int MAX_LEVELS = 16;
+
+    /** The number of levels in each block. */
+    private final int levelsPerBlock;
+
+    /** The number of levels arranged in blocks; the level below them is stored in plain order. */
+    private final int blockedLevels;
+
+    /** The logical position of the first node of each level. */
+    private final int[] firstLogical;
+
+    /** The array position of the first block containing each level. */
+    private final int[] base;
+
+    /** The number of array positions taken by each block containing each level. */
+    private final int[] stride;
+
+    /** The offset within its block of the first node of each level. */
+    private final int[] localOffset;
+
+    /** Twice the depth of each level within its block, i.e. log2 of its width within a block. */
+    private final int[] shift;
+
+    /**
+     * The distance in the array between siblings on each level: 1 within a block (or below the
+     * blocks), or the block size where each sibling is the root of its own block.
+     */
+    private final int[] siblingStep;
+
+    /**
+     * Creates a layout with the given number of blocked levels, which holds heaps of up to
+     * maxSize() nodes.
+     *
+     * @param levelsPerBlock number of levels in each block
+     * @param blockedLevels number of levels to arrange in blocks
+     * @throws IllegalArgumentException if levelsPerBlock is not positive, or blockedLevels is
+     * negative or too large for an int-indexed array
+     */
+    public QuaternaryBlockedLayout(int levelsPerBlock, int blockedLevels) {
+        if (levelsPerBlock <= 0) {
+            throw new IllegalArgumentException("Levels per block must be positive: " +
+                    levelsPerBlock);
+        }
+        if (blockedLevels < 0 || blockedLevels > MAX_LEVELS) {
+            throw new IllegalArgumentException("Blocked levels must be between 0 and " +
+                    MAX_LEVELS + ": " + blockedLevels);
+        }
+        this.levelsPerBlock = levelsPerBlock;
+        this.blockedLevels = blockedLevels;
+        this.firstLogical = new int[blockedLevels + 1];
+        this.base = new int[blockedLevels + 1];
+        this.stride = new int[blockedLevels + 1];
+        this.localOffset = new int[blockedLevels + 1];
+        this.shift = new int[blockedLevels + 1];
+        this.siblingStep = new int[blockedLevels + 1];
+
+        for (int depth = 0; depth < blockedLevels; depth++) {
+            int blockDepth = depth / levelsPerBlock;
+            int blockTop = blockDepth * levelsPerBlock;
+            int levelsInBlock = Math.min(levelsPerBlock, blockedLevels - blockTop);
+            int depthInBlock = depth - blockTop;
+            this.firstLogical[depth] = (int) fullCount(depth);
+            this.base[depth] = (int) fullCount(blockTop);
+            this.stride[depth] = (int) fullCount(levelsInBlock);
+            this.localOffset[depth] = (int) fullCount(depthInBlock);
+            this.shift[depth] = 2 * depthInBlock;
+            this.siblingStep[depth] = (depthInBlock == 0) ? this.stride[depth] : 1;
+        }
+
+        // The level below the blocks is stored in plain order
+        this.firstLogical[blockedLevels] = (int) fullCount(blockedLevels);
+        this.base[blockedLevels] = this.firstLogical[blockedLevels];
+        this.stride[blockedLevels] = 1;
+        this.localOffset[blockedLevels] = 0;
+        this.shift[blockedLevels] = 0;
+        this.siblingStep[blockedLevels] = 1;
+    }
+
+    /**
+     * Creates the layout for a heap of the given size, in which every full level is arranged in
+     * blocks.
+     *
+     * @param levelsPerBlock number of levels in each block
+     * @param size number of nodes in the heap
+     * @return the layout
+     * @throws IllegalArgumentException if levelsPerBlock is not positive, or size is negative
+     */
+    public static QuaternaryBlockedLayout forSize(int levelsPerBlock, int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size cannot be negative: " + size);
+        }
+        int levels = 0;
+        while (levels < MAX_LEVELS && fullCount(levels + 1) <= size) {
+            levels++;
+        }
+        return new QuaternaryBlockedLayout(levelsPerBlock, levels);
+    }
+
+    /**
+     * @param levels number of levels
+     * @return the number of nodes in a full quaternary tree with the given number of levels
+     */
+    private static long fullCount(int levels) {
+        return ((1L << (2 * levels)) - 1) / 3;
+    }
+
+    /**
+     * @return the number of levels in each block
+     */
+    public int levelsPerBlock() {
+        return this.levelsPerBlock;
+    }
+
+    /**
+     * @return the greatest number of nodes a heap in this layout can hold
+     */
+    public int maxSize() {
+        return (int) Math.min(Integer.MAX_VALUE - 8, fullCount(this.blockedLevels + 1));
+    }
+
+    /**
+     * Maps the logical position of a node (as in QuaternaryHeapsort's layout) to its position in
+     * the array.
+     *
+     * Worst case runtime complexity: O(1)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param logical logical position of a node, less than maxSize()
+     * @return array position of the node
+     */
+    public int physical(int logical) {
+        return this.physical(logical, depth(logical));
+    }
+
+    /**
+     * @param logical logical position of a node
+     * @return the depth of the node, where the root has depth 0
+     */
+    private static int depth(int logical) {
+        return (63 - Long.numberOfLeadingZeros(3L * logical + 1)) >> 1;
+    }
+
+    /**
+     * @param logical logical position of a node
+     * @param depth depth of the node
+     * @return array position of the node
+     */
+    private int physical(int logical, int depth) {
+        int positionInLevel = logical - this.firstLogical[depth];
+        int levelShift = this.shift[depth];
+        return this.base[depth] + (positionInLevel >>> levelShift) * this.stride[depth] +
+                this.localOffset[depth] + (positionInLevel & ((1 << levelShift) - 1));
+    }
+
+    /**
+     * Rearranges the first size elements of the input array, given in the plain (implicit)
+     * layout, into this layout in the output array.
+     *
+     * @param input elements in the plain layout
+     * @param output array to hold the elements in this layout
+     * @param size number of elements to rearrange
+     */
+    public void fromPlain(Object[] input, Object[] output, int size) {
+        for (int logical = 0; logical < size; logical++) {
+            output[this.physical(logical)] = input[logical];
+        }
+    }
+
+    /**
+     * Rearranges the first size elements of the input array, given in this layout, into the
+     * plain (implicit) layout in the output array.
+     *
+     * @param input elements in this layout
+     * @param output array to hold the elements in the plain layout
+     * @param size number of elements to rearrange
+     */
+    public void toPlain(Object[] input, Object[] output, int size) {
+        for (int logical = 0; logical < size; logical++) {
+            output[logical] = input[this.physical(logical)];
+        }
+    }
+
+    /**
+     * Rearranges the first size logical positions of the heap into a quaternary max heap, using
+     * bottom-up heap construction.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param heap array in this layout (modified in place)
+     * @param size number of logical positions, starting from 0, to include in the heap
+     * @param comparator ordering of the heap; the greatest element ends up at logical position 0
+     */
+    public <T> void heapify(T[] heap, int size, Comparator<? super T> comparator) {
+        for (int position = QuaternaryHeapsort.lastInternal(size); position >= 0; position--) {
+            this.downheap(heap, position, size, comparator);
+        }
+    }
+
+    /**
+     * Performs a downheap from the given logical position, as QuaternaryHeapsort's
+     * quaternaryDownheap does in the plain layout.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param heap array in this layout representing a quaternary max heap.
+     * @param start logical position to start the downheap from.
+     * @param size the size of the heap, in logical positions starting from 0
+     * @param comparator ordering of the heap; greater elements are closer to the root
+     */
+    public <T> void downheap(T[] heap, int start, int size, Comparator<? super T> comparator) {
+        int currentParent = start;
+        int depth = depth(start);
+        int currentPhysical = this.physical(start, depth);
+        T toSift = heap[currentPhysical];
+        int farLeftPosition;
+        while ((farLeftPosition = QuaternaryHeapsort.farLeft(currentParent)) < size) {
+            // Siblings are evenly spaced, so only the first child's position needs mapping
+            depth++;
+            int step = this.siblingStep[depth];
+            int largestChild = farLeftPosition;
+            int largestPhysical = this.physical(farLeftPosition, depth);
+            T largest = heap[largestPhysical];
+            int lastChild = Math.min(farLeftPosition + 3, size - 1);
+            int childPhysical = largestPhysical;
+            for (int child = farLeftPosition + 1; child <= lastChild; child++) {
+                childPhysical += step;
+                if (comparator.compare(heap[childPhysical], largest) > 0) {
+                    largestChild = child;
+                    largestPhysical = childPhysical;
+                    largest = heap[childPhysical];
+                }
+            }
+
+            // Downheap complete
+            if (comparator.compare(largest, toSift) <= 0) {
+                break;
+            }
+            heap[currentPhysical] = largest;
+            currentParent = largestChild;
+            currentPhysical = largestPhysical;
+        }
+        heap[currentPhysical] = toSift;
+    }
+
+    /**
+     * Performs an upheap from the given logical position, as QuaternaryHeapsort's
+     * quaternaryUpheap does in the plain layout.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param heap array in this layout representing a quaternary max heap, apart from the
+     * given position.
+     * @param position logical position to start the upheap from.
+     * @param comparator ordering of the heap; greater elements are closer to the root
+     */
+    public <T> void upheap(T[] heap, int position, Comparator<? super T> comparator) {
+        int currentPhysical = this.physical(position);
+        T toSift = heap[currentPhysical];
+        while (position > 0) {
+            int parentPosition = QuaternaryHeapsort.parent(position);
+            int parentPhysical = this.physical(parentPosition);
+
+            // Upheap complete
+            if (comparator.compare(toSift, heap[parentPhysical]) <= 0) {
+                break;
+            }
+            heap[currentPhysical] = heap[parentPhysical];
+            position = parentPosition;
+            currentPhysical = parentPhysical;
+        }
+        heap[currentPhysical] = toSift;
+    }
+}
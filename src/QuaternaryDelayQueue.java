@@ -0,0 +1,581 @@
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An unbounded blocking queue of Delayed elements, such as timers or request deadlines, backed
+ * by a QuaternaryHeap. An element can only be taken once its delay has expired, and the head of
+ * the queue is the element whose delay expired furthest in the past (or expires soonest).
+ *
+ * This behaves like java.util.concurrent.DelayQueue, with these additions:
+ *
+ * - schedule() returns a Handle for the element, whose cancel() removes the element from the
+ *   queue in O(1) time without taking the queue's lock. Cancelled elements are left in the heap
+ *   and discarded when they reach the head, or all at once when they make up more than half of
+ *   the heap. remove(Object) and the iterator's remove() also cancel lazily.
+ * - drainExpired() removes every expired element in one call, under a single acquisition of the
+ *   lock.
+ *
+ * The heap is half as deep as DelayQueue's binary heap, so inserting and expiring timers holds
+ * the lock for less time. As in DelayQueue, waiting follows the leader-follower pattern: only the
+ * leader thread waits for the head's delay to expire, while any other taking threads wait
+ * indefinitely until signalled, so at most one thread is woken per expiry.
+ *
+ * Null elements are not permitted. The iterator returns a snapshot of the elements in the queue,
+ * in no particular order.
+ *
+ * @param <E> type of elements in the queue
+ */
+public class QuaternaryDelayQueue<E extends Delayed> extends AbstractQueue<E>
+        implements BlockingQueue<E> {
+    /** The number of cancelled elements below which they are never purged all at once. */
+    private static final int PURGE_THRESHOLD = 64;
+
+    /** The lock guarding heap and leader. */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Signalled when a new head is available, or a new thread may need to become leader. */
+    private final Condition available = this.lock.newCondition();
+
+    /** The handles of the elements in the queue, including cancelled ones not yet discarded. */
+    private QuaternaryHeap<Handle<E>> heap;
+
+    /** The thread waiting for the head's delay to expire, or null if there is none. */
+    private Thread leader;
+
+    /** The number of cancelled handles still in the heap. */
+    private final AtomicInteger cancelledInHeap = new AtomicInteger();
+
+    /** The ordering of handles, by the delays of their elements. */
+    private final Comparator<Handle<E>> order = (handle1, handle2) ->
+            handle1.element.compareTo(handle2.element);
+
+    /**
+     * Creates a new, empty QuaternaryDelayQueue.
+     */
+    public QuaternaryDelayQueue() {
+        this.heap = new QuaternaryHeap<>(this.order);
+    }
+
+    /**
+     * A scheduled element, which can be cancelled.
+     *
+     * @param <E> type of the element
+     */
+    public static final class Handle<E extends Delayed> {
+        /** The element is in the queue. */
+        private static final int PENDING = 0;
+
+        /** The element was cancelled before it was taken. */
+        private static final int CANCELLED = 1;
+
+        /** The element was taken or cleared from the queue. */
+        private static final int REMOVED = 2;
+
+        /** Updates state atomically. */
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<Handle> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Handle.class, "state");
+
+        /** The queue the element was scheduled on. */
+        private final QuaternaryDelayQueue<E> queue;
+
+        /** The scheduled element. */
+        private final E element;
+
+        /** One of PENDING, CANCELLED or REMOVED. */
+        private volatile int state;
+
+        /**
+         * @param queue the queue the element is scheduled on
+         * @param element the scheduled element
+         */
+        private Handle(QuaternaryDelayQueue<E> queue, E element) {
+            this.queue = queue;
+            this.element = element;
+            this.state = PENDING;
+        }
+
+        /**
+         * @return the scheduled element
+         */
+        public E element() {
+            return this.element;
+        }
+
+        /**
+         * Cancels the element, so that it will never be taken from the queue.
+         *
+         * Worst case runtime complexity: O(1)
+         *
+         * @return true if the element was cancelled by this call, or false if it had already
+         * been taken, cleared or cancelled
+         */
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                return false;
+            }
+            this.queue.cancelledInHeap.incrementAndGet();
+            return true;
+        }
+
+        /**
+         * @return true if the element was cancelled before it was taken
+         */
+        public boolean isCancelled() {
+            return this.state == CANCELLED;
+        }
+
+        /**
+         * Marks the element as taken from (or cleared from) the queue.
+         *
+         * @return true if it was still pending, or false if it was cancelled
+         */
+        private boolean remove() {
+            return STATE.compareAndSet(this, PENDING, REMOVED);
+        }
+    }
+
+    /**
+     * Inserts the given element into this queue.
+     *
+     * Worst case runtime complexity: O(log n), amortised
+     *
+     * @param element element to insert
+     * @return a handle with which to cancel the element
+     * @throws NullPointerException if element is null
+     */
+    public Handle<E> schedule(E element) {
+        if (element == null) {
+            throw new NullPointerException("QuaternaryDelayQueue does not permit null elements");
+        }
+        Handle<E> handle = new Handle<>(this, element);
+        this.lock.lock();
+        try {
+            int cancelled = this.cancelledInHeap.get();
+            if (cancelled > PURGE_THRESHOLD && 2 * cancelled > this.heap.size()) {
+                this.purge();
+            }
+            this.heap.offer(handle);
+            if (this.heap.peek() == handle) {
+                // New head - the leader must wait for it instead
+                this.leader = null;
+                this.available.signal();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        return handle;
+    }
+
+    /**
+     * Rebuilds the heap without any cancelled handles. Must be called with the lock held.
+     *
+     * Worst case runtime complexity: O(n)
+     */
+    private void purge() {
+        List<Handle<E>> live = new ArrayList<>(this.heap.size());
+        int discarded = 0;
+        for (Handle<E> handle : this.heap) {
+            if (handle.state == Handle.PENDING) {
+                live.add(handle);
+            } else {
+                discarded++;
+            }
+        }
+        this.heap = new QuaternaryHeap<>(live, this.order);
+        this.cancelledInHeap.addAndGet(-discarded);
+    }
+
+    /**
+     * Retrieves and removes the head of the heap if it has expired, discarding any cancelled
+     * handles found at the head first. Must be called with the lock held.
+     *
+     * @return the expired head, or null if the heap is empty or its head has not expired
+     */
+    private E pollExpired() {
+        Handle<E> first;
+        while ((first = this.heap.peek()) != null) {
+            if (first.state == Handle.CANCELLED) {
+                this.heap.poll();
+                this.cancelledInHeap.decrementAndGet();
+            } else if (first.element.getDelay(TimeUnit.NANOSECONDS) > 0) {
+                return null;
+            } else {
+                this.heap.poll();
+                if (first.remove()) {
+                    return first.element;
+                }
+                // Cancelled after its state was read
+                this.cancelledInHeap.decrementAndGet();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the first handle in the heap that has not been cancelled, discarding any
+     * cancelled handles before it. Must be called with the lock held.
+     *
+     * @return the head handle, or null if the heap has none
+     */
+    private Handle<E> peekLive() {
+        Handle<E> first;
+        while ((first = this.heap.peek()) != null && first.state == Handle.CANCELLED) {
+            this.heap.poll();
+            this.cancelledInHeap.decrementAndGet();
+        }
+        return first;
+    }
+
+    /**
+     * Inserts the given element into this queue.
+     *
+     * @param element element to insert
+     * @return true
+     * @throws NullPointerException if element is null
+     */
+    @Override
+    public boolean offer(E element) {
+        this.schedule(element);
+        return true;
+    }
+
+    /**
+     * Inserts the given element into this queue. As the queue is unbounded, this never blocks.
+     *
+     * @param element element to insert
+     * @throws NullPointerException if element is null
+     */
+    @Override
+    public void put(E element) {
+        this.schedule(element);
+    }
+
+    /**
+     * Inserts the given element into this queue. As the queue is unbounded, this never blocks.
+     *
+     * @param element element to insert
+     * @param timeout ignored
+     * @param unit ignored
+     * @return true
+     * @throws NullPointerException if element is null
+     */
+    @Override
+    public boolean offer(E element, long timeout, TimeUnit unit) {
+        this.schedule(element);
+        return true;
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, if its delay has expired.
+     *
+     * Worst case runtime complexity: O(log n), amortised over discarded cancelled elements
+     *
+     * @return the head of this queue, or null if it is empty or its head has not expired
+     */
+    @Override
+    public E poll() {
+        this.lock.lock();
+        try {
+            return this.pollExpired();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, waiting until an element with an expired
+     * delay is available.
+     *
+     * @return the head of this queue
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Override
+    public E take() throws InterruptedException {
+        this.lock.lockInterruptibly();
+        try {
+            while (true) {
+                E expired = this.pollExpired();
+                if (expired != null) {
+                    return expired;
+                }
+                Handle<E> first = this.peekLive();
+                if (first == null || this.leader != null) {
+                    this.available.await();
+                } else {
+                    Thread thisThread = Thread.currentThread();
+                    this.leader = thisThread;
+                    try {
+                        this.available.awaitNanos(first.element.getDelay(TimeUnit.NANOSECONDS));
+                    } finally {
+                        if (this.leader == thisThread) {
+                            this.leader = null;
+                        }
+                    }
+                }
+            }
+        } finally {
+            this.signalFollower();
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, waiting up to the given time until an
+     * element with an expired delay is available.
+     *
+     * @param timeout how long to wait before giving up
+     * @param unit unit of timeout
+     * @return the head of this queue, or null if the time elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+        try {
+            while (true) {
+                E expired = this.pollExpired();
+                if (expired != null) {
+                    return expired;
+                }
+                if (nanos <= 0L) {
+                    return null;
+                }
+                Handle<E> first = this.peekLive();
+                if (first == null || this.leader != null) {
+                    nanos = this.available.awaitNanos(nanos);
+                    continue;
+                }
+                long delay = first.element.getDelay(TimeUnit.NANOSECONDS);
+                if (nanos < delay) {
+                    nanos = this.available.awaitNanos(nanos);
+                    continue;
+                }
+                Thread thisThread = Thread.currentThread();
+                this.leader = thisThread;
+                try {
+                    long timeLeft = this.available.awaitNanos(delay);
+                    nanos -= delay - timeLeft;
+                } finally {
+                    if (this.leader == thisThread) {
+                        this.leader = null;
+                    }
+                }
+            }
+        } finally {
+            this.signalFollower();
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Wakes a follower to become the new leader, if there is no leader but there is a head to
+     * wait for. Must be called with the lock held.
+     */
+    private void signalFollower() {
+        if (this.leader == null && this.heap.peek() != null) {
+            this.available.signal();
+        }
+    }
+
+    /**
+     * Retrieves, but does not remove, the head of this queue, whether or not it has expired.
+     *
+     * @return the head of this queue, or null if it is empty
+     */
+    @Override
+    public E peek() {
+        this.lock.lock();
+        try {
+            Handle<E> first = this.peekLive();
+            return (first == null) ? null : first.element;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes every element whose delay has expired, and adds them to the given collection in
+     * order of expiry, under a single acquisition of the lock.
+     *
+     * Worst case runtime complexity: O(m log n), where m is the number of elements removed
+     *
+     * @param collection collection to add the expired elements to
+     * @return the number of elements added
+     */
+    public int drainExpired(Collection<? super E> collection) {
+        return this.drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Removes every element whose delay has expired, and adds them to the given collection.
+     *
+     * @param collection collection to add the expired elements to
+     * @return the number of elements added
+     * @throws IllegalArgumentException if collection is this queue
+     */
+    @Override
+    public int drainTo(Collection<? super E> collection) {
+        return this.drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Removes up to the given number of elements whose delay has expired, and adds them to the
+     * given collection.
+     *
+     * @param collection collection to add the expired elements to
+     * @param maxElements greatest number of elements to remove
+     * @return the number of elements added
+     * @throws IllegalArgumentException if collection is this queue
+     */
+    @Override
+    public int drainTo(Collection<? super E> collection, int maxElements) {
+        if (collection == this) {
+            throw new IllegalArgumentException("Cannot drain a queue into itself");
+        }
+        this.lock.lock();
+        try {
+            int count = 0;
+            E expired;
+            while (count < maxElements && (expired = this.pollExpired()) != null) {
+                collection.add(expired);
+                count++;
+            }
+            return count;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of elements in the queue that have not been cancelled
+     */
+    @Override
+    public int size() {
+        this.lock.lock();
+        try {
+            return Math.max(this.heap.size() - this.cancelledInHeap.get(), 0);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return Integer.MAX_VALUE, as the queue is unbounded
+     */
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Cancels a single element equal to the given element (as decided by .equals()), whether or
+     * not it has expired.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * @param element element to remove
+     * @return true if an element was cancelled
+     */
+    @Override
+    public boolean remove(Object element) {
+        this.lock.lock();
+        try {
+            for (Handle<E> handle : this.heap) {
+                if (handle.state == Handle.PENDING && handle.element.equals(element) &&
+                        handle.cancel()) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all elements from this queue. Their handles can no longer be cancelled.
+     */
+    @Override
+    public void clear() {
+        this.lock.lock();
+        try {
+            // A cancel that won its race may not have counted itself yet, so subtract only the
+            // cancelled handles discarded here rather than resetting the count
+            int cancelled = 0;
+            for (Handle<E> handle : this.heap) {
+                if (!handle.remove()) {
+                    cancelled++;
+                }
+            }
+            this.heap.clear();
+            this.cancelledInHeap.addAndGet(-cancelled);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the elements in this queue, both expired and
+     * unexpired, in no particular order. Removing an element through the iterator cancels it.
+     *
+     * @return an iterator over the elements of this queue
+     */
+    @Override
+    public Iterator<E> iterator() {
+        List<Handle<E>> snapshot = new ArrayList<>();
+        this.lock.lock();
+        try {
+            for (Handle<E> handle : this.heap) {
+                if (handle.state == Handle.PENDING) {
+                    snapshot.add(handle);
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        return new Iterator<E>() {
+            /** The position of the next handle to return. */
+            private int cursor = 0;
+
+            /** The last handle returned, or null if there is none to remove. */
+            private Handle<E> lastReturned = null;
+
+            @Override
+            public boolean hasNext() {
+                return this.cursor < snapshot.size();
+            }
+
+            @Override
+            public E next() {
+                if (this.cursor >= snapshot.size()) {
+                    throw new NoSuchElementException("No elements left.");
+                }
+                this.lastReturned = snapshot.get(this.cursor++);
+                return this.lastReturned.element;
+            }
+
+            @Override
+            public void remove() {
+                if (this.lastReturned == null) {
+                    throw new IllegalStateException("No element to remove.");
+                }
+                this.lastReturned.cancel();
+                this.lastReturned = null;
+            }
+        };
+    }
+}
@@ -0,0 +1,523 @@
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+
+/**
+ * An unbounded priority queue backed by a quaternary (4-ary) heap, stored in a resizeable array.
+ *
+ * Like java.util.PriorityQueue, the head of this queue is the least element with respect to the
+ * queue's ordering (its comparator, or the natural ordering of its elements if none is given).
+ * Null elements are not permitted.
+ *
+ * The heap uses the same array layout and sift operations as QuaternaryHeapsort: the children of
+ * the node at position i are found at positions 4i + 1 to 4i + 4. Compared to a binary heap, the
+ * heap is half as deep, and the four children examined on each level of a downheap are adjacent
+ * in memory.
+ *
+ * For very large heaps, the queue can instead keep its heap in the blocked layout of
+ * QuaternaryBlockedLayout, which stores small subtrees contiguously so that a sift touches fewer
+ * cache lines and pages. Positions are then logical positions, mapped to array positions by the
+ * layout, and the layout is rebuilt (in O(n) time) each time the heap gains a level.
+ *
+ * The iterator does not return the elements in any particular order.
+ *
+ * @param <T> type of elements in the queue
+ */
+public class QuaternaryHeap<T> extends AbstractQueue<T> implements Queue<T> {
+    /** The initial capacity of the internal array when none is given. */
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /** The largest capacity the internal array may grow to. */
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    /**
+     * The elements of the heap, in logical positions 0 to (size - 1). These are also the array
+     * positions, unless a blocked layout is in use.
+     */
+    private T[] heap;
+
+    /** The blocked layout of the heap within the array, or null for the plain layout. */
+    private QuaternaryBlockedLayout layout;
+
+    /** The number of elements in the heap. */
+    private int size;
+
+    /** The ordering given on construction, or null for the natural ordering. */
+    private final Comparator<? super T> comparator;
+
+    /**
+     * The reverse of the queue's ordering. The sift operations in QuaternaryHeapsort maintain a
+     * max heap, so reversing the ordering keeps the least element at the root.
+     */
+    private final Comparator<? super T> heapOrder;
+
+    /** The number of times this queue has been structurally modified, for fail-fast iterators. */
+    private int modCount;
+
+    /**
+     * Creates a new, empty QuaternaryHeap that orders its elements by their natural ordering.
+     */
+    public QuaternaryHeap() {
+        this(DEFAULT_INITIAL_CAPACITY, null);
+    }
+
+    /**
+     * Creates a new, empty QuaternaryHeap that orders its elements by their natural ordering.
+     *
+     * @param initialCapacity initial capacity of the internal array
+     * @throws IllegalArgumentException if initialCapacity is negative
+     */
+    public QuaternaryHeap(int initialCapacity) {
+        this(initialCapacity, null);
+    }
+
+    /**
+     * Creates a new, empty QuaternaryHeap that orders its elements by the given comparator.
+     *
+     * @param comparator ordering of the queue, or null for the natural ordering
+     */
+    public QuaternaryHeap(Comparator<? super T> comparator) {
+        this(DEFAULT_INITIAL_CAPACITY, comparator);
+    }
+
+    /**
+     * Creates a new, empty QuaternaryHeap that orders its elements by the given comparator.
+     *
+     * @param initialCapacity initial capacity of the internal array
+     * @param comparator ordering of the queue, or null for the natural ordering
+     * @throws IllegalArgumentException if initialCapacity is negative
+     */
+    public QuaternaryHeap(int initialCapacity, Comparator<? super T> comparator) {
+        this(initialCapacity, comparator, 0);
+    }
+
+    /**
+     * Creates a new, empty QuaternaryHeap that orders its elements by the given comparator, and
+     * keeps them in the blocked layout of QuaternaryBlockedLayout.
+     *
+     * Blocks of 2 levels suit a cache line, and blocks of 5 levels suit a page. The blocked layout
+     * costs some extra arithmetic per sift, so it only pays off once the heap is much larger than
+     * the processor's caches.
+     *
+     * @param initialCapacity initial capacity of the internal array
+     * @param comparator ordering of the queue, or null for the natural ordering
+     * @param levelsPerBlock number of heap levels in each block, or 0 for the plain layout
+     * @throws IllegalArgumentException if initialCapacity or levelsPerBlock is negative
+     */
+    @SuppressWarnings("unchecked")
+    public QuaternaryHeap(int initialCapacity, Comparator<? super T> comparator,
+            int levelsPerBlock) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Initial capacity cannot be negative: " +
+                    initialCapacity);
+        }
+        if (levelsPerBlock < 0) {
+            throw new IllegalArgumentException("Levels per block cannot be negative: " +
+                    levelsPerBlock);
+        }
+        this.heap = (T[]) new Object[initialCapacity];
+        this.layout = (levelsPerBlock == 0) ? null :
+                QuaternaryBlockedLayout.forSize(levelsPerBlock, 0);
+        this.size = 0;
+        this.comparator = comparator;
+        this.heapOrder = reverseOf(comparator);
+    }
+
+    /**
+     * Creates a new QuaternaryHeap containing the given elements, ordered by their natural
+     * ordering.
+     *
+     * @param elements elements to add to the queue, none of which may be null
+     * @throws NullPointerException if any of the elements is null
+     */
+    public QuaternaryHeap(Collection<? extends T> elements) {
+        this(elements, null);
+    }
+
+    /**
+     * Creates a new QuaternaryHeap containing the given elements, ordered by the given
+     * comparator.
+     *
+     * The heap is built bottom-up, which takes O(n) time rather than the O(n log n) needed to
+     * offer each element in turn, where n is the number of elements.
+     *
+     * @param elements elements to add to the queue, none of which may be null
+     * @param comparator ordering of the queue, or null for the natural ordering
+     * @throws NullPointerException if any of the elements is null
+     */
+    @SuppressWarnings("unchecked")
+    public QuaternaryHeap(Collection<? extends T> elements, Comparator<? super T> comparator) {
+        Object[] contents = elements.toArray();
+        for (Object element : contents) {
+            if (element == null) {
+                throw new NullPointerException("QuaternaryHeap does not permit null elements");
+            }
+        }
+        this.heap = (T[]) Arrays.copyOf(contents, Math.max(contents.length, 1), Object[].class);
+        this.size = contents.length;
+        this.comparator = comparator;
+        this.heapOrder = reverseOf(comparator);
+        QuaternaryHeapsort.quaternaryHeapify(this.heap, this.size, this.heapOrder);
+    }
+
+    /**
+     * Returns the reverse of the given ordering, treating null as the natural ordering.
+     *
+     * @param comparator ordering to reverse, or null for the natural ordering
+     * @return the reversed ordering
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Comparator<? super T> reverseOf(Comparator<? super T> comparator) {
+        return (comparator == null) ? (Comparator<? super T>) Comparator.reverseOrder() :
+                comparator.reversed();
+    }
+
+    /**
+     * Returns the comparator used to order the elements of this queue.
+     *
+     * @return the comparator, or null if elements are ordered by their natural ordering
+     */
+    public Comparator<? super T> comparator() {
+        return this.comparator;
+    }
+
+    /**
+     * Inserts the given element into this queue.
+     *
+     * Worst case runtime complexity: O(log n), amortised over resizes of the internal array
+     *
+     * @param element element to insert
+     * @return true
+     * @throws NullPointerException if element is null
+     */
+    @Override
+    public boolean offer(T element) {
+        if (element == null) {
+            throw new NullPointerException("QuaternaryHeap does not permit null elements");
+        }
+        if (this.size == this.heap.length) {
+            this.grow();
+        }
+        if (this.layout != null && this.size == this.layout.maxSize()) {
+            this.relayout();
+        }
+        this.modCount++;
+        this.setAt(this.size, element);
+        this.upheap(this.size);
+        this.size++;
+        return true;
+    }
+
+    /**
+     * Retrieves, but does not remove, the head (least element) of this queue.
+     *
+     * Worst case runtime complexity: O(1)
+     *
+     * @return the head of this queue, or null if it is empty
+     */
+    @Override
+    public T peek() {
+        return (this.size == 0) ? null : this.elementAt(0);
+    }
+
+    /**
+     * Retrieves and removes the head (least element) of this queue.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * @return the head of this queue, or null if it is empty
+     */
+    @Override
+    public T poll() {
+        if (this.size == 0) {
+            return null;
+        }
+        this.modCount++;
+        T head = this.elementAt(0);
+        this.size--;
+        this.setAt(0, this.elementAt(this.size));
+        this.setAt(this.size, null);
+        this.downheap(0);
+        return head;
+    }
+
+    /**
+     * Removes a single instance of the given element (as decided by .equals()) from this queue,
+     * if present.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * @param element element to remove
+     * @return true if the queue contained the element
+     */
+    @Override
+    public boolean remove(Object element) {
+        int position = this.indexOf(element);
+        if (position < 0) {
+            return false;
+        }
+        this.removeAt(position);
+        return true;
+    }
+
+    /**
+     * Returns whether this queue contains the given element (as decided by .equals()).
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * @param element element to check
+     * @return true if the queue contains the element
+     */
+    @Override
+    public boolean contains(Object element) {
+        return this.indexOf(element) >= 0;
+    }
+
+    /**
+     * @return the number of elements in this queue
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Removes all elements from this queue. The internal capacity is kept.
+     */
+    @Override
+    public void clear() {
+        this.modCount++;
+        if (this.layout == null) {
+            Arrays.fill(this.heap, 0, this.size, null);
+        } else {
+            for (int i = 0; i < this.size; i++) {
+                this.setAt(i, null);
+            }
+        }
+        this.size = 0;
+    }
+
+    /**
+     * Returns an iterator over the elements of this queue, in no particular order.
+     *
+     * @return an iterator over the elements of this queue
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            /** The position of the next element to return. */
+            private int cursor = 0;
+
+            /** The position of the last element returned, or -1 if there is none to remove. */
+            private int lastReturned = -1;
+
+            /**
+             * Elements moved from beyond the cursor to before it by a removal, which must still
+             * be returned. Null until first needed.
+             */
+            private ArrayDeque<T> forgotten = null;
+
+            /** The last element returned from forgotten, or null if there is none to remove. */
+            private T lastReturnedForgotten = null;
+
+            /** The modCount this iterator expects the queue to have. */
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return this.cursor < size || (this.forgotten != null && !this.forgotten.isEmpty());
+            }
+
+            @Override
+            public T next() {
+                if (this.expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (this.cursor < size) {
+                    this.lastReturnedForgotten = null;
+                    this.lastReturned = this.cursor++;
+                    return elementAt(this.lastReturned);
+                }
+                if (this.forgotten != null && !this.forgotten.isEmpty()) {
+                    this.lastReturned = -1;
+                    this.lastReturnedForgotten = this.forgotten.poll();
+                    return this.lastReturnedForgotten;
+                }
+                throw new NoSuchElementException("No elements left.");
+            }
+
+            @Override
+            public void remove() {
+                if (this.expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (this.lastReturned >= 0) {
+                    T moved = removeAt(this.lastReturned);
+                    this.lastReturned = -1;
+                    if (moved == null) {
+                        this.cursor--;
+                    } else {
+                        if (this.forgotten == null) {
+                            this.forgotten = new ArrayDeque<>();
+                        }
+                        this.forgotten.add(moved);
+                    }
+                } else if (this.lastReturnedForgotten != null) {
+                    removeEq(this.lastReturnedForgotten);
+                    this.lastReturnedForgotten = null;
+                } else {
+                    throw new IllegalStateException("No element to remove.");
+                }
+                this.expectedModCount = modCount;
+            }
+        };
+    }
+
+    /**
+     * Removes the element at the given position of the heap, replacing it with the last element
+     * and restoring the heap order.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * @param position position of the element to remove
+     * @return the last element, if it moved to a position before the given one (so that an
+     * iterator positioned after it would miss it), otherwise null
+     */
+    private T removeAt(int position) {
+        this.modCount++;
+        this.size--;
+        if (position == this.size) {
+            this.setAt(position, null);
+            return null;
+        }
+        T moved = this.elementAt(this.size);
+        this.setAt(this.size, null);
+        this.setAt(position, moved);
+        this.downheap(position);
+        if (this.elementAt(position) == moved) {
+            // Did not move down, so it may need to move up instead
+            this.upheap(position);
+            if (this.elementAt(position) != moved) {
+                return moved;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the given instance (as decided by ==) from this queue, if present.
+     *
+     * @param element instance to remove
+     */
+    private void removeEq(Object element) {
+        for (int i = 0; i < this.size; i++) {
+            if (this.elementAt(i) == element) {
+                this.removeAt(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Finds the position of an element equal to the given element (as decided by .equals()).
+     *
+     * @param element element to search for
+     * @return position of the element, or -1 if it is not in the heap
+     */
+    private int indexOf(Object element) {
+        if (element != null) {
+            for (int i = 0; i < this.size; i++) {
+                if (element.equals(this.elementAt(i))) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param position logical position in the heap
+     * @return the element at the given position
+     */
+    private T elementAt(int position) {
+        return this.heap[(this.layout == null) ? position : this.layout.physical(position)];
+    }
+
+    /**
+     * @param position logical position in the heap
+     * @param element element to place at the given position
+     */
+    private void setAt(int position, T element) {
+        this.heap[(this.layout == null) ? position : this.layout.physical(position)] = element;
+    }
+
+    /**
+     * Performs a downheap from the given logical position, in the heap's layout.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * @param position logical position to start the downheap from
+     */
+    private void downheap(int position) {
+        if (this.layout == null) {
+            QuaternaryHeapsort.quaternaryDownheap(this.heap, position, this.size, this.heapOrder);
+        } else {
+            this.layout.downheap(this.heap, position, this.size, this.heapOrder);
+        }
+    }
+
+    /**
+     * Performs an upheap from the given logical position, in the heap's layout.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * @param position logical position to start the upheap from
+     */
+    private void upheap(int position) {
+        if (this.layout == null) {
+            QuaternaryHeapsort.quaternaryUpheap(this.heap, position, this.heapOrder);
+        } else {
+            this.layout.upheap(this.heap, position, this.heapOrder);
+        }
+    }
+
+    /**
+     * Replaces the blocked layout with one that has room for another level of the heap, and
+     * moves the elements into it.
+     *
+     * Worst case runtime complexity: O(n)
+     */
+    @SuppressWarnings("unchecked")
+    private void relayout() {
+        QuaternaryBlockedLayout larger = QuaternaryBlockedLayout.forSize(
+                this.layout.levelsPerBlock(), this.size + 1);
+        T[] plain = (T[]) new Object[this.size];
+        this.layout.toPlain(this.heap, plain, this.size);
+        larger.fromPlain(plain, this.heap, this.size);
+        this.layout = larger;
+    }
+
+    /**
+     * Increases the capacity of the internal array by half (or by one, if that is larger).
+     *
+     * Worst case runtime complexity: O(n)
+     */
+    private void grow() {
+        int oldCapacity = this.heap.length;
+        if (oldCapacity == MAX_CAPACITY) {
+            throw new IllegalStateException("QuaternaryHeap cannot grow beyond " + MAX_CAPACITY +
+                    " elements");
+        }
+        int newCapacity = oldCapacity + Math.max(oldCapacity >> 1, 1);
+        if (newCapacity < 0 || newCapacity > MAX_CAPACITY) {
+            newCapacity = MAX_CAPACITY;
+        }
+        this.heap = Arrays.copyOf(this.heap, newCapacity);
+    }
+}
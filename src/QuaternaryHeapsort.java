@@ -1,3 +1,10 @@
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
 public class QuaternaryHeapsort {
 
     /**
@@ -12,36 +19,478 @@ public class QuaternaryHeapsort {
      * @param input to be sorted (modified in place)
      */
     public static <T extends Comparable<T>> void quaternaryHeapsort(T[] input) {
+        quaternaryHeapsort(input, Comparator.naturalOrder());
+    }
+
+    /**
+     * Sorts the input array, in-place, using a quaternary heap sort, into the order given by
+     * the comparator.
+     *
+     * Let n denote the number of nodes within the quaternary heap.
+     *
+     * Worst case runtime complexity: O(n log n)
+     *
+     * Worst case space complexity: O(1) auxiliary
+     *
+     * @param input to be sorted (modified in place)
+     * @param comparator ordering to sort by, from least to greatest
+     */
+    public static <T> void quaternaryHeapsort(T[] input, Comparator<? super T> comparator) {
         // Bottom-Up Heap Construction - start at last internal node
-        for (int position = input.length / 4 - 1; position >= 0; position--) {
-            quaternaryDownheap(input, position, input.length);
+        quaternaryHeapify(input, input.length, comparator);
+        quaternaryHeapsort(input, input.length, comparator);
+    }
+
+    /**
+     * Sorts the input array, in-place, using a bottom-up (leaf-search) quaternary heap sort.
+     *
+     * Rather than comparing the sifted element against the largest child on every level (as
+     * quaternaryDownheap does), each sift first follows the largest children all the way down
+     * to a leaf, then searches back up that path for the sifted element's position, and finally
+     * shifts the path up by one to make room for it. As the element removed from the end of the
+     * heap almost always belongs near the bottom, the search back up is typically only one or
+     * two levels long, which saves close to one comparison per level.
+     *
+     * This is worthwhile when compareTo is expensive (e.g. long strings or composite keys); for
+     * cheap comparisons quaternaryHeapsort is just as fast.
+     *
+     * Let n denote the number of nodes within the quaternary heap.
+     *
+     * Worst case runtime complexity: O(n log n)
+     *
+     * Worst case space complexity: O(1) auxiliary
+     *
+     * @param input to be sorted (modified in place)
+     */
+    public static <T extends Comparable<T>> void bottomUpQuaternaryHeapsort(T[] input) {
+        bottomUpQuaternaryHeapsort(input, Comparator.naturalOrder());
+    }
+
+    /**
+     * Sorts the input array, in-place, using a bottom-up (leaf-search) quaternary heap sort,
+     * into the order given by the comparator.
+     *
+     * Worst case runtime complexity: O(n log n)
+     *
+     * Worst case space complexity: O(1) auxiliary
+     *
+     * @param input to be sorted (modified in place)
+     * @param comparator ordering to sort by, from least to greatest
+     */
+    public static <T> void bottomUpQuaternaryHeapsort(T[] input,
+            Comparator<? super T> comparator) {
+        for (int position = lastInternal(input.length); position >= 0; position--) {
+            bottomUpDownheap(input, position, input.length, comparator);
         }
-        quaternaryHeapsort(input, input.length);
+        for (int size = input.length - 1; size > 0; size--) {
+            // Move the maximum to its final position, then sift the displaced element
+            T toSwap = input[size];
+            input[size] = input[0];
+            input[0] = toSwap;
+            bottomUpDownheap(input, 0, size, comparator);
+        }
+    }
+
+    /**
+     * Sorts the input array using a quaternary heap sort, with the heap kept in the blocked
+     * layout of QuaternaryBlockedLayout rather than in the input array itself.
+     *
+     * Each sift then stays within one block (of the given number of levels) for several levels
+     * at a time, which causes far fewer cache and TLB misses on the array of references once it
+     * is much larger than the processor's caches. The layout does not move the elements
+     * themselves, though, and comparing them still dereferences each one; the extra index
+     * arithmetic makes this slower than quaternaryHeapsort unless those misses dominate, so it
+     * should be measured on the intended workload before being preferred.
+     *
+     * Let n denote the number of nodes within the quaternary heap.
+     *
+     * Worst case runtime complexity: O(n log n)
+     *
+     * Worst case space complexity: O(n) auxiliary
+     *
+     * @param input to be sorted (modified in place)
+     * @param levelsPerBlock number of heap levels in each block; 2 suits a cache line, and 5 a
+     * page
+     * @throws IllegalArgumentException if levelsPerBlock is not positive
+     */
+    public static <T extends Comparable<T>> void blockedQuaternaryHeapsort(T[] input,
+            int levelsPerBlock) {
+        blockedQuaternaryHeapsort(input, levelsPerBlock, Comparator.naturalOrder());
     }
 
     /**
+     * Sorts the input array using a quaternary heap sort in a blocked layout, into the order
+     * given by the comparator. See blockedQuaternaryHeapsort(T[], int).
+     *
      * Worst case runtime complexity: O(n log n)
      *
+     * Worst case space complexity: O(n) auxiliary
+     *
+     * @param input to be sorted (modified in place)
+     * @param levelsPerBlock number of heap levels in each block
+     * @param comparator ordering to sort by, from least to greatest
+     * @throws IllegalArgumentException if levelsPerBlock is not positive
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void blockedQuaternaryHeapsort(T[] input, int levelsPerBlock,
+            Comparator<? super T> comparator) {
+        QuaternaryBlockedLayout layout = QuaternaryBlockedLayout.forSize(levelsPerBlock,
+                input.length);
+        T[] heap = (T[]) new Object[input.length];
+        layout.fromPlain(input, heap, input.length);
+
+        layout.heapify(heap, input.length, comparator);
+        for (int size = input.length - 1; size > 0; size--) {
+            // Move the maximum to its final (logical) position, then restore the heap order
+            int last = layout.physical(size);
+            T toSwap = heap[last];
+            heap[last] = heap[0];
+            heap[0] = toSwap;
+            layout.downheap(heap, 0, size, comparator);
+        }
+        layout.toPlain(heap, input, input.length);
+    }
+
+    /**
+     * Sorts the input array, in-place, into ascending order of the int key extracted from each
+     * element.
+     *
+     * Each key is extracted exactly once, into an int array that is heap sorted together with
+     * an array of the elements' original positions (see PrimitiveQuaternaryHeapsort). The
+     * resulting permutation is then applied to the input. This is much faster than sorting with
+     * a comparator when extracting or comparing keys is expensive. The sort is not stable.
+     *
+     * Let n denote the number of elements.
+     *
+     * Worst case runtime complexity: O(n log n), with n key extractions
+     *
+     * Worst case space complexity: O(n)
+     *
+     * @param input to be sorted (modified in place)
+     * @param keyExtractor function giving the key of each element
+     */
+    public static <T> void sortByIntKey(T[] input, ToIntFunction<? super T> keyExtractor) {
+        int[] keys = new int[input.length];
+        for (int i = 0; i < input.length; i++) {
+            keys[i] = keyExtractor.applyAsInt(input[i]);
+        }
+        int[] order = identityPermutation(input.length);
+        PrimitiveQuaternaryHeapsort.quaternaryHeapsort(keys, order);
+        applyPermutation(input, order);
+    }
+
+    /**
+     * Sorts the input array, in-place, into ascending order of the long key extracted from each
+     * element, extracting each key exactly once (see sortByIntKey).
+     *
+     * Worst case runtime complexity: O(n log n), with n key extractions
+     *
+     * Worst case space complexity: O(n)
+     *
+     * @param input to be sorted (modified in place)
+     * @param keyExtractor function giving the key of each element
+     */
+    public static <T> void sortByLongKey(T[] input, ToLongFunction<? super T> keyExtractor) {
+        long[] keys = new long[input.length];
+        for (int i = 0; i < input.length; i++) {
+            keys[i] = keyExtractor.applyAsLong(input[i]);
+        }
+        int[] order = identityPermutation(input.length);
+        PrimitiveQuaternaryHeapsort.quaternaryHeapsort(keys, order);
+        applyPermutation(input, order);
+    }
+
+    /**
+     * Sorts the input array, in-place, into ascending order (as by Double.compare) of the double
+     * key extracted from each element, extracting each key exactly once (see sortByIntKey).
+     *
+     * Worst case runtime complexity: O(n log n), with n key extractions
+     *
+     * Worst case space complexity: O(n)
+     *
+     * @param input to be sorted (modified in place)
+     * @param keyExtractor function giving the key of each element
+     */
+    public static <T> void sortByDoubleKey(T[] input, ToDoubleFunction<? super T> keyExtractor) {
+        double[] keys = new double[input.length];
+        for (int i = 0; i < input.length; i++) {
+            keys[i] = keyExtractor.applyAsDouble(input[i]);
+        }
+        int[] order = identityPermutation(input.length);
+        PrimitiveQuaternaryHeapsort.quaternaryHeapsort(keys, order);
+        applyPermutation(input, order);
+    }
+
+    /**
+     * Returns the permutation that sorts the input array into ascending order, without modifying
+     * the input: element input[order[i]] is the i-th smallest, where order is the returned array.
+     *
+     * The permutation is found by heap sorting an array of indexes, comparing the elements they
+     * refer to; no other memory is allocated. The returned order can then be used to rearrange
+     * any number of parallel arrays.
+     *
+     * Let n denote the number of elements.
+     *
+     * Worst case runtime complexity: O(n log n)
+     *
+     * Worst case space complexity: O(n), for the returned array only
+     *
+     * @param input elements to find the sorted order of (not modified)
+     * @return the indexes of the input, in ascending order of the elements they refer to
+     */
+    public static <T extends Comparable<T>> int[] quaternaryArgsort(T[] input) {
+        return quaternaryArgsort(input, Comparator.naturalOrder());
+    }
+
+    /**
+     * Returns the permutation that sorts the input array into the order given by the
+     * comparator, without modifying the input (see quaternaryArgsort(T[])).
+     *
+     * Worst case runtime complexity: O(n log n)
+     *
+     * Worst case space complexity: O(n), for the returned array only
+     *
+     * @param input elements to find the sorted order of (not modified)
+     * @param comparator ordering to sort by, from least to greatest
+     * @return the indexes of the input, in order of the elements they refer to
+     */
+    public static <T> int[] quaternaryArgsort(T[] input, Comparator<? super T> comparator) {
+        int[] order = identityPermutation(input.length);
+        for (int position = lastInternal(order.length); position >= 0; position--) {
+            indirectDownheap(input, order, position, order.length, comparator);
+        }
+        for (int size = order.length - 1; size > 0; size--) {
+            // Move the index of the maximum to its final position, then sift the displaced index
+            int toSwap = order[size];
+            order[size] = order[0];
+            order[0] = toSwap;
+            indirectDownheap(input, order, 0, size, comparator);
+        }
+        return order;
+    }
+
+    /**
+     * Performs a downheap on a quaternary max heap of indexes, ordered by the elements of input
+     * that they refer to.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param input elements referred to by the indexes (not modified)
+     * @param order array of indexes representing a quaternary max heap.
+     * @param start position in the order array to start the downheap from.
+     * @param size the size of the heap in the order array, starting from index 0
+     * @param comparator ordering of the elements
+     */
+    private static <T> void indirectDownheap(T[] input, int[] order, int start, int size,
+            Comparator<? super T> comparator) {
+        int toSift = order[start];
+        int currentParent = start;
+        int farLeftPosition;
+        while ((farLeftPosition = farLeft(currentParent)) < size) {
+            int largestChild = farLeftPosition;
+            int lastChild = Math.min(farLeftPosition + 3, size - 1);
+            for (int child = farLeftPosition + 1; child <= lastChild; child++) {
+                if (comparator.compare(input[order[child]], input[order[largestChild]]) > 0) {
+                    largestChild = child;
+                }
+            }
+
+            // Downheap complete
+            if (comparator.compare(input[order[largestChild]], input[toSift]) <= 0) {
+                break;
+            }
+            order[currentParent] = order[largestChild];
+            currentParent = largestChild;
+        }
+        order[currentParent] = toSift;
+    }
+
+    /**
+     * Worst case runtime complexity: O(n)
+     *
      * Worst case space complexity: O(n)
      *
+     * @param size number of positions
+     * @return the array {0, 1, ..., size - 1}
+     */
+    static int[] identityPermutation(int size) {
+        int[] permutation = new int[size];
+        for (int i = 0; i < size; i++) {
+            permutation[i] = i;
+        }
+        return permutation;
+    }
+
+    /**
+     * Rearranges the input so that position i holds the element previously at position order[i],
+     * by following each cycle of the permutation.
+     *
+     * The order array is used to mark visited positions, and is left with every value negated
+     * (as ~value).
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(1) auxiliary
+     *
+     * @param input elements to rearrange (modified in place)
+     * @param order permutation of the positions of input (modified)
+     */
+    private static <T> void applyPermutation(T[] input, int[] order) {
+        for (int start = 0; start < order.length; start++) {
+            if (order[start] < 0) {
+                continue; // Already placed as part of an earlier cycle
+            }
+            T first = input[start];
+            int position = start;
+            while (true) {
+                int from = order[position];
+                order[position] = ~from;
+                if (from == start) {
+                    input[position] = first;
+                    break;
+                }
+                input[position] = input[from];
+                position = from;
+            }
+        }
+    }
+
+    /**
+     * Returns an iterator over the elements of the input array in ascending order, which sorts
+     * lazily: the heap is built when this method is called, and each call to next() then
+     * performs a single downheap.
+     *
+     * The input array is used as the heap, so it must not be modified while the iterator is in
+     * use. It always holds a permutation of the original elements; once every element has been
+     * returned, it is sorted in descending order.
+     *
+     * Let n denote the number of elements, and k the number of elements returned.
+     *
+     * Worst case runtime complexity: O(n) for this method, O(log n) per element returned, and
+     * so O(n + k log n) in total
+     *
+     * Worst case space complexity: O(1) auxiliary
+     *
+     * @param input elements to return in ascending order (used as the heap)
+     * @return an iterator over the elements in ascending order
+     */
+    public static <T extends Comparable<T>> Iterator<T> lazySorted(T[] input) {
+        return lazySorted(input, Comparator.naturalOrder());
+    }
+
+    /**
+     * Returns an iterator over the elements of the input array in the order given by the
+     * comparator, which sorts lazily as described in lazySorted(T[]).
+     *
+     * Worst case runtime complexity: O(n) for this method, and O(log n) per element returned
+     *
+     * Worst case space complexity: O(1) auxiliary
+     *
+     * @param input elements to return in order (used as the heap)
+     * @param comparator ordering to return elements in, from least to greatest
+     * @return an iterator over the elements from least to greatest
+     */
+    public static <T> Iterator<T> lazySorted(T[] input, Comparator<? super T> comparator) {
+        // A max heap under the reversed ordering keeps the least element at the root
+        Comparator<? super T> heapOrder = comparator.reversed();
+        quaternaryHeapify(input, input.length, heapOrder);
+
+        return new Iterator<T>() {
+            /** The number of elements not yet returned, all of which are in the heap. */
+            private int size = input.length;
+
+            @Override
+            public boolean hasNext() {
+                return this.size > 0;
+            }
+
+            @Override
+            public T next() {
+                if (this.size == 0) {
+                    throw new NoSuchElementException("No elements left.");
+                }
+                T least = input[0];
+
+                // Swap root with last node, and 'remove last node' by decrementing size
+                this.size--;
+                input[0] = input[this.size];
+                input[this.size] = least;
+                quaternaryDownheap(input, 0, this.size, heapOrder);
+                return least;
+            }
+        };
+    }
+
+    /**
+     * Rearranges the first size elements of the input array into a quaternary max heap, using
+     * bottom-up heap construction.
+     *
+     * Let n denote the given size.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param input array whose first size elements are to form the heap (modified in place)
+     * @param size number of elements, starting from index 0, to include in the heap
+     * @param comparator ordering of the heap; the greatest element ends up at index 0
+     */
+    public static <T> void quaternaryHeapify(T[] input, int size,
+            Comparator<? super T> comparator) {
+        // Start at last internal node
+        for (int position = lastInternal(size); position >= 0; position--) {
+            quaternaryDownheap(input, position, size, comparator);
+        }
+    }
+
+    /**
+     * Rearranges the first size elements of the input array into a quaternary max heap, as
+     * quaternaryHeapify does, but heapifies disjoint subtrees in parallel in the common
+     * fork-join pool (see ParallelQuaternaryHeapify). Heaps with only a few levels are built
+     * sequentially.
+     *
+     * The comparator must be safe to call from several threads at once.
+     *
+     * Worst case runtime complexity: O(n) work, and O(n / p + log^2 n) time on p processors
+     *
+     * Worst case space complexity: O(log n)
+     *
+     * @param input array whose first size elements are to form the heap (modified in place)
+     * @param size number of elements, starting from index 0, to include in the heap
+     * @param comparator ordering of the heap; the greatest element ends up at index 0
+     */
+    public static <T> void parallelQuaternaryHeapify(T[] input, int size,
+            Comparator<? super T> comparator) {
+        ParallelQuaternaryHeapify.heapify(size,
+                position -> quaternaryDownheap(input, position, size, comparator));
+    }
+
+    /**
+     * Worst case runtime complexity: O(n log n)
+     *
+     * Worst case space complexity: O(1) auxiliary
+     *
      * @param input heap in array form
      * @param size number of nodes to focus on
+     * @param comparator ordering of the heap
      * @param <T> type of each node
      */
-    private static <T extends Comparable<T>> void quaternaryHeapsort(T[] input, int size) {
-        // Base case
-        if (size == 0) {
-            return;
-        }
-        quaternaryDownheap(input, 0, size);
+    private static <T> void quaternaryHeapsort(T[] input, int size,
+            Comparator<? super T> comparator) {
+        // Iterative rather than recursive, so large inputs cannot overflow the stack
+        for (; size > 0; size--) {
+            quaternaryDownheap(input, 0, size, comparator);
 
-        // Swap root with last node
-        T toSwap = input[size - 1];
-        input[size - 1] = input[0];
-        input[0] = toSwap;
+            // Swap root with last node
+            T toSwap = input[size - 1];
+            input[size - 1] = input[0];
+            input[0] = toSwap;
 
-        // 'Remove last node' by decrementing size, and perform down heap to restore max heap order
-        quaternaryHeapsort(input, size - 1);
+            // 'Remove last node' by decrementing size, and perform down heap to restore max heap
+            // order on the next iteration
+        }
     }
 
     /**
@@ -63,12 +512,30 @@ public class QuaternaryHeapsort {
      */
     public static <T extends Comparable<T>> void quaternaryDownheap(T[] input, int start,
             int size) {
+        quaternaryDownheap(input, start, size, Comparator.naturalOrder());
+    }
+
+    /**
+     * Performs a downheap from the element in the given position on the given max heap array,
+     * where the heap is ordered by the given comparator.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param input array representing a quaternary max heap.
+     * @param start position in the array to start the downheap from.
+     * @param size the size of the heap in the input array, starting from index 0
+     * @param comparator ordering of the heap; greater elements are closer to the root
+     */
+    public static <T> void quaternaryDownheap(T[] input, int start, int size,
+            Comparator<? super T> comparator) {
         int currentParent = start;
         while (hasFarLeft(currentParent, size)) {
-            int largestChild = findLargestChild(input, currentParent, size);
+            int largestChild = findLargestChild(input, currentParent, size, comparator);
 
             // Downheap complete
-            if ((input[largestChild]).compareTo(input[currentParent]) <= 0) {
+            if (comparator.compare(input[largestChild], input[currentParent]) <= 0) {
                 break;
             }
 
@@ -80,6 +547,82 @@ public class QuaternaryHeapsort {
         }
     }
 
+    /**
+     * Performs an upheap from the element in the given position on the given max heap array,
+     * where the heap is ordered by the given comparator.
+     *
+     * An upheap restores the heap order after the element at the given position has been added
+     * or increased, by moving its smaller ancestors down a level until the element's slot is
+     * found. The array is modified in place.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param input array representing a quaternary max heap, apart from the given position.
+     * @param position position in the array to start the upheap from.
+     * @param comparator ordering of the heap; greater elements are closer to the root
+     */
+    public static <T> void quaternaryUpheap(T[] input, int position,
+            Comparator<? super T> comparator) {
+        T toSift = input[position];
+        while (position > 0) {
+            int parentPosition = parent(position);
+
+            // Upheap complete
+            if (comparator.compare(toSift, input[parentPosition]) <= 0) {
+                break;
+            }
+            input[position] = input[parentPosition];
+            position = parentPosition;
+        }
+        input[position] = toSift;
+    }
+
+    /**
+     * Performs a bottom-up downheap from the element in the given position on the given max heap
+     * array, where the subtrees of that position are already heaps.
+     *
+     * Follows the largest child at every level down to a leaf without comparing against the
+     * sifted element, walks back up until a node no smaller than the sifted element is found,
+     * then moves every element on the path between start and that node up one level (rather
+     * than swapping) and places the sifted element in the freed slot.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param input array representing a quaternary max heap.
+     * @param start position in the array to start the downheap from.
+     * @param size the size of the heap in the input array, starting from index 0
+     * @param comparator ordering of the heap; greater elements are closer to the root
+     */
+    private static <T> void bottomUpDownheap(T[] input, int start, int size,
+            Comparator<? super T> comparator) {
+        T toSift = input[start];
+
+        // Leaf search - follow the largest children down to a leaf
+        int position = start;
+        while (hasFarLeft(position, size)) {
+            position = findLargestChild(input, position, size, comparator);
+        }
+
+        // Search back up for the first node that the sifted element cannot displace
+        while (position != start && comparator.compare(toSift, input[position]) > 0) {
+            position = parent(position);
+        }
+
+        // Shift the path from start to position up a level, placing the sifted element at the end
+        T displaced = input[position];
+        input[position] = toSift;
+        while (position != start) {
+            position = parent(position);
+            T toMove = input[position];
+            input[position] = displaced;
+            displaced = toMove;
+        }
+    }
+
     /**
      * Worst case runtime complexity: O(1)
      *
@@ -88,29 +631,30 @@ public class QuaternaryHeapsort {
      * @param input
      * @param currentParent
      * @param size
+     * @param comparator
      * @param <T>
      * @return
      */
-    private static <T extends Comparable<T>> int findLargestChild(T[] input, int currentParent,
-            int size) {
+    private static <T> int findLargestChild(T[] input, int currentParent, int size,
+            Comparator<? super T> comparator) {
         int farLeftPosition = farLeft(currentParent);
         int largestChild = farLeftPosition;
 
         if (hasMidLeft(currentParent, size)) {
             int midLeftPosition = midLeft(currentParent);
-            if ((input[largestChild]).compareTo(input[midLeftPosition]) < 0) {
+            if (comparator.compare(input[largestChild], input[midLeftPosition]) < 0) {
                 largestChild = midLeftPosition;
             }
 
             if (hasMidRight(currentParent, size)) {
                 int midRightPosition = midRight(currentParent);
-                if ((input[largestChild]).compareTo(input[midRightPosition]) < 0) {
+                if (comparator.compare(input[largestChild], input[midRightPosition]) < 0) {
                     largestChild = midRightPosition;
                 }
 
                 if (hasFarRight(currentParent, size)) {
                     int farRightPosition = farRight(currentParent);
-                    if ((input[largestChild]).compareTo(input[farRightPosition]) < 0) {
+                    if (comparator.compare(input[largestChild], input[farRightPosition]) < 0) {
                         largestChild = farRightPosition;
                     }
                 }
@@ -171,16 +715,41 @@ public class QuaternaryHeapsort {
         return farRight(parentPosition) < size;
     }
 
+    /**
+     * Worst case runtime complexity: O(1)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param size number of nodes in the heap
+     * @return position of the last node with at least one child, or -1 if there is none
+     */
+    static int lastInternal(int size) {
+        return (size < 2) ? -1 : (size - 2) / 4;
+    }
+
+    /**
+     * Worst case runtime complexity: O(1)
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param childIndex position of a non-root node
+     * @return position of its parent
+     */
+    static int parent(int childIndex) {
+        return (childIndex - 1) / 4;
+    }
+
     /**
      * Worst case runtime complexity: O(1)
      *
      * Worst case space complexity: O(1)
      *
      * @param parentIndex
-     * @return
+     * @return position of the first child, or Integer.MAX_VALUE if that would overflow (so that
+     * comparing it against the size of any array correctly finds no child)
      */
-    private static int farLeft(int parentIndex) {
-        return 4 * parentIndex + 1;
+    static int farLeft(int parentIndex) {
+        return (int) Math.min(4L * parentIndex + 1, Integer.MAX_VALUE);
     }
 
     /**
@@ -191,7 +760,7 @@ public class QuaternaryHeapsort {
      * @param parentIndex
      * @return
      */
-    private static int midLeft(int parentIndex) {
+    static int midLeft(int parentIndex) {
         return 4 * parentIndex + 2;
     }
 
@@ -203,7 +772,7 @@ public class QuaternaryHeapsort {
      * @param parentIndex
      * @return
      */
-    private static int midRight(int parentIndex) {
+    static int midRight(int parentIndex) {
         return 4 * parentIndex + 3;
     }
 
@@ -215,7 +784,7 @@ public class QuaternaryHeapsort {
      * @param parentIndex
      * @return
      */
-    private static int farRight(int parentIndex) {
+    static int farRight(int parentIndex) {
         return 4 * parentIndex + 4;
     }
 }
@@ -0,0 +1,277 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Sorts fixed-width records in place within a ByteBuffer, such as a MappedByteBuffer over a file,
+ * using a quaternary heap sort.
+ *
+ * Each record is ordered by a single numeric key at a fixed offset within the record. Keys are
+ * read directly from the buffer (in the buffer's byte order) whenever they are compared, and
+ * records are swapped within the buffer eight bytes at a time, so no record is deserialised or
+ * copied onto the Java heap, and the sort allocates no per-record or per-element objects.
+ *
+ * The heap layout and downheap are those of QuaternaryHeapsort, with record indexes in place of
+ * array positions.
+ */
+public class QuaternaryRecordHeapsort {
+
+    /**
+     * The type of the key within each record.
+     */
+    public enum KeyType {
+        /** A signed 32 bit integer. */
+        INT(Integer.BYTES) {
+            @Override
+            int compare(ByteBuffer records, int position1, int position2) {
+                return Integer.compare(records.getInt(position1), records.getInt(position2));
+            }
+        },
+
+        /** A signed 64 bit integer. */
+        LONG(Long.BYTES) {
+            @Override
+            int compare(ByteBuffer records, int position1, int position2) {
+                return Long.compare(records.getLong(position1), records.getLong(position2));
+            }
+        },
+
+        /** A 32 bit floating point number, ordered as by Float.compare. */
+        FLOAT(Float.BYTES) {
+            @Override
+            int compare(ByteBuffer records, int position1, int position2) {
+                return Float.compare(records.getFloat(position1), records.getFloat(position2));
+            }
+        },
+
+        /** A 64 bit floating point number, ordered as by Double.compare. */
+        DOUBLE(Double.BYTES) {
+            @Override
+            int compare(ByteBuffer records, int position1, int position2) {
+                return Double.compare(records.getDouble(position1), records.getDouble(position2));
+            }
+        };
+
+        /** The width of the key, in bytes. */
+        private final int width;
+
+        /**
+         * @param width the width of the key, in bytes
+         */
+        KeyType(int width) {
+            this.width = width;
+        }
+
+        /**
+         * Compares the keys at the given absolute positions of the buffer.
+         *
+         * @param records buffer containing the keys
+         * @param position1 position of the first key
+         * @param position2 position of the second key
+         * @return a negative number, zero, or a positive number if the first key is less than,
+         * equal to, or greater than the second
+         */
+        abstract int compare(ByteBuffer records, int position1, int position2);
+    }
+
+    /**
+     * Sorts the records of the given file in place, by mapping it into memory.
+     *
+     * @param file file of fixed-width records, at most Integer.MAX_VALUE bytes long
+     * @param recordWidth width of each record, in bytes
+     * @param keyOffset offset of the key within each record, in bytes
+     * @param keyType type of the key, read in big-endian byte order
+     * @throws IOException if the file cannot be mapped, is too large to map, or its length is
+     * not a multiple of the record width
+     * @throws IllegalArgumentException if the record width is not positive, or the key does not
+     * fit within a record
+     * @throws NullPointerException if keyType is null
+     */
+    public static void quaternaryHeapsort(Path file, int recordWidth, int keyOffset,
+            KeyType keyType) throws IOException {
+        checkRecordLayout(recordWidth, keyOffset, keyType);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Length of " + file + " is too large to map: " + length);
+            }
+            if (length % recordWidth != 0) {
+                throw new IOException("Length of " + file + " is not a multiple of the record " +
+                        "width " + recordWidth);
+            }
+            MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            quaternaryHeapsort(records, recordWidth, keyOffset, keyType);
+            records.force();
+        }
+    }
+
+    /**
+     * @param recordWidth width of each record, in bytes
+     * @param keyOffset offset of the key within each record, in bytes
+     * @param keyType type of the key
+     * @throws IllegalArgumentException if the record width is not positive, or the key does not
+     * fit within a record
+     * @throws NullPointerException if keyType is null
+     */
+    private static void checkRecordLayout(int recordWidth, int keyOffset, KeyType keyType) {
+        Objects.requireNonNull(keyType, "Key type cannot be null");
+        if (recordWidth <= 0 || keyOffset < 0 || keyOffset > recordWidth - keyType.width) {
+            throw new IllegalArgumentException("Key of width " + keyType.width + " at offset " +
+                    keyOffset + " does not fit in a record of width " + recordWidth);
+        }
+    }
+
+    /**
+     * Sorts the records between the buffer's position and limit in place, by the key at the
+     * given offset within each record. The buffer's position and limit are not changed.
+     *
+     * Let n denote the number of records.
+     *
+     * Worst case runtime complexity: O(n log n) key comparisons, and O(n log n) record swaps
+     *
+     * Worst case space complexity: O(1)
+     *
+     * @param records buffer of fixed-width records (modified in place)
+     * @param recordWidth width of each record, in bytes
+     * @param keyOffset offset of the key within each record, in bytes
+     * @param keyType type of the key, read in the buffer's byte order
+     * @throws IllegalArgumentException if the record width is not positive, the key does not
+     * fit within a record, or the number of bytes between the position and limit is not a
+     * multiple of the record width
+     * @throws NullPointerException if keyType is null
+     */
+    public static void quaternaryHeapsort(ByteBuffer records, int recordWidth, int keyOffset,
+            KeyType keyType) {
+        checkRecordLayout(recordWidth, keyOffset, keyType);
+        if (records.remaining() % recordWidth != 0) {
+            throw new IllegalArgumentException("Buffer does not hold a whole number of records " +
+                    "of width " + recordWidth);
+        }
+        RecordHeap heap = new RecordHeap(records, recordWidth, keyOffset, keyType);
+        int size = records.remaining() / recordWidth;
+
+        // Bottom-Up Heap Construction - start at last internal node
+        for (int index = QuaternaryHeapsort.lastInternal(size); index >= 0; index--) {
+            heap.downheap(index, size);
+        }
+        for (size--; size > 0; size--) {
+            // Move the maximum to its final position, then restore the heap order
+            heap.swap(0, size);
+            heap.downheap(0, size);
+        }
+    }
+
+    /**
+     * A quaternary max heap of the records in a buffer, ordered by key.
+     */
+    private static class RecordHeap {
+        /** The buffer holding the records. */
+        private final ByteBuffer records;
+
+        /** The absolute position of the first record in the buffer. */
+        private final int base;
+
+        /** The width of each record, in bytes. */
+        private final int recordWidth;
+
+        /** The offset of the key within each record, in bytes. */
+        private final int keyOffset;
+
+        /** The type of the key. */
+        private final KeyType keyType;
+
+        /**
+         * @param records the buffer holding the records, from its position onwards
+         * @param recordWidth the width of each record, in bytes
+         * @param keyOffset the offset of the key within each record, in bytes
+         * @param keyType the type of the key
+         */
+        RecordHeap(ByteBuffer records, int recordWidth, int keyOffset, KeyType keyType) {
+            this.records = records;
+            this.base = records.position();
+            this.recordWidth = recordWidth;
+            this.keyOffset = keyOffset;
+            this.keyType = keyType;
+        }
+
+        /**
+         * Compares the keys of the records with the given indexes.
+         *
+         * @param index1 index of the first record
+         * @param index2 index of the second record
+         * @return a negative number, zero, or a positive number if the first key is less than,
+         * equal to, or greater than the second
+         */
+        int compare(int index1, int index2) {
+            return this.keyType.compare(this.records, this.keyPosition(index1),
+                    this.keyPosition(index2));
+        }
+
+        /**
+         * @param index index of a record
+         * @return absolute position of the record's key within the buffer
+         */
+        private int keyPosition(int index) {
+            return this.base + index * this.recordWidth + this.keyOffset;
+        }
+
+        /**
+         * Performs a downheap from the record with the given index, as in
+         * QuaternaryHeapsort.quaternaryDownheap.
+         *
+         * Worst case runtime complexity: O(log n)
+         *
+         * @param start index of the record to start the downheap from
+         * @param size number of records in the heap
+         */
+        void downheap(int start, int size) {
+            int currentParent = start;
+            int farLeftIndex;
+            while ((farLeftIndex = QuaternaryHeapsort.farLeft(currentParent)) < size) {
+                int largestChild = farLeftIndex;
+                int lastChild = Math.min(farLeftIndex + 3, size - 1);
+                for (int child = farLeftIndex + 1; child <= lastChild; child++) {
+                    if (this.compare(largestChild, child) < 0) {
+                        largestChild = child;
+                    }
+                }
+
+                // Downheap complete
+                if (this.compare(largestChild, currentParent) <= 0) {
+                    break;
+                }
+                this.swap(largestChild, currentParent);
+                currentParent = largestChild;
+            }
+        }
+
+        /**
+         * Swaps the records with the given indexes within the buffer, eight bytes at a time.
+         *
+         * Worst case runtime complexity: O(recordWidth)
+         *
+         * @param index1 index of the first record
+         * @param index2 index of the second record
+         */
+        void swap(int index1, int index2) {
+            int position1 = this.base + index1 * this.recordWidth;
+            int position2 = this.base + index2 * this.recordWidth;
+            int offset = 0;
+            for (; offset + Long.BYTES <= this.recordWidth; offset += Long.BYTES) {
+                long toSwap = this.records.getLong(position1 + offset);
+                this.records.putLong(position1 + offset, this.records.getLong(position2 + offset));
+                this.records.putLong(position2 + offset, toSwap);
+            }
+            for (; offset < this.recordWidth; offset++) {
+                byte toSwap = this.records.get(position1 + offset);
+                this.records.put(position1 + offset, this.records.get(position2 + offset));
+                this.records.put(position2 + offset, toSwap);
+            }
+        }
+    }
+}
@@ -0,0 +1,453 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * An adaptive sort, which inspects its input and chooses the cheapest of several strategies,
+ * falling back on QuaternaryHeapsort for its O(n log n) worst case and O(1) space (beyond the
+ * run boundaries recorded while scanning).
+ *
+ * The input is first scanned for runs (ascending, or strictly descending runs, which are
+ * reversed in place). The scan stops as soon as the runs are too short to be worth merging, so
+ * it adds little to the cost of unsorted input. The strategies are, in order of preference:
+ *  - ALREADY_SORTED / REVERSED: the input is a single run, so at most a reversal is needed.
+ *  - INSERTION_SORT: the input is shorter than INSERTION_SORT_THRESHOLD.
+ *  - RUN_MERGE: (objects only) the runs are long on average, so they are merged pairwise, using
+ *    O(n) auxiliary space and O(n log r) comparisons for r runs.
+ *  - RADIX: (int and long keys only) an LSD radix sort on bytes, skipping bytes on which all
+ *    keys agree, using O(n) auxiliary space.
+ *  - HEAPSORT: (objects only) a quaternary heap sort.
+ *
+ * Each sort returns the strategy it chose.
+ */
+public class SortEngine {
+    /** Inputs shorter than this are insertion sorted. */
+    static final int INSERTION_SORT_THRESHOLD = 32;
+
+    /** Runs are merged only when they are at least this long on average. */
+    static final int MIN_AVERAGE_RUN_LENGTH = 64;
+
+    /** The number of bits sorted by each radix sort pass. */
+    private static final int RADIX_BITS = 8;
+
+    /** The number of buckets used by each radix sort pass. */
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    /**
+     * A way of sorting the input.
+     */
+    public enum Strategy {
+        /** The input was already in ascending order. */
+        ALREADY_SORTED,
+        /** The input was in strictly descending order, and was reversed. */
+        REVERSED,
+        /** The input was short, and was insertion sorted. */
+        INSERTION_SORT,
+        /** The input consisted of a few long runs, which were merged. */
+        RUN_MERGE,
+        /** The input was radix sorted. */
+        RADIX,
+        /** The input was quaternary heap sorted. */
+        HEAPSORT
+    }
+
+    /**
+     * Sorts the input array, in-place, into ascending order, choosing a strategy to suit it.
+     *
+     * Let n denote the number of elements.
+     *
+     * Worst case runtime complexity: O(n log n)
+     *
+     * Worst case space complexity: O(n) when runs are merged; otherwise O(n / 64), for the run
+     * boundaries recorded while scanning (at most n / MIN_AVERAGE_RUN_LENGTH of them)
+     *
+     * @param input to be sorted (modified in place)
+     * @return the strategy used
+     */
+    public static <T extends Comparable<T>> Strategy sort(T[] input) {
+        return sort(input, Comparator.naturalOrder());
+    }
+
+    /**
+     * Sorts the input array, in-place, into the order given by the comparator, choosing a
+     * strategy to suit it.
+     *
+     * Worst case runtime complexity: O(n log n)
+     *
+     * Worst case space complexity: O(n) when runs are merged; otherwise O(n / 64), for the run
+     * boundaries recorded while scanning (at most n / MIN_AVERAGE_RUN_LENGTH of them)
+     *
+     * @param input to be sorted (modified in place)
+     * @param comparator ordering to sort by, from least to greatest
+     * @return the strategy used
+     */
+    public static <T> Strategy sort(T[] input, Comparator<? super T> comparator) {
+        int length = input.length;
+        int maxRuns = Math.max(1, length / MIN_AVERAGE_RUN_LENGTH);
+        int[] runEnds = new int[Math.min(maxRuns, INSERTION_SORT_THRESHOLD)];
+        int runs = 0;
+        boolean reversed = false;
+        for (int start = 0; start < length; ) {
+            int end = start + 1;
+            if (end < length && comparator.compare(input[end], input[start]) < 0) {
+                while (end < length && comparator.compare(input[end], input[end - 1]) < 0) {
+                    end++;
+                }
+                reverse(input, start, end);
+                reversed = true;
+            } else {
+                while (end < length && comparator.compare(input[end], input[end - 1]) >= 0) {
+                    end++;
+                }
+            }
+            if (runs == maxRuns) {
+                runs++;
+                break; // Too many runs to be worth merging
+            }
+            if (runs == runEnds.length) {
+                runEnds = Arrays.copyOf(runEnds, Math.min(maxRuns, 2 * runs));
+            }
+            runEnds[runs++] = end;
+            start = end;
+        }
+
+        if (runs <= 1) {
+            return reversed ? Strategy.REVERSED : Strategy.ALREADY_SORTED;
+        }
+        if (length < INSERTION_SORT_THRESHOLD) {
+            insertionSort(input, comparator);
+            return Strategy.INSERTION_SORT;
+        }
+        if (runs <= maxRuns) {
+            mergeRuns(input, runEnds, runs, comparator);
+            return Strategy.RUN_MERGE;
+        }
+        QuaternaryHeapsort.quaternaryHeapsort(input, comparator);
+        return Strategy.HEAPSORT;
+    }
+
+    /**
+     * Sorts the input array, in-place, into ascending order, choosing a strategy to suit it.
+     *
+     * Let n denote the number of elements.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(n), only when radix sorting; otherwise O(1)
+     *
+     * @param input to be sorted (modified in place)
+     * @return the strategy used
+     */
+    public static Strategy sort(int[] input) {
+        int length = input.length;
+        int ascending = 1;
+        while (ascending < length && input[ascending - 1] <= input[ascending]) {
+            ascending++;
+        }
+        if (ascending >= length) {
+            return Strategy.ALREADY_SORTED;
+        }
+        if (ascending == 1) {
+            int descending = 1;
+            while (descending < length && input[descending - 1] > input[descending]) {
+                descending++;
+            }
+            if (descending == length) {
+                reverse(input);
+                return Strategy.REVERSED;
+            }
+        }
+        if (length < INSERTION_SORT_THRESHOLD) {
+            insertionSort(input);
+            return Strategy.INSERTION_SORT;
+        }
+        radixSort(input);
+        return Strategy.RADIX;
+    }
+
+    /**
+     * Sorts the input array, in-place, into ascending order, choosing a strategy to suit it.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(n), only when radix sorting; otherwise O(1)
+     *
+     * @param input to be sorted (modified in place)
+     * @return the strategy used
+     */
+    public static Strategy sort(long[] input) {
+        int length = input.length;
+        int ascending = 1;
+        while (ascending < length && input[ascending - 1] <= input[ascending]) {
+            ascending++;
+        }
+        if (ascending >= length) {
+            return Strategy.ALREADY_SORTED;
+        }
+        if (ascending == 1) {
+            int descending = 1;
+            while (descending < length && input[descending - 1] > input[descending]) {
+                descending++;
+            }
+            if (descending == length) {
+                reverse(input);
+                return Strategy.REVERSED;
+            }
+        }
+        if (length < INSERTION_SORT_THRESHOLD) {
+            insertionSort(input);
+            return Strategy.INSERTION_SORT;
+        }
+        radixSort(input);
+        return Strategy.RADIX;
+    }
+
+    /**
+     * Merges adjacent pairs of sorted runs until a single run remains.
+     *
+     * Worst case runtime complexity: O(n log r), for r runs
+     *
+     * Worst case space complexity: O(n)
+     *
+     * @param input array of sorted runs (modified in place)
+     * @param runEnds exclusive end of each run, in order
+     * @param runs number of runs
+     * @param comparator ordering of the runs
+     */
+    private static <T> void mergeRuns(T[] input, int[] runEnds, int runs,
+            Comparator<? super T> comparator) {
+        T[] buffer = Arrays.copyOf(input, input.length);
+        while (runs > 1) {
+            int merged = 0;
+            for (int run = 0; run < runs; run += 2) {
+                int start = (run == 0) ? 0 : runEnds[run - 1];
+                if (run + 1 == runs) {
+                    // Odd run out is carried over to the next round as it is
+                    runEnds[merged++] = runEnds[run];
+                    continue;
+                }
+                merge(input, buffer, start, runEnds[run], runEnds[run + 1], comparator);
+                runEnds[merged++] = runEnds[run + 1];
+            }
+            runs = merged;
+        }
+    }
+
+    /**
+     * Merges the adjacent sorted ranges [start, middle) and [middle, end) of the input, using
+     * the buffer to hold the first range.
+     *
+     * @param input array containing both ranges (modified in place)
+     * @param buffer array at least as long as input
+     * @param start start of the first range
+     * @param middle end of the first range and start of the second
+     * @param end end of the second range
+     * @param comparator ordering of the ranges
+     */
+    private static <T> void merge(T[] input, T[] buffer, int start, int middle, int end,
+            Comparator<? super T> comparator) {
+        // Already in order, as can happen next to a reversed descending run
+        if (comparator.compare(input[middle - 1], input[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(input, start, buffer, start, middle - start);
+        int left = start;
+        int right = middle;
+        int position = start;
+        while (left < middle && right < end) {
+            input[position++] = (comparator.compare(input[right], buffer[left]) < 0) ?
+                    input[right++] : buffer[left++];
+        }
+        System.arraycopy(buffer, left, input, position, middle - left);
+    }
+
+    /**
+     * Worst case runtime complexity: O(n^2)
+     *
+     * @param input to be sorted (modified in place)
+     * @param comparator ordering to sort by
+     */
+    private static <T> void insertionSort(T[] input, Comparator<? super T> comparator) {
+        for (int i = 1; i < input.length; i++) {
+            T toInsert = input[i];
+            int position = i;
+            while (position > 0 && comparator.compare(toInsert, input[position - 1]) < 0) {
+                input[position] = input[position - 1];
+                position--;
+            }
+            input[position] = toInsert;
+        }
+    }
+
+    /**
+     * Worst case runtime complexity: O(n^2)
+     *
+     * @param input to be sorted (modified in place)
+     */
+    private static void insertionSort(int[] input) {
+        for (int i = 1; i < input.length; i++) {
+            int toInsert = input[i];
+            int position = i;
+            while (position > 0 && toInsert < input[position - 1]) {
+                input[position] = input[position - 1];
+                position--;
+            }
+            input[position] = toInsert;
+        }
+    }
+
+    /**
+     * Worst case runtime complexity: O(n^2)
+     *
+     * @param input to be sorted (modified in place)
+     */
+    private static void insertionSort(long[] input) {
+        for (int i = 1; i < input.length; i++) {
+            long toInsert = input[i];
+            int position = i;
+            while (position > 0 && toInsert < input[position - 1]) {
+                input[position] = input[position - 1];
+                position--;
+            }
+            input[position] = toInsert;
+        }
+    }
+
+    /**
+     * Sorts the input with a least significant digit radix sort on each byte, treating the
+     * most significant byte as signed. Passes in which every key has the same byte are skipped.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(n)
+     *
+     * @param input to be sorted (modified in place)
+     */
+    private static void radixSort(int[] input) {
+        int[] source = input;
+        int[] target = new int[input.length];
+        int[] counts = new int[RADIX];
+        for (int shift = 0; shift < Integer.SIZE; shift += RADIX_BITS) {
+            // Flipping the sign bit orders negative keys before positive ones
+            int flip = (shift == Integer.SIZE - RADIX_BITS) ? RADIX >> 1 : 0;
+            Arrays.fill(counts, 0);
+            for (int key : source) {
+                counts[((key >>> shift) & (RADIX - 1)) ^ flip]++;
+            }
+            if (isSingleBucket(counts, source.length)) {
+                continue;
+            }
+            toStartPositions(counts);
+            for (int key : source) {
+                target[counts[((key >>> shift) & (RADIX - 1)) ^ flip]++] = key;
+            }
+            int[] sorted = target;
+            target = source;
+            source = sorted;
+        }
+        if (source != input) {
+            System.arraycopy(source, 0, input, 0, input.length);
+        }
+    }
+
+    /**
+     * Sorts the input with a least significant digit radix sort on each byte, treating the
+     * most significant byte as signed. Passes in which every key has the same byte are skipped.
+     *
+     * Worst case runtime complexity: O(n)
+     *
+     * Worst case space complexity: O(n)
+     *
+     * @param input to be sorted (modified in place)
+     */
+    private static void radixSort(long[] input) {
+        long[] source = input;
+        long[] target = new long[input.length];
+        int[] counts = new int[RADIX];
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            // Flipping the sign bit orders negative keys before positive ones
+            int flip = (shift == Long.SIZE - RADIX_BITS) ? RADIX >> 1 : 0;
+            Arrays.fill(counts, 0);
+            for (long key : source) {
+                counts[((int) (key >>> shift) & (RADIX - 1)) ^ flip]++;
+            }
+            if (isSingleBucket(counts, source.length)) {
+                continue;
+            }
+            toStartPositions(counts);
+            for (long key : source) {
+                target[counts[((int) (key >>> shift) & (RADIX - 1)) ^ flip]++] = key;
+            }
+            long[] sorted = target;
+            target = source;
+            source = sorted;
+        }
+        if (source != input) {
+            System.arraycopy(source, 0, input, 0, input.length);
+        }
+    }
+
+    /**
+     * @param counts number of keys in each bucket
+     * @param length total number of keys
+     * @return true if all keys are in one bucket, so the pass would not change their order
+     */
+    private static boolean isSingleBucket(int[] counts, int length) {
+        for (int count : counts) {
+            if (count != 0) {
+                return count == length;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replaces each bucket's count with the position at which the bucket starts.
+     *
+     * @param counts number of keys in each bucket (modified in place)
+     */
+    private static void toStartPositions(int[] counts) {
+        int position = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            int count = counts[bucket];
+            counts[bucket] = position;
+            position += count;
+        }
+    }
+
+    /**
+     * Reverses the range [start, end) of the input.
+     *
+     * @param input array containing the range (modified in place)
+     * @param start start of the range
+     * @param end end of the range
+     */
+    private static void reverse(Object[] input, int start, int end) {
+        for (end--; start < end; start++, end--) {
+            Object toSwap = input[start];
+            input[start] = input[end];
+            input[end] = toSwap;
+        }
+    }
+
+    /**
+     * @param input array to reverse (modified in place)
+     */
+    private static void reverse(int[] input) {
+        for (int start = 0, end = input.length - 1; start < end; start++, end--) {
+            int toSwap = input[start];
+            input[start] = input[end];
+            input[end] = toSwap;
+        }
+    }
+
+    /**
+     * @param input array to reverse (modified in place)
+     */
+    private static void reverse(long[] input) {
+        for (int start = 0, end = input.length - 1; start < end; start++, end--) {
+            long toSwap = input[start];
+            input[start] = input[end];
+            input[end] = toSwap;
+        }
+    }
+}
@@ -1,4 +1,328 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Strong binary max heaps: complete binary trees in which each value is smaller than its parent,
+ * and the sum of each value and its parent is smaller than its grandparent.
+ *
+ * The static isStrongHeap checks whether a pointer-based BinaryTree is a strong heap. Instances
+ * of this class are strong heaps of ints, and instances of StrongHeap.OfLong strong heaps of
+ * longs, stored as implicit complete trees in a primitive array (the children of position i are
+ * at positions 2i + 1 and 2i + 2), with no per-node objects.
+ *
+ * Unlike an ordinary heap, not every collection of values can be arranged as a strong heap (two
+ * equal values never can), and an insertion or removal can leave values that cannot be arranged
+ * as one at all. Each mutator therefore sifts as an ordinary max heap does, in O(log n) time,
+ * and then verifies the strong heap property around every position it changed. If that fails,
+ * all the values are rearranged (see Arrangement): first greedily, in O(n log n) time, and if
+ * that gets stuck, by a backtracking search that takes time exponential in n in the worst case.
+ * Only when no arrangement exists at all is the heap left unchanged and an exception thrown.
+ */
 public class StrongHeap {
+    /** The initial capacity of the internal array when none is given. */
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /** The greatest number of levels a heap of int-indexed nodes can have. */
+    private static final int MAX_LEVELS = 32;
+
+    /** The values of the heap, in positions 0 to (size - 1). */
+    private int[] heap;
+
+    /** The number of values in the heap. */
+    private int size;
+
+    /** The positions on the path an insert or extractMax may change, reused between calls. */
+    private final int[] undoPositions = new int[MAX_LEVELS];
+
+    /** The values at undoPositions before the change, reused between calls. */
+    private final int[] undoValues = new int[MAX_LEVELS];
+
+    /**
+     * Creates a new, empty strong heap.
+     */
+    public StrongHeap() {
+        this.heap = new int[DEFAULT_INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Creates a strong heap holding exactly the given values, arranged as described by
+     * Arrangement.
+     *
+     * Let n denote the number of values.
+     *
+     * Worst case runtime complexity: O(n log n) if the greedy arrangement succeeds, otherwise
+     * exponential in n
+     *
+     * Worst case space complexity: O(n)
+     *
+     * @param values values to hold in the heap
+     * @return the heap
+     * @throws IllegalArgumentException if the values cannot be arranged as a strong heap
+     */
+    public static StrongHeap heapify(int... values) {
+        StrongHeap result = new StrongHeap();
+        result.heap = new int[Math.max(values.length, 1)];
+        if (!result.rearrange(widen(values, 0, values.length))) {
+            throw new IllegalArgumentException("Values cannot be arranged as a strong heap");
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of values in the heap
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return true if the heap holds no values
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * @return a copy of the values of the heap, in level order
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(this.heap, this.size);
+    }
+
+    /**
+     * Worst case runtime complexity: O(1)
+     *
+     * @return the greatest value in the heap
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int peekMax() {
+        if (this.size == 0) {
+            throw new NoSuchElementException("Heap is empty.");
+        }
+        return this.heap[0];
+    }
+
+    /**
+     * Inserts the given value, by an upheap from a new last leaf.
+     *
+     * Worst case runtime complexity: O(log n) if the upheap keeps the strong heap property,
+     * otherwise O(n log n) if the greedy arrangement succeeds, and exponential in n if not
+     *
+     * Worst case space complexity: O(1), or O(n) if the values are rearranged
+     *
+     * @param value value to insert
+     * @throws IllegalArgumentException if the values, with the given value, cannot be arranged
+     * as a strong heap; the heap is then unchanged
+     */
+    public void insert(int value) {
+        if (this.size == this.heap.length) {
+            int growth = Math.max(this.heap.length >> 1, 1);
+            this.heap = Arrays.copyOf(this.heap, this.heap.length + growth);
+        }
+
+        // Remember the path from the new leaf to the root, so the upheap can be undone
+        int pathLength = 0;
+        for (int position = this.size; position > 0; position = parent(position)) {
+            this.undoPositions[pathLength] = parent(position);
+            this.undoValues[pathLength++] = this.heap[parent(position)];
+        }
+
+        int position = this.size++;
+        while (position > 0 && this.heap[parent(position)] < value) {
+            this.heap[position] = this.heap[parent(position)];
+            position = parent(position);
+        }
+        this.heap[position] = value;
+
+        if (this.satisfiedAlongPath(this.size - 1, position)) {
+            return;
+        }
+        for (int i = 0; i < pathLength; i++) {
+            this.heap[this.undoPositions[i]] = this.undoValues[i];
+        }
+        this.heap[--this.size] = value;
+        if (!this.rearrange(widen(this.heap, 0, this.size + 1))) {
+            throw new IllegalArgumentException("Cannot insert " + value + " into this strong heap");
+        }
+    }
+
+    /**
+     * Removes and returns the greatest value, by a downheap of the last leaf from the root.
+     *
+     * Worst case runtime complexity: O(log n) if the downheap keeps the strong heap property,
+     * otherwise O(n log n) if the greedy arrangement succeeds, and exponential in n if not
+     *
+     * Worst case space complexity: O(1), or O(n) if the values are rearranged
+     *
+     * @return the greatest value in the heap
+     * @throws NoSuchElementException if the heap is empty
+     * @throws IllegalStateException if the remaining values cannot be arranged as a strong
+     * heap; the heap is then unchanged
+     */
+    public int extractMax() {
+        int max = this.peekMax();
+        int last = this.heap[--this.size];
+        if (this.size == 0) {
+            return max;
+        }
+
+        // Remember the path the downheap may change, so it can be undone
+        int pathLength = 0;
+        int position = 0;
+        while (true) {
+            this.undoPositions[pathLength] = position;
+            this.undoValues[pathLength++] = this.heap[position];
+            int largestChild = leftChild(position);
+            if (largestChild >= this.size) {
+                break;
+            }
+            if (largestChild + 1 < this.size && this.heap[largestChild + 1] >
+                    this.heap[largestChild]) {
+                largestChild++;
+            }
+            if (this.heap[largestChild] <= last) {
+                break;
+            }
+            this.heap[position] = this.heap[largestChild];
+            position = largestChild;
+        }
+        this.heap[position] = last;
+
+        if (this.satisfiedAlongPath(position, 0)) {
+            return max;
+        }
+        for (int i = 0; i < pathLength; i++) {
+            this.heap[this.undoPositions[i]] = this.undoValues[i];
+        }
+        this.heap[this.size++] = last;
+        if (!this.rearrange(widen(this.heap, 1, this.size))) {
+            throw new IllegalStateException("Removing " + max + " leaves values that cannot be " +
+                    "arranged as a strong heap");
+        }
+        return max;
+    }
+
+    /**
+     * Replaces the contents of the heap with the given values, if they can be arranged as a
+     * strong heap. The heap's array must have room for them.
+     *
+     * @param values values to hold in the heap, which are reordered
+     * @return true if the heap was replaced, or false (leaving it unchanged) if the values
+     * cannot be arranged as a strong heap
+     */
+    private boolean rearrange(long[] values) {
+        if (!Arrangement.arrange(values)) {
+            return false;
+        }
+        for (int i = 0; i < values.length; i++) {
+            this.heap[i] = (int) values[i];
+        }
+        this.size = values.length;
+        return true;
+    }
+
+    /**
+     * @param values array of values
+     * @param from start of the values to copy, inclusive
+     * @param to end of the values to copy, exclusive
+     * @return a new array of the values from position from to position (to - 1), as longs
+     */
+    private static long[] widen(int[] values, int from, int to) {
+        long[] result = new long[to - from];
+        for (int i = from; i < to; i++) {
+            result[i - from] = values[i];
+        }
+        return result;
+    }
+
+    /**
+     * Checks the strong heap property around every position on the path from the given
+     * position up to the given ancestor (inclusive), i.e. every position a sift between them
+     * could have changed.
+     *
+     * Worst case runtime complexity: O(log n)
+     *
+     * @param position lowest position on the path
+     * @param ancestor highest position on the path, an ancestor of (or equal to) position
+     * @return true if the property holds around every position on the path
+     */
+    private boolean satisfiedAlongPath(int position, int ancestor) {
+        while (true) {
+            if (!this.satisfiedAround(position)) {
+                return false;
+            }
+            if (position == ancestor) {
+                return true;
+            }
+            position = parent(position);
+        }
+    }
+
+    /**
+     * Checks every constraint of the strong heap property that involves the given position: as
+     * a child (against its parent and grandparent), as a parent (of its children) and as a
+     * grandparent (of its grandchildren).
+     *
+     * Worst case runtime complexity: O(1)
+     *
+     * @param position position in the heap
+     * @return true if all those constraints hold
+     */
+    private boolean satisfiedAround(int position) {
+        if (position > 0 && !satisfiedAt(this.heap, position)) {
+            return false;
+        }
+        int firstChild = leftChild(position);
+        for (int child = firstChild; child < this.size && child <= firstChild + 1; child++) {
+            if (!satisfiedAt(this.heap, child)) {
+                return false;
+            }
+            int firstGrandchild = leftChild(child);
+            for (int grandchild = firstGrandchild; grandchild < this.size &&
+                    grandchild <= firstGrandchild + 1; grandchild++) {
+                if (!satisfiedAt(this.heap, grandchild)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks the strong heap property of the given non-root position against its parent and
+     * grandparent.
+     *
+     * @param heap values in level order
+     * @param position position in the heap, other than the root
+     * @return true if the value is smaller than its parent, and its sum with its parent is
+     * smaller than its grandparent (if any)
+     */
+    private static boolean satisfiedAt(int[] heap, int position) {
+        int parent = parent(position);
+        if (heap[position] >= heap[parent]) {
+            return false;
+        }
+        return parent == 0 || (long) heap[position] + heap[parent] < heap[parent(parent)];
+    }
+
+    /**
+     * @param childIndex position of a non-root node
+     * @return position of its parent
+     */
+    private static int parent(int childIndex) {
+        return (childIndex - 1) / 2;
+    }
+
+    /**
+     * @param parentIndex position of a node
+     * @return position of its left child, or Integer.MAX_VALUE if that would overflow
+     */
+    private static int leftChild(int parentIndex) {
+        return (int) Math.min(2L * parentIndex + 1, Integer.MAX_VALUE);
+    }
+
     /**
      * Determines whether the binary tree with the given root node is
      * a "strong binary heap", as described in the assignment task sheet.
@@ -7,105 +331,733 @@ public class StrongHeap {
      *  - a complete binary tree, AND
      *  - its values satisfy the strong heap property.
      *
+     * Both conditions are checked together, in a single level-order traversal of the tree using
+     * an explicit queue (so that deep or unbalanced trees cannot overflow the stack).
+     *
+     * A tree is complete exactly when, in level order, no node follows a missing child. Hence,
+     * each node's children are examined from left to right, and once a missing child has been
+     * seen, any further child means the tree is not complete.
+     *
+     * The strong heap property requires each child to be smaller than its parent, and the sum of
+     * each child and its parent to be smaller than the grandparent. Each node therefore checks
+     * its own children, and also its grandchildren against the sums with their parents, so every
+     * node is compared against both its parent and grandparent exactly once. Sums are computed
+     * with longs, so values near Integer.MAX_VALUE cannot overflow.
+     *
      * Let n denote the number of nodes in the given binary tree.
      *
-     * As this method simply calls and compares the return values of two methods (in succession)
-     * that are both bounded by O(n) runtime and space complexity, we may say this method is also
-     * bounded by O(n) runtime and space complexity.
+     * Each node is added to and removed from the queue at most once, and examining a node takes
+     * constant time (it has at most 2 children and 4 grandchildren). Hence, this method is bounded
+     * by O(n) runtime complexity.
+     *
+     * Regarding space complexity, the queue holds at most the nodes of two adjacent levels of the
+     * tree, hence this method is bounded by O(n) space complexity (and O(1) stack depth).
      *
      * @param root root of a binary tree, cannot be null.
      * @return true if the tree is a strong heap, otherwise false.
      */
     public static boolean isStrongHeap(BinaryTree<Integer> root) {
-        return isCompleteBinaryTree(root) && satisfiesStrongMaxHeapProperty(root, null);
+        ArrayDeque<BinaryTree<Integer>> queue = new ArrayDeque<>();
+        queue.add(root);
+        boolean missingChildSeen = false;
+
+        while (!queue.isEmpty()) {
+            BinaryTree<Integer> current = queue.poll();
+            BinaryTree<Integer> left = current.getLeft();
+            BinaryTree<Integer> right = current.getRight();
+
+            // Completeness - no child may follow a missing child in level order
+            if (left == null) {
+                missingChildSeen = true;
+            } else if (missingChildSeen) {
+                return false;
+            }
+            if (right == null) {
+                missingChildSeen = true;
+            } else if (missingChildSeen) {
+                return false;
+            }
+
+            if (!satisfiesStrongMaxHeapProperty(current, left) ||
+                    !satisfiesStrongMaxHeapProperty(current, right)) {
+                return false;
+            }
+            if (left != null) {
+                queue.add(left);
+            }
+            if (right != null) {
+                queue.add(right);
+            }
+        }
+        return true;
     }
 
     /**
-     * Checks and returns if the tree with the given root node, is a complete binary tree.
+     * Determines whether the given compact binary tree is a strong binary heap, as isStrongHeap
+     * does for a pointer-based tree. A compact tree numbers its nodes in level order, so it is
+     * complete exactly when each node's children are at 2i + 1 and 2i + 2 (always, in implicit
+     * mode), and its values then form an implicit heap that HeapChecks can scan directly.
      *
-     * Let n denote the number of nodes in the given binary tree.
+     * Let n denote the number of nodes in the given tree.
      *
-     * In the worst case, each node would have to be visited at least once. Hence, there may be
-     * upto n recursive calls of this function. As only if statements, calls to methods bounded by
-     * constant runtime complexity, and return statements are present, we may say that each
-     * recursive call is bounded by constant runtime complexity. Hence, this method is bounded by
-     * O(n) runtime complexity.
+     * Worst case runtime complexity: O(n)
      *
-     * Regarding space complexity, in the worst case, each stack frame would have to store a
-     * single root node. As each node only stores a single element of some generic type, and two
-     * references to possibly null child nodes, we may say that each stack frame is bounded by
-     * constant space complexity. Hence, we may say that this method is bounded by O(n) space
-     * complexity.
+     * Worst case space complexity: O(1)
+     *
+     * @param tree compact binary tree, cannot be null.
+     * @return true if the tree is a strong heap (or empty), otherwise false.
+     */
+    public static boolean isStrongHeap(CompactBinaryTree.OfInt tree) {
+        return tree.isComplete() && HeapChecks.isStrongHeap(tree.values(), tree.size());
+    }
+
+    /**
+     * Determines whether the binary tree with the given root node is a strong binary heap, as
+     * isStrongHeap does, but validating disjoint subtrees in parallel in the common fork-join
+     * pool. Each subtree reports its number of nodes, from which the completeness of the whole
+     * tree is decided, and all subtrees stop as soon as any one of them finds a violation.
+     *
+     * Let n denote the number of nodes in the given binary tree, and p the number of processors.
+     *
+     * Worst case runtime complexity: O(n) work, and O(n / p + log n) time for a complete tree
+     *
+     * Worst case space complexity: O(n)
      *
      * @param root root of a binary tree, cannot be null.
-     * @return true if the tree is a complete binary tree, otherwise false.
+     * @return true if the tree is a strong heap, otherwise false.
      */
-    private static boolean isCompleteBinaryTree(BinaryTree<Integer> root) {
-        if (root.isLeaf()) {
-            return true; // Base case
-        }
+    public static boolean isStrongHeapParallel(BinaryTree<Integer> root) {
+        return ParallelStrongHeapValidator.isStrongHeap(root);
+    }
 
-        // Ensures internal level nodes are full and leaf nodes are as left as possible
-        if (root.getLeft() == null || (root.getRight() == null && !root.getLeft().isLeaf())) {
-            return false;
-        }
+    /**
+     * Determines whether the binary tree with the given root node is a strong binary heap, as
+     * isStrongHeap does, but caching the result for every subtree in its nodes (see
+     * IncrementalStrongHeapValidator). Setting a child clears only the caches of the edited node
+     * and its ancestors, so revalidating a tree after a local edit only rechecks the path from
+     * the edit to the root.
+     *
+     * Caching assumes each node is the child of at most one other node, i.e. that subtrees are
+     * not shared between trees or positions.
+     *
+     * Let n denote the number of nodes in the given binary tree, and d the depth of the edited
+     * node.
+     *
+     * Worst case runtime complexity: O(n) for the first validation, and O(d) after one edit
+     *
+     * Worst case space complexity: O(n) for the first validation, and O(d) after one edit
+     *
+     * @param root root of a binary tree, cannot be null.
+     * @return true if the tree is a strong heap, otherwise false.
+     */
+    public static boolean isStrongHeapIncremental(BinaryTree<Integer> root) {
+        return IncrementalStrongHeapValidator.isStrongHeap(root);
+    }
 
-        // root can never be null, hence on each recursive call, must ensure root.getRight() != null
-        return (root.getRight() == null) ? isStrongHeap(root.getLeft()) :
-                isStrongHeap(root.getLeft()) && isStrongHeap(root.getRight());
+    /**
+     * @param size number of nodes of a complete tree
+     * @return the number of levels of the tree
+     */
+    private static int height(long size) {
+        return 64 - Long.numberOfLeadingZeros(size);
     }
 
     /**
-     * Recursively examines a node and its (possibly null) children to check the strong max heap
-     * property.
+     * @param size number of nodes of a complete tree
+     * @return true if every level of the tree is full
+     */
+    private static boolean isPerfect(long size) {
+        return (size & (size + 1)) == 0;
+    }
+
+    /**
+     * Determines whether a node whose left and right subtrees are complete, with the given
+     * numbers of nodes, is the root of a complete tree.
      *
-     * Let n denote the number of nodes within the given binary tree.
+     * @param leftSize number of nodes of the left subtree
+     * @param rightSize number of nodes of the right subtree
+     * @return true if the node's tree is complete
+     */
+    static boolean isComplete(long leftSize, long rightSize) {
+        int leftHeight = height(leftSize);
+        int rightHeight = height(rightSize);
+        return (isPerfect(leftSize) && rightHeight == leftHeight) ||
+                (isPerfect(rightSize) && rightHeight == leftHeight - 1);
+    }
+
+    /**
+     * Checks the strong max heap property between the given node, one of its (possibly null)
+     * children, and that child's children: the child must be smaller than the node, and the sum
+     * of each grandchild and the child must be smaller than the node.
      *
-     * In the worst case, each node would have to be visited at least once. Hence, there may
-     * be upto n recursive calls of this function. As only if statements, calls to methods
-     * bounded by constant runtime complexity, and return statements are present, we may say that
-     * each recursive call is bounded by constant runtime complexity. Hence, this method is
-     * bounded by O(n) runtime complexity.
+     * Worst case runtime complexity: O(1)
      *
-     * Regarding space complexity, in the worst case, each stack frame would have to store a
-     * single root node, a single Integer, and a boolean variable (maxHeapProperty). As each node
-     * only stores a single element of some generic type, and two references to possibly null child
-     * nodes, we may say that each stack frame is bounded by constant space complexity. Hence, we
-     * may say that this method is bounded by O(n) space complexity.
+     * Worst case space complexity: O(1)
      *
-     * @param current The current node to be examined
-     * @param parentValue The value of the parent node (null if the root is checked)
-     * @require the given binary tree is complete
-     * @return true if the given (complete) tree satisfies the strong max heap property, false
-     * otherwise
+     * @param grandparent node to check against
+     * @param parent child of grandparent, or null
+     * @return true if the property holds (or parent is null), otherwise false
      */
-    private static boolean satisfiesStrongMaxHeapProperty(BinaryTree<Integer> current,
-            Integer parentValue) {
-        if (current.isLeaf()) {
-            return true; // Base case
+    static boolean satisfiesStrongMaxHeapProperty(BinaryTree<Integer> grandparent,
+            BinaryTree<Integer> parent) {
+        if (parent == null) {
+            return true;
+        }
+        long grandparentValue = grandparent.getValue();
+        long parentValue = parent.getValue();
+        if (parentValue >= grandparentValue) {
+            return false;
         }
+        BinaryTree<Integer> left = parent.getLeft();
+        BinaryTree<Integer> right = parent.getRight();
+        return (left == null || left.getValue() + parentValue < grandparentValue) &&
+                (right == null || right.getValue() + parentValue < grandparentValue);
+    }
+
+    /**
+     * A strong binary max heap of longs, stored as StrongHeap stores ints. Sums of values are
+     * checked without overflow, so any long values may be held.
+     */
+    public static class OfLong {
+        /** The values of the heap, in positions 0 to (size - 1). */
+        private long[] heap;
+
+        /** The number of values in the heap. */
+        private int size;
 
-        // Complete tree properties may now be applied in checking strong (max) heap property
-        if (current.getRight() == null) {
-            // Already confirmed current is not a leaf, hence left child must exist. Also,
-            // left child must be a leaf by completeness if right child does not exist
-            boolean maxHeapProperty = current.getLeft().getValue() < current.getValue();
-            return (parentValue == null) ? maxHeapProperty :
-                    current.getLeft().getValue() + current.getValue() < parentValue;
+        /** The positions on the path an insert or extractMax may change, reused between calls. */
+        private final int[] undoPositions = new int[MAX_LEVELS];
+
+        /** The values at undoPositions before the change, reused between calls. */
+        private final long[] undoValues = new long[MAX_LEVELS];
+
+        /**
+         * Creates a new, empty strong heap.
+         */
+        public OfLong() {
+            this.heap = new long[DEFAULT_INITIAL_CAPACITY];
+            this.size = 0;
         }
-        if (current.getRight().getValue() >= current.getValue() || current.getLeft().getValue() >=
-                current.getValue()) {
-            return false;
+
+        /**
+         * Creates a strong heap holding exactly the given values, arranged as described by
+         * Arrangement.
+         *
+         * Worst case runtime complexity: O(n log n) if the greedy arrangement succeeds,
+         * otherwise exponential in n
+         *
+         * Worst case space complexity: O(n)
+         *
+         * @param values values to hold in the heap
+         * @return the heap
+         * @throws IllegalArgumentException if the values cannot be arranged as a strong heap
+         */
+        public static OfLong heapify(long... values) {
+            OfLong result = new OfLong();
+            long[] arranged = values.clone();
+            if (!Arrangement.arrange(arranged)) {
+                throw new IllegalArgumentException("Values cannot be arranged as a strong heap");
+            }
+            result.heap = Arrays.copyOf(arranged, Math.max(arranged.length, 1));
+            result.size = arranged.length;
+            return result;
+        }
+
+        /**
+         * @return the number of values in the heap
+         */
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * @return true if the heap holds no values
+         */
+        public boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        /**
+         * @return a copy of the values of the heap, in level order
+         */
+        public long[] toArray() {
+            return Arrays.copyOf(this.heap, this.size);
+        }
+
+        /**
+         * Worst case runtime complexity: O(1)
+         *
+         * @return the greatest value in the heap
+         * @throws NoSuchElementException if the heap is empty
+         */
+        public long peekMax() {
+            if (this.size == 0) {
+                throw new NoSuchElementException("Heap is empty.");
+            }
+            return this.heap[0];
         }
 
-        // i.e. if current is not the root
-        if (parentValue != null) {
-            if (current.getRight().getValue() + current.getValue() >= parentValue ||
-                    current.getLeft().getValue() + current.getValue() >= parentValue) {
+        /**
+         * Inserts the given value, by an upheap from a new last leaf.
+         *
+         * Worst case runtime complexity: O(log n) if the upheap keeps the strong heap property,
+         * otherwise O(n log n) if the greedy arrangement succeeds, and exponential in n if not
+         *
+         * Worst case space complexity: O(1), or O(n) if the values are rearranged
+         *
+         * @param value value to insert
+         * @throws IllegalArgumentException if the values, with the given value, cannot be
+         * arranged as a strong heap; the heap is then unchanged
+         */
+        public void insert(long value) {
+            if (this.size == this.heap.length) {
+                int growth = Math.max(this.heap.length >> 1, 1);
+                this.heap = Arrays.copyOf(this.heap, this.heap.length + growth);
+            }
+
+            // Remember the path from the new leaf to the root, so the upheap can be undone
+            int pathLength = 0;
+            for (int position = this.size; position > 0; position = parent(position)) {
+                this.undoPositions[pathLength] = parent(position);
+                this.undoValues[pathLength++] = this.heap[parent(position)];
+            }
+
+            int position = this.size++;
+            while (position > 0 && this.heap[parent(position)] < value) {
+                this.heap[position] = this.heap[parent(position)];
+                position = parent(position);
+            }
+            this.heap[position] = value;
+
+            if (this.satisfiedAlongPath(this.size - 1, position)) {
+                return;
+            }
+            for (int i = 0; i < pathLength; i++) {
+                this.heap[this.undoPositions[i]] = this.undoValues[i];
+            }
+            this.heap[--this.size] = value;
+            if (!this.rearrange(Arrays.copyOf(this.heap, this.size + 1))) {
+                throw new IllegalArgumentException("Cannot insert " + value +
+                        " into this strong heap");
+            }
+        }
+
+        /**
+         * Removes and returns the greatest value, by a downheap of the last leaf from the root.
+         *
+         * Worst case runtime complexity: O(log n) if the downheap keeps the strong heap
+         * property, otherwise O(n log n) if the greedy arrangement succeeds, and exponential in
+         * n if not
+         *
+         * Worst case space complexity: O(1), or O(n) if the values are rearranged
+         *
+         * @return the greatest value in the heap
+         * @throws NoSuchElementException if the heap is empty
+         * @throws IllegalStateException if the remaining values cannot be arranged as a strong
+         * heap; the heap is then unchanged
+         */
+        public long extractMax() {
+            long max = this.peekMax();
+            long last = this.heap[--this.size];
+            if (this.size == 0) {
+                return max;
+            }
+
+            // Remember the path the downheap may change, so it can be undone
+            int pathLength = 0;
+            int position = 0;
+            while (true) {
+                this.undoPositions[pathLength] = position;
+                this.undoValues[pathLength++] = this.heap[position];
+                int largestChild = leftChild(position);
+                if (largestChild >= this.size) {
+                    break;
+                }
+                if (largestChild + 1 < this.size && this.heap[largestChild + 1] >
+                        this.heap[largestChild]) {
+                    largestChild++;
+                }
+                if (this.heap[largestChild] <= last) {
+                    break;
+                }
+                this.heap[position] = this.heap[largestChild];
+                position = largestChild;
+            }
+            this.heap[position] = last;
+
+            if (this.satisfiedAlongPath(position, 0)) {
+                return max;
+            }
+            for (int i = 0; i < pathLength; i++) {
+                this.heap[this.undoPositions[i]] = this.undoValues[i];
+            }
+            this.heap[this.size++] = last;
+            if (!this.rearrange(Arrays.copyOfRange(this.heap, 1, this.size))) {
+                throw new IllegalStateException("Removing " + max + " leaves values that " +
+                        "cannot be arranged as a strong heap");
+            }
+            return max;
+        }
+
+        /**
+         * Replaces the contents of the heap with the given values, if they can be arranged as a
+         * strong heap. The heap's array must have room for them.
+         *
+         * @param values values to hold in the heap, which are reordered
+         * @return true if the heap was replaced, or false (leaving it unchanged) if the values
+         * cannot be arranged as a strong heap
+         */
+        private boolean rearrange(long[] values) {
+            if (!Arrangement.arrange(values)) {
+                return false;
+            }
+            System.arraycopy(values, 0, this.heap, 0, values.length);
+            this.size = values.length;
+            return true;
+        }
+
+        /**
+         * Checks the strong heap property around every position on the path from the given
+         * position up to the given ancestor (inclusive).
+         *
+         * Worst case runtime complexity: O(log n)
+         *
+         * @param position lowest position on the path
+         * @param ancestor highest position on the path, an ancestor of (or equal to) position
+         * @return true if the property holds around every position on the path
+         */
+        private boolean satisfiedAlongPath(int position, int ancestor) {
+            while (true) {
+                if (!this.satisfiedAround(position)) {
+                    return false;
+                }
+                if (position == ancestor) {
+                    return true;
+                }
+                position = parent(position);
+            }
+        }
+
+        /**
+         * Checks every constraint of the strong heap property that involves the given position,
+         * as StrongHeap.satisfiedAround does.
+         *
+         * Worst case runtime complexity: O(1)
+         *
+         * @param position position in the heap
+         * @return true if all those constraints hold
+         */
+        private boolean satisfiedAround(int position) {
+            if (position > 0 && !satisfiedAt(this.heap, position)) {
+                return false;
+            }
+            int firstChild = leftChild(position);
+            for (int child = firstChild; child < this.size && child <= firstChild + 1; child++) {
+                if (!satisfiedAt(this.heap, child)) {
+                    return false;
+                }
+                int firstGrandchild = leftChild(child);
+                for (int grandchild = firstGrandchild; grandchild < this.size &&
+                        grandchild <= firstGrandchild + 1; grandchild++) {
+                    if (!satisfiedAt(this.heap, grandchild)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Checks the strong heap property of the given non-root position against its parent
+         * and grandparent.
+         *
+         * @param heap values in level order
+         * @param position position in the heap, other than the root
+         * @return true if the value is smaller than its parent, and its sum with its parent is
+         * smaller than its grandparent (if any)
+         */
+        private static boolean satisfiedAt(long[] heap, int position) {
+            int parent = parent(position);
+            if (heap[position] >= heap[parent]) {
+                return false;
+            }
+            return parent == 0 || sumBelow(heap[position], heap[parent], heap[parent(parent)]);
+        }
+
+        /**
+         * @param value a value
+         * @param other another value
+         * @param bound the bound
+         * @return true if value + other, computed exactly, is smaller than bound
+         */
+        private static boolean sumBelow(long value, long other, long bound) {
+            long sum = value + other;
+            // An overflowing sum has the opposite sign to both operands, and is beyond any bound
+            if (((value ^ sum) & (other ^ sum)) < 0) {
+                return value < 0;
+            }
+            return sum < bound;
+        }
+    }
+
+    /**
+     * A search for an arrangement of a collection of values as a strong heap, used whenever a
+     * sift cannot keep the strong heap property.
+     *
+     * Positions are filled in level order, so when a position is filled its parent and
+     * grandparent already are, and the values that may go there are exactly those below a
+     * bound: smaller than the parent, and smaller than the grandparent minus the parent. The
+     * values are kept as a descending array of distinct values, with the number of each still
+     * to be placed in a Fenwick tree, which finds the greatest remaining value below a bound in
+     * O(log n) time.
+     *
+     * The search first places, at each position, the greatest remaining value below its bound.
+     * This takes O(n log n) time, and succeeds whenever descending level order is a strong heap
+     * (and on many other inputs). If it gets stuck, the search starts again with backtracking:
+     * each position tries every remaining distinct value below its bound, greatest first. Every
+     * remaining value must end up in the subtree of an open position (one whose parent is
+     * placed), below that position's bound, so a partial arrangement is abandoned as soon as,
+     * for some value v, the remaining values no smaller than v outnumber the nodes in the
+     * subtrees of the open positions whose bounds exceed v. The backtracking search finds an
+     * arrangement whenever one exists, but takes time exponential in n in the worst case.
+     */
+    private static class Arrangement {
+        /** The distinct values, in descending order. */
+        private final long[] distinct;
+
+        /** The number of occurrences of each distinct value. */
+        private final int[] occurrences;
+
+        /** The number of each distinct value still to be placed. */
+        private final int[] counts;
+
+        /** A Fenwick tree over counts, from index 1. */
+        private final int[] tree;
+
+        /** The index in distinct of the value placed at each position. */
+        private final int[] choices;
+
+        /** The values placed so far, in level order. */
+        private final long[] arranged;
+
+        /** The subtree sizes of the open positions, by the index of their bounds, for fits. */
+        private final long[] capacities;
+
+        /** The number of values still to be placed. */
+        private int remaining;
+
+        /**
+         * @param values values to arrange
+         */
+        private Arrangement(long[] values) {
+            long[] sorted = values.clone();
+            Arrays.sort(sorted);
+            long[] distinct = new long[sorted.length];
+            int[] occurrences = new int[sorted.length];
+            int distinctCount = 0;
+            for (int i = sorted.length - 1; i >= 0; i--) {
+                if (distinctCount == 0 || sorted[i] != distinct[distinctCount - 1]) {
+                    distinct[distinctCount++] = sorted[i];
+                }
+                occurrences[distinctCount - 1]++;
+            }
+            this.distinct = Arrays.copyOf(distinct, distinctCount);
+            this.occurrences = Arrays.copyOf(occurrences, distinctCount);
+            this.counts = new int[distinctCount];
+            this.tree = new int[distinctCount + 1];
+            this.choices = new int[values.length];
+            this.arranged = new long[values.length];
+            this.capacities = new long[distinctCount + 1];
+        }
+
+        /**
+         * Arranges the given values as a strong heap, if that is possible.
+         *
+         * Worst case runtime complexity: O(n log n) if the greedy arrangement succeeds,
+         * otherwise exponential in n
+         *
+         * Worst case space complexity: O(n)
+         *
+         * @param values values to arrange
+         * @return true if the values were rearranged in place into a strong heap, in level
+         * order, or false (leaving them unchanged) if no such arrangement exists
+         */
+        static boolean arrange(long[] values) {
+            Arrangement arrangement = new Arrangement(values);
+            if (!arrangement.fill(false) && !arrangement.fill(true)) {
                 return false;
             }
+            System.arraycopy(arrangement.arranged, 0, values, 0, values.length);
+            return true;
+        }
+
+        /**
+         * Fills every position in level order, from scratch.
+         *
+         * @param backtrack false to give up as soon as a position cannot be filled, or true to
+         * search every arrangement
+         * @return true if every position was filled
+         */
+        private boolean fill(boolean backtrack) {
+            this.reset();
+            int position = 0;
+            int from = 0;
+            while (position < this.arranged.length) {
+                int candidate =
+                        this.nextAvailable(Math.max(from, this.firstIndexBelowBound(position)));
+                if (candidate >= 0) {
+                    this.choices[position] = candidate;
+                    this.arranged[position++] = this.distinct[candidate];
+                    this.add(candidate, -1);
+                    from = 0;
+                    if (!backtrack || this.fits(position)) {
+                        continue;
+                    }
+                    // The remaining values cannot fit, so try the next candidate instead
+                    position--;
+                } else if (backtrack && position > 0) {
+                    position--;
+                } else {
+                    return false;
+                }
+                this.add(this.choices[position], 1);
+                from = this.choices[position] + 1;
+            }
+            return true;
+        }
+
+        /**
+         * Marks every value as still to be placed.
+         */
+        private void reset() {
+            System.arraycopy(this.occurrences, 0, this.counts, 0, this.counts.length);
+            System.arraycopy(this.occurrences, 0, this.tree, 1, this.counts.length);
+            for (int i = 1; i < this.tree.length; i++) {
+                int parent = i + (i & -i);
+                if (parent < this.tree.length) {
+                    this.tree[parent] += this.tree[i];
+                }
+            }
+            this.remaining = this.arranged.length;
+        }
+
+        /**
+         * @param index index of a distinct value
+         * @param delta change in the number of that value still to be placed
+         */
+        private void add(int index, int delta) {
+            this.counts[index] += delta;
+            this.remaining += delta;
+            for (int i = index + 1; i < this.tree.length; i += i & -i) {
+                this.tree[i] += delta;
+            }
+        }
+
+        /**
+         * @param from index of a distinct value
+         * @return the first index, from the given one, of a value still to be placed, or -1 if
+         * there is none
+         */
+        private int nextAvailable(int from) {
+            int before = 0;
+            for (int i = from; i > 0; i -= i & -i) {
+                before += this.tree[i];
+            }
+            if (before == this.remaining) {
+                return -1;
+            }
+            // Find the longest prefix holding no more than the values before from
+            int index = 0;
+            for (int step = Integer.highestOneBit(this.tree.length - 1); step > 0; step >>= 1) {
+                if (index + step < this.tree.length && this.tree[index + step] <= before) {
+                    index += step;
+                    before -= this.tree[index];
+                }
+            }
+            return index;
+        }
+
+        /**
+         * @param position position whose parent and grandparent (if any) are placed
+         * @return the index of the first distinct value below the position's bound, or the
+         * number of distinct values if there is none
+         */
+        private int firstIndexBelowBound(int position) {
+            if (position == 0) {
+                return 0;
+            }
+            int parent = parent(position);
+            long parentValue = this.arranged[parent];
+            int index = this.firstIndexBelow(parentValue);
+            if (parent > 0) {
+                // The parent is below the grandparent, so the difference is positive unless it
+                // overflows past Long.MAX_VALUE, in which case every value is below it
+                long difference = this.arranged[parent(parent)] - parentValue;
+                if (difference > 0) {
+                    index = Math.max(index, this.firstIndexBelow(difference));
+                }
+            }
+            return index;
+        }
+
+        /**
+         * @param bound a value
+         * @return the index of the first distinct value smaller than bound, or the number of
+         * distinct values if there is none
+         */
+        private int firstIndexBelow(long bound) {
+            int low = 0;
+            int high = this.distinct.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (this.distinct[middle] < bound) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Checks that the values still to be placed could fit below the bounds of the open
+         * positions, counting the nodes in their subtrees.
+         *
+         * Worst case runtime complexity: O(n)
+         *
+         * @param position number of positions placed, at least 1
+         * @return false if no arrangement can complete the positions placed
+         */
+        private boolean fits(int position) {
+            int size = this.arranged.length;
+            Arrays.fill(this.capacities, 0);
+            for (int open = position; open < size && open <= 2L * position; open++) {
+                this.capacities[this.firstIndexBelowBound(open)] += subtreeSize(open, size);
+            }
+            long capacity = 0;
+            long needed = 0;
+            for (int i = 0; i < this.counts.length; i++) {
+                capacity += this.capacities[i];
+                needed += this.counts[i];
+                if (needed > capacity) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @param position position in a complete tree
+         * @param size number of nodes of the tree
+         * @return the number of nodes in the subtree rooted at the position
+         */
+        private static long subtreeSize(int position, int size) {
+            long nodes = 0;
+            for (long first = position, last = position; first < size;
+                    first = 2 * first + 1, last = 2 * last + 2) {
+                nodes += Math.min(last, size - 1) - first + 1;
+            }
+            return nodes;
         }
-        return satisfiesStrongMaxHeapProperty(current.getLeft(), current.getValue()) &&
-                satisfiesStrongMaxHeapProperty(current.getRight(), current.getValue());
     }
 }
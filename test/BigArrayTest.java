@@ -0,0 +1,69 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BigArrayTest {
+
+    @Test
+    public void testGetSetAcrossSegments() {
+        BigArray<Integer> array = new BigArray<>(37, 3);
+        for (int i = 0; i < 37; i++) {
+            assertNull(array.get(i));
+            array.set(i, i * 2);
+        }
+
+        assertEquals(37, array.length());
+        for (int i = 0; i < 37; i++) {
+            assertEquals(Integer.valueOf(i * 2), array.get(i));
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0, new BigArray<String>(0).length());
+        assertEquals(0, BigLongArray.onHeap(0).length());
+        assertEquals(0, BigLongArray.offHeap(0).length());
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testOutOfBounds() {
+        new BigArray<Integer>(10, 2).get(10);
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testNegativeIndex() {
+        new BigArray<Integer>(10).set(-1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLength() {
+        new BigArray<Integer>(-1);
+    }
+
+    @Test
+    public void testSegmentCountBeyondIntRange() {
+        // 2^40 elements need 2^13 segments of 2^27 - the index math must stay in longs
+        assertEquals(1L << 13, BigArray.segmentCount(1L << 40, 27));
+        assertEquals(5, BigArray.segmentLength((1L << 33) + 5, 27, 1 << 6));
+    }
+
+    @Test
+    public void testLongArrays() {
+        BigLongArray[] arrays = {
+                new BigLongArray.OnHeap(100, 4), new BigLongArray.OffHeap(100, 4) };
+        for (BigLongArray array : arrays) {
+            for (int i = 0; i < 100; i++) {
+                assertEquals(0, array.get(i));
+                array.set(i, Long.MAX_VALUE - i);
+            }
+            for (int i = 0; i < 100; i++) {
+                assertEquals(Long.MAX_VALUE - i, array.get(i));
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testLongOutOfBounds() {
+        BigLongArray.offHeap(3).get(3);
+    }
+}
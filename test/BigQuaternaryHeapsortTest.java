@@ -0,0 +1,91 @@
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BigQuaternaryHeapsortTest {
+
+    @Test
+    public void testSort() {
+        Random random = new Random(3506);
+        for (int size = 0; size < 300; size += 13) {
+            Integer[] input = new Integer[size];
+            BigArray<Integer> big = new BigArray<>(size, 4);
+            for (int i = 0; i < size; i++) {
+                input[i] = random.nextInt(100);
+                big.set(i, input[i]);
+            }
+            Integer[] expected = Helpers.makeSortedCopy(input);
+
+            BigQuaternaryHeapsort.quaternaryHeapsort(big);
+
+            for (int i = 0; i < size; i++) {
+                assertEquals(expected[i], big.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testSortComparator() {
+        BigArray<String> big = new BigArray<>(5, 1);
+        String[] input = {"c", "a", "e", "b", "z"};
+        for (int i = 0; i < input.length; i++) {
+            big.set(i, input[i]);
+        }
+
+        BigQuaternaryHeapsort.quaternaryHeapsort(big, Comparator.reverseOrder());
+
+        String[] expected = {"z", "e", "c", "b", "a"};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], big.get(i));
+        }
+    }
+
+    @Test
+    public void testSortLongs() {
+        Random random = new Random(3506);
+        BigLongArray[] arrays = {
+                new BigLongArray.OnHeap(1000, 5), new BigLongArray.OffHeap(1000, 5) };
+        for (BigLongArray big : arrays) {
+            long[] expected = new long[1000];
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = random.nextLong();
+                big.set(i, expected[i]);
+            }
+            java.util.Arrays.sort(expected);
+
+            BigQuaternaryHeapsort.quaternaryHeapsort(big);
+
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], big.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testDownheap() {
+        BigLongArray big = new BigLongArray.OnHeap(5, 1);
+        long[] input = {0, 10, 20, 30, 40};
+        for (int i = 0; i < input.length; i++) {
+            big.set(i, input[i]);
+        }
+
+        BigQuaternaryHeapsort.quaternaryDownheap(big, 0, 5);
+
+        long[] expected = {40, 10, 20, 30, 0};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], big.get(i));
+        }
+    }
+
+    @Test
+    public void testIndexMathBeyondIntRange() {
+        long size = 3L << 32;
+        long lastInternal = BigQuaternaryHeapsort.lastInternal(size);
+
+        assertTrue(BigQuaternaryHeapsort.farLeft(lastInternal) < size);
+        assertTrue(BigQuaternaryHeapsort.farLeft(lastInternal + 1) >= size);
+    }
+}
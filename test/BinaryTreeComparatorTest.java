@@ -1,6 +1,8 @@
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Random;
+
 import static org.junit.Assert.*;
 
 public class BinaryTreeComparatorTest {
@@ -76,4 +78,40 @@ public class BinaryTreeComparatorTest {
         ));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testCompactExamples() {
+        assertEquals(-1, c.compare(
+                CompactBinaryTree.fromBinaryTree(tree(leaf(5), 4, leaf(7))),
+                CompactBinaryTree.fromBinaryTree(tree(leaf(10), 4, leaf(7)))
+        ));
+        assertEquals(-1, c.compare(
+                CompactBinaryTree.fromBinaryTree(right(10, leaf(4))),
+                CompactBinaryTree.ofComplete(1, 2, 3)
+        ));
+        assertEquals(-1, c.compare(
+                CompactBinaryTree.fromBinaryTree(tree(leaf(1), 10, null)),
+                CompactBinaryTree.fromBinaryTree(tree(leaf(1), 10, leaf(1)))
+        ));
+        assertEquals(0, c.compare(
+                CompactBinaryTree.ofComplete(4, 5, 7),
+                CompactBinaryTree.fromBinaryTree(tree(leaf(5), 4, leaf(7)))
+        ));
+        assertEquals(1, c.compare(
+                CompactBinaryTree.ofComplete(1),
+                CompactBinaryTree.<Integer>fromBinaryTree(null)
+        ));
+    }
+
+    @Test
+    public void testCompactMatchesPointer() {
+        Random random = new Random(47);
+        for (int i = 0; i < 2000; i++) {
+            BinaryTree<Integer> tree1 = Helpers.makeRandomTree(random, random.nextInt(8), 3);
+            BinaryTree<Integer> tree2 = Helpers.makeRandomTree(random, random.nextInt(8), 3);
+            assertEquals(Integer.signum(c.compare(tree1, tree2)), c.compare(
+                    CompactBinaryTree.fromBinaryTree(tree1),
+                    CompactBinaryTree.fromBinaryTree(tree2)));
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class BinaryTreeTest {
+
+    @Test
+    public void testEquals() {
+        BinaryTree<Integer> tree = Helpers.makeTree(Helpers.makeLeaf(1), 2, Helpers.makeLeaf(3));
+        BinaryTree<Integer> same = Helpers.makeTree(Helpers.makeLeaf(1), 2, Helpers.makeLeaf(3));
+        assertEquals(tree, same);
+        assertEquals(tree.hashCode(), same.hashCode());
+        assertEquals(tree.fingerprint(), same.fingerprint());
+
+        assertNotEquals(tree, Helpers.makeTree(Helpers.makeLeaf(3), 2, Helpers.makeLeaf(1)));
+        assertNotEquals(tree, Helpers.makeTree(Helpers.makeLeaf(1), 2, null));
+        assertNotEquals(Helpers.makeTree(Helpers.makeLeaf(1), 2, null),
+                Helpers.makeTree(null, 2, Helpers.makeLeaf(1)));
+        assertNotEquals(Helpers.makeLeaf(1), Helpers.makeLeaf(2));
+        assertNotEquals(Helpers.makeLeaf(1), null);
+        assertNotEquals(Helpers.makeLeaf(1), 1);
+    }
+
+    @Test
+    public void testFingerprintsDiffer() {
+        // swapping children, or moving a value between levels, changes the fingerprint
+        assertNotEquals(
+                Helpers.makeTree(Helpers.makeLeaf(1), 2, Helpers.makeLeaf(3)).fingerprint(),
+                Helpers.makeTree(Helpers.makeLeaf(3), 2, Helpers.makeLeaf(1)).fingerprint());
+        assertNotEquals(Helpers.makeTree(Helpers.makeLeaf(1), 2, null).fingerprint(),
+                Helpers.makeTree(null, 2, Helpers.makeLeaf(1)).fingerprint());
+        assertNotEquals(Helpers.makeTree(Helpers.makeLeaf(2), 1, null).fingerprint(),
+                Helpers.makeTree(Helpers.makeLeaf(1), 2, null).fingerprint());
+
+        Set<Long> fingerprints = new HashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            fingerprints.add(Helpers.makeTree(Helpers.makeLeaf(i), 0, null).fingerprint());
+        }
+        assertEquals(10000, fingerprints.size());
+    }
+
+    @Test
+    public void testFingerprintInvalidatedOnEdit() {
+        BinaryTree<Integer> inner = Helpers.makeTree(Helpers.makeLeaf(1), 2, Helpers.makeLeaf(3));
+        BinaryTree<Integer> root = Helpers.makeTree(inner, 4, Helpers.makeLeaf(5));
+        BinaryTree<Integer> otherInner =
+                Helpers.makeTree(Helpers.makeLeaf(1), 2, Helpers.makeLeaf(3));
+        BinaryTree<Integer> other = Helpers.makeTree(otherInner, 4, Helpers.makeLeaf(5));
+        assertEquals(root, other);
+        long before = root.fingerprint();
+
+        inner.setLeft(Helpers.makeLeaf(0));
+        assertNotEquals(before, root.fingerprint());
+        assertNotEquals(root, other);
+        assertNotEquals(root.hashCode(), other.hashCode());
+
+        otherInner.setLeft(Helpers.makeLeaf(0));
+        assertEquals(root, other);
+        assertEquals(root.fingerprint(), other.fingerprint());
+    }
+
+    @Test
+    public void testSharedSubtree() {
+        // s is shared, so only its latest parent, b, sees changes below it
+        BinaryTree<Integer> s = Helpers.makeLeaf(3);
+        BinaryTree<Integer> a = Helpers.makeTree(s, 1, null);
+        BinaryTree<Integer> b = Helpers.makeTree(s, 2, null);
+        a.hashCode();
+        b.hashCode();
+
+        s.setLeft(Helpers.makeLeaf(9));
+        BinaryTree<Integer> expectedB =
+                Helpers.makeTree(Helpers.makeTree(Helpers.makeLeaf(9), 3, null), 2, null);
+        assertEquals(expectedB, b);
+        assertEquals(expectedB.hashCode(), b.hashCode());
+
+        // setting s as a child of a again brings a's cached fingerprint up to date
+        a.setLeft(s);
+        BinaryTree<Integer> expectedA =
+                Helpers.makeTree(Helpers.makeTree(Helpers.makeLeaf(9), 3, null), 1, null);
+        assertEquals(expectedA, a);
+        assertEquals(expectedA.hashCode(), a.hashCode());
+        assertEquals(expectedA.fingerprint(), a.fingerprint());
+    }
+
+    @Test
+    public void testRandomTrees() {
+        Random random = new Random(49);
+        for (int i = 0; i < 2000; i++) {
+            long seed = random.nextLong();
+            int size = random.nextInt(10);
+            BinaryTree<Integer> tree1 = Helpers.makeRandomTree(new Random(seed), size, 3);
+            BinaryTree<Integer> tree2 = Helpers.makeRandomTree(new Random(seed), size, 3);
+            BinaryTree<Integer> tree3 = Helpers.makeRandomTree(random, size, 3);
+            if (tree1 == null) {
+                continue;
+            }
+            assertEquals(tree1, tree2);
+            assertEquals(tree1.hashCode(), tree2.hashCode());
+            assertEquals(new BinaryTreeComparator<Integer>().compare(tree1, tree3) == 0,
+                    tree1.equals(tree3));
+        }
+    }
+
+    @Test
+    public void testDeepTree() {
+        // fingerprinted and compared without recursion
+        BinaryTree<Integer> first = Helpers.makeLeaf(0);
+        BinaryTree<Integer> second = Helpers.makeLeaf(0);
+        for (int i = 1; i < 1000000; i++) {
+            first = Helpers.makeTree(first, i, null);
+            second = Helpers.makeTree(second, i, null);
+        }
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+}
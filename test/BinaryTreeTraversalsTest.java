@@ -0,0 +1,163 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class BinaryTreeTraversalsTest {
+
+    private static <E> List<E> toList(Iterator<E> iterator) {
+        List<E> result = new ArrayList<>();
+        iterator.forEachRemaining(result::add);
+        return result;
+    }
+
+    private static <E> void inOrderRecursive(BinaryTree<E> node, List<E> result) {
+        if (node != null) {
+            inOrderRecursive(node.getLeft(), result);
+            result.add(node.getValue());
+            inOrderRecursive(node.getRight(), result);
+        }
+    }
+
+    private static <E> void preOrderRecursive(BinaryTree<E> node, List<E> result) {
+        if (node != null) {
+            result.add(node.getValue());
+            preOrderRecursive(node.getLeft(), result);
+            preOrderRecursive(node.getRight(), result);
+        }
+    }
+
+    private static <E> void postOrderRecursive(BinaryTree<E> node, List<E> result) {
+        if (node != null) {
+            postOrderRecursive(node.getLeft(), result);
+            postOrderRecursive(node.getRight(), result);
+            result.add(node.getValue());
+        }
+    }
+
+    @Test
+    public void testExample() {
+        //       1
+        //     2   3
+        //    4 5   6
+        //     7
+        BinaryTree<Integer> root = Helpers.makeTree(
+                Helpers.makeTree(Helpers.makeLeaf(4), 2,
+                        Helpers.makeTree(Helpers.makeLeaf(7), 5, null)), 1,
+                Helpers.makeTree(null, 3, Helpers.makeLeaf(6)));
+
+        assertEquals(Arrays.asList(4, 2, 7, 5, 1, 3, 6),
+                toList(BinaryTreeTraversals.inOrder(root)));
+        assertEquals(Arrays.asList(1, 2, 4, 5, 7, 3, 6),
+                toList(BinaryTreeTraversals.preOrder(root)));
+        assertEquals(Arrays.asList(4, 7, 5, 2, 6, 3, 1),
+                toList(BinaryTreeTraversals.postOrder(root)));
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7),
+                toList(BinaryTreeTraversals.levelOrder(root)));
+        assertEquals(Arrays.asList(4, 2, 7, 5, 1, 3, 6), toList(root.iterator()));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertFalse(BinaryTreeTraversals.inOrder(null).hasNext());
+        assertFalse(BinaryTreeTraversals.preOrder(null).hasNext());
+        assertFalse(BinaryTreeTraversals.postOrder(null).hasNext());
+        assertFalse(BinaryTreeTraversals.levelOrder(null).hasNext());
+        assertEquals(0, BinaryTreeTraversals.stream(null, true).count());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testNextPastEnd() {
+        Iterator<Integer> iterator = BinaryTreeTraversals.postOrder(Helpers.makeLeaf(1));
+        iterator.next();
+        iterator.next();
+    }
+
+    @Test
+    public void testMatchesRecursive() {
+        Random random = new Random(48);
+        for (int i = 0; i < 500; i++) {
+            BinaryTree<Integer> root = Helpers.makeRandomTree(random, random.nextInt(30), 100);
+            List<Integer> expected = new ArrayList<>();
+            inOrderRecursive(root, expected);
+            assertEquals(expected, toList(BinaryTreeTraversals.inOrder(root)));
+
+            expected.clear();
+            preOrderRecursive(root, expected);
+            assertEquals(expected, toList(BinaryTreeTraversals.preOrder(root)));
+
+            expected.clear();
+            postOrderRecursive(root, expected);
+            assertEquals(expected, toList(BinaryTreeTraversals.postOrder(root)));
+        }
+
+        // a node that is both children of its parent is visited once for each
+        BinaryTree<Integer> twice = Helpers.makeTree(Helpers.makeLeaf(1), 2, null);
+        BinaryTree<Integer> root = Helpers.makeTree(twice, 5, twice);
+        List<Integer> expected = new ArrayList<>();
+        inOrderRecursive(root, expected);
+        assertEquals(expected, toList(BinaryTreeTraversals.inOrder(root)));
+        expected.clear();
+        preOrderRecursive(root, expected);
+        assertEquals(expected, toList(BinaryTreeTraversals.preOrder(root)));
+        expected.clear();
+        postOrderRecursive(root, expected);
+        assertEquals(expected, toList(BinaryTreeTraversals.postOrder(root)));
+    }
+
+    @Test
+    public void testDeepTree() {
+        // a path far deeper than the call stack could recurse, zig-zagging left and right
+        BinaryTree<Integer> root = Helpers.makeLeaf(0);
+        for (int i = 1; i < 1000000; i++) {
+            root = (i % 2 == 0) ? Helpers.makeTree(root, i, null) : Helpers.makeTree(null, i, root);
+        }
+
+        assertEquals(1000000, toList(BinaryTreeTraversals.inOrder(root)).size());
+        assertEquals(1000000, toList(BinaryTreeTraversals.preOrder(root)).size());
+        assertEquals(1000000, toList(BinaryTreeTraversals.postOrder(root)).size());
+        assertEquals(1000000, toList(BinaryTreeTraversals.levelOrder(root)).size());
+        assertEquals(1000000, BinaryTreeTraversals.stream(root, true).count());
+    }
+
+    @Test
+    public void testParallelStream() {
+        BinaryTree<Integer> root = Helpers.makeCompleteTree(Helpers.makeStrongHeapArray(100000));
+        List<Integer> expected = toList(root.iterator());
+        Collections.sort(expected);
+
+        List<Integer> actual = BinaryTreeTraversals.stream(root, true)
+                .sorted().collect(Collectors.toList());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testSplitHandsOverSubtrees() {
+        Integer[] values = new Integer[15];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        BinaryTree<Integer> root = Helpers.makeCompleteTree(values);
+
+        Spliterator<Integer> first = root.spliterator();
+        Spliterator<Integer> second = first.trySplit();
+        List<Integer> firstValues = new ArrayList<>();
+        List<Integer> secondValues = new ArrayList<>();
+        first.forEachRemaining(firstValues::add);
+        second.forEachRemaining(secondValues::add);
+
+        // the right subtree of the root, from 2, is handed over whole
+        assertEquals(Arrays.asList(2, 5, 11, 12, 6, 13, 14), secondValues);
+        assertEquals(Arrays.asList(0, 1, 3, 7, 8, 4, 9, 10), firstValues);
+        assertNull(Helpers.makeLeaf(1).spliterator().trySplit());
+    }
+}
@@ -0,0 +1,112 @@
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CompactBinaryTreeTest {
+
+    private static <E> void assertSameTree(BinaryTree<E> expected, BinaryTree<E> actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertNotNull(actual);
+        assertEquals(expected.getValue(), actual.getValue());
+        assertSameTree(expected.getLeft(), actual.getLeft());
+        assertSameTree(expected.getRight(), actual.getRight());
+    }
+
+    @Test
+    public void testEmpty() {
+        CompactBinaryTree<String> tree = CompactBinaryTree.fromBinaryTree(null);
+        assertEquals(0, tree.size());
+        assertEquals(CompactBinaryTree.NONE, tree.root());
+        assertNull(tree.toBinaryTree());
+    }
+
+    @Test
+    public void testExplicit() {
+        // b has only a right child, so the tree is not complete
+        BinaryTree<String> original = Helpers.makeTree(
+                Helpers.makeTree(null, "b", Helpers.makeLeaf("d")), "a", Helpers.makeLeaf("c"));
+        CompactBinaryTree<String> tree = CompactBinaryTree.fromBinaryTree(original);
+
+        assertFalse(tree.isImplicit());
+        assertEquals(4, tree.size());
+        // numbered in level order: a, b, c, d
+        assertEquals("a", tree.value(tree.root()));
+        assertEquals(1, tree.left(0));
+        assertEquals(2, tree.right(0));
+        assertEquals(CompactBinaryTree.NONE, tree.left(1));
+        assertEquals(3, tree.right(1));
+        assertEquals("d", tree.value(3));
+        assertEquals(CompactBinaryTree.NONE, tree.left(3));
+
+        assertSameTree(original, tree.toBinaryTree());
+    }
+
+    @Test
+    public void testImplicit() {
+        BinaryTree<Integer> original = Helpers.makeTree(
+                Helpers.makeTree(Helpers.makeLeaf(4), 5, null), 10, Helpers.makeLeaf(6));
+        CompactBinaryTree<Integer> tree = CompactBinaryTree.fromBinaryTree(original);
+
+        assertTrue(tree.isImplicit());
+        assertEquals(1, tree.left(0));
+        assertEquals(3, tree.left(1));
+        assertEquals(CompactBinaryTree.NONE, tree.right(1));
+        assertEquals(CompactBinaryTree.NONE, tree.left(2));
+        assertSameTree(original, tree.toBinaryTree());
+        assertSameTree(original, CompactBinaryTree.ofComplete(10, 5, 6, 4).toBinaryTree());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullValue() {
+        CompactBinaryTree.ofComplete(1, null, 3);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Random random = new Random(47);
+        for (int i = 0; i < 500; i++) {
+            BinaryTree<Integer> original = Helpers.makeRandomTree(random, random.nextInt(20), 100);
+            assertSameTree(original, CompactBinaryTree.fromBinaryTree(original).toBinaryTree());
+            assertSameTree(original,
+                    CompactBinaryTree.OfInt.fromBinaryTree(original).toBinaryTree());
+        }
+    }
+
+    @Test
+    public void testOfInt() {
+        CompactBinaryTree.OfInt tree = CompactBinaryTree.OfInt.ofComplete(10, 5, 6, 4);
+        assertTrue(tree.isImplicit());
+        assertEquals(4, tree.size());
+        assertEquals(4, tree.value(tree.left(tree.left(tree.root()))));
+
+        CompactBinaryTree.OfInt explicit = CompactBinaryTree.OfInt.fromBinaryTree(
+                Helpers.makeTree(null, 1, Helpers.makeLeaf(2)));
+        assertFalse(explicit.isImplicit());
+        assertEquals(CompactBinaryTree.NONE, explicit.left(0));
+        assertEquals(2, explicit.value(explicit.right(0)));
+    }
+
+    @Test
+    public void testDeepTree() {
+        // conversions in both directions without recursion
+        BinaryTree<Integer> root = Helpers.makeLeaf(0);
+        for (int i = 1; i < 1000000; i++) {
+            root = Helpers.makeTree(root, i, null);
+        }
+        CompactBinaryTree.OfInt tree = CompactBinaryTree.OfInt.fromBinaryTree(root);
+        assertEquals(1000000, tree.size());
+        assertFalse(tree.isImplicit());
+
+        BinaryTree<Integer> copy = tree.toBinaryTree();
+        for (int i = 999999; i >= 0; i--) {
+            assertEquals(Integer.valueOf(i), copy.getValue());
+            copy = copy.getLeft();
+        }
+        assertNull(copy);
+    }
+}
@@ -0,0 +1,155 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentMultiQueueTest {
+
+    @Test
+    public void testSingleHeapIsExact() {
+        ConcurrentMultiQueue<Integer> queue = new ConcurrentMultiQueue<>(1, null);
+        for (int value : new int[] {5, 1, 100, 2, 0, 7, 7}) {
+            queue.offer(value);
+        }
+
+        List<Integer> output = new ArrayList<>();
+        Integer next;
+        while ((next = queue.poll()) != null) {
+            output.add(next);
+        }
+
+        assertEquals(Arrays.asList(0, 1, 2, 5, 7, 7, 100), output);
+    }
+
+    @Test
+    public void testEmpty() {
+        ConcurrentMultiQueue<Integer> queue = new ConcurrentMultiQueue<>();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.peek());
+        assertNull(queue.poll());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testRelaxedOrder() {
+        int heaps = 8;
+        ConcurrentMultiQueue<Integer> queue = new ConcurrentMultiQueue<>(heaps,
+                Comparator.reverseOrder());
+        for (int i = 0; i < 10000; i++) {
+            queue.offer(i);
+        }
+        assertEquals(10000, queue.size());
+        assertEquals(Integer.valueOf(9999), queue.peek());
+
+        boolean[] seen = new boolean[10000];
+        int maxRankError = 0;
+        for (int polled = 0; polled < 10000; polled++) {
+            int value = queue.poll();
+            assertFalse(seen[value]);
+            seen[value] = true;
+            // rank of value among the remaining elements
+            maxRankError = Math.max(maxRankError, 9999 - polled - value);
+        }
+        assertNull(queue.poll());
+        // the two-choice rule keeps the rank error small relative to the number of heaps
+        assertTrue(maxRankError < 100 * heaps);
+    }
+
+    @Test
+    public void testIteratorSnapshot() {
+        ConcurrentMultiQueue<Integer> queue = new ConcurrentMultiQueue<>(4, null);
+        for (int i = 0; i < 100; i++) {
+            queue.offer(i);
+        }
+        int sum = 0;
+        for (int value : queue) {
+            sum += value;
+        }
+        assertEquals(4950, sum);
+    }
+
+    @Test
+    public void testRemove() {
+        ConcurrentMultiQueue<Integer> queue = new ConcurrentMultiQueue<>(4, null);
+        for (int i = 0; i < 100; i++) {
+            queue.offer(i);
+        }
+        assertTrue(queue.remove(42));
+        assertFalse(queue.remove(42));
+        assertFalse(queue.remove(100));
+        assertFalse(queue.remove(null));
+        assertFalse(queue.contains(42));
+        assertEquals(99, queue.size());
+
+        int sum = 0;
+        Integer next;
+        while ((next = queue.poll()) != null) {
+            sum += next;
+        }
+        assertEquals(4950 - 42, sum);
+        assertFalse(queue.remove(0));
+    }
+
+    @Test
+    public void testConcurrentOfferPoll() throws InterruptedException {
+        int threads = 8;
+        int perThread = 20000;
+        ConcurrentMultiQueue<Integer> queue = new ConcurrentMultiQueue<>(2 * threads, null);
+        ConcurrentLinkedQueue<Integer> polled = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * perThread;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    queue.offer(offset + i);
+                    if (i % 2 == 1) {
+                        // may be null in a race, as the queue is only relaxed
+                        Integer value = queue.poll();
+                        if (value != null) {
+                            polled.add(value);
+                        }
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Integer next;
+        while ((next = queue.poll()) != null) {
+            polled.add(next);
+        }
+
+        boolean[] seen = new boolean[threads * perThread];
+        for (Integer value : polled) {
+            assertFalse(seen[value]);
+            seen[value] = true;
+        }
+        assertEquals(threads * perThread, polled.size());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testOfferNull() {
+        new ConcurrentMultiQueue<Integer>().offer(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoHeaps() {
+        new ConcurrentMultiQueue<Integer>(0, null);
+    }
+}
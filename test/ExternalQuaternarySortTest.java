@@ -0,0 +1,171 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ExternalQuaternarySortTest {
+
+    private Path directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("external-sort");
+    }
+
+    @After
+    public void teardown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private Path writeLongs(long[] values) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * Long.BYTES);
+        for (long value : values) {
+            buffer.putLong(value);
+        }
+        Path file = directory.resolve("input");
+        Files.write(file, buffer.array());
+        return file;
+    }
+
+    private long[] readLongs(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        long[] values = new long[buffer.remaining() / Long.BYTES];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = buffer.getLong();
+        }
+        return values;
+    }
+
+    private long[] randomLongs(int count) {
+        Random random = new Random(3506);
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            // Non-negative, so that big-endian unsigned byte order matches numeric order
+            values[i] = random.nextLong() >>> 1;
+        }
+        return values;
+    }
+
+    @Test
+    public void testSortSingleRun() throws IOException {
+        long[] values = {5, 1, 100, 2, 0};
+        Path output = directory.resolve("output");
+
+        int runs = new ExternalQuaternarySort(Long.BYTES, 1 << 16, directory)
+                .sort(writeLongs(values), output);
+
+        assertEquals(1, runs);
+        assertArrayEquals(new long[] {0, 1, 2, 5, 100}, readLongs(output));
+    }
+
+    @Test
+    public void testSortManyRuns() throws IOException {
+        long[] values = randomLongs(20000);
+        Path output = directory.resolve("output");
+        // about 30 records fit in the heap, and at most 7 runs are merged at once
+        ExternalQuaternarySort sort = new ExternalQuaternarySort(Long.BYTES, 2048, directory);
+
+        int runs = sort.sort(writeLongs(values), output);
+
+        long[] expected = values.clone();
+        Arrays.sort(expected);
+        assertArrayEquals(expected, readLongs(output));
+        assertTrue(runs > 1);
+        // replacement selection produces runs about twice the size of the heap
+        assertTrue(runs < 20000 / 30 * 2 / 3);
+    }
+
+    @Test
+    public void testRunFilesDeleted() throws IOException {
+        Path output = directory.resolve("output");
+        new ExternalQuaternarySort(Long.BYTES, 2048, directory)
+                .sort(writeLongs(randomLongs(5000)), output);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    public void testRunFilesDeletedOnFailure() throws IOException {
+        Path input = writeLongs(randomLongs(5000));
+        Path output = directory.resolve("output");
+        AtomicLong comparisons = new AtomicLong();
+        Comparator<byte[]> counting = (record1, record2) -> {
+            comparisons.incrementAndGet();
+            return Arrays.compareUnsigned(record1, record2);
+        };
+        new ExternalQuaternarySort(Long.BYTES, 2048, directory, counting).sort(input, output);
+        Files.delete(output);
+
+        // fail part way through merging, while a merged run is being written
+        long failAt = comparisons.get() * 3 / 4;
+        AtomicLong remaining = new AtomicLong(failAt);
+        Comparator<byte[]> failing = (record1, record2) -> {
+            if (remaining.decrementAndGet() == 0) {
+                throw new IllegalStateException("failed");
+            }
+            return Arrays.compareUnsigned(record1, record2);
+        };
+        assertThrows(IllegalStateException.class,
+                () -> new ExternalQuaternarySort(Long.BYTES, 2048, directory, failing)
+                        .sort(input, output));
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testSortWithComparator() throws IOException {
+        long[] values = randomLongs(3000);
+        Path output = directory.resolve("output");
+        Comparator<byte[]> descending =
+                (record1, record2) -> Arrays.compareUnsigned(record2, record1);
+
+        new ExternalQuaternarySort(Long.BYTES, 4096, directory, descending)
+                .sort(writeLongs(values), output);
+
+        long[] sorted = readLongs(output);
+        assertEquals(values.length, sorted.length);
+        for (int i = 1; i < sorted.length; i++) {
+            assertTrue(sorted[i - 1] >= sorted[i]);
+        }
+    }
+
+    @Test
+    public void testSortEmpty() throws IOException {
+        Path output = directory.resolve("output");
+
+        int runs = new ExternalQuaternarySort(Long.BYTES, 4096, directory)
+                .sort(writeLongs(new long[0]), output);
+
+        assertEquals(0, runs);
+        assertEquals(0, Files.size(output));
+    }
+
+    @Test(expected = IOException.class)
+    public void testPartialRecord() throws IOException {
+        Path input = directory.resolve("input");
+        Files.write(input, new byte[] {1, 2, 3});
+
+        new ExternalQuaternarySort(Long.BYTES, 4096, directory)
+                .sort(input, directory.resolve("output"));
+    }
+}
@@ -0,0 +1,112 @@
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HeapChecksTest {
+
+    @Test
+    public void testStrongHeap() {
+        assertTrue(HeapChecks.isStrongHeap(new int[0], 0));
+        assertTrue(HeapChecks.isStrongHeap(new int[] {1}, 1));
+        assertTrue(HeapChecks.isStrongHeap(new int[] {10, 5, 6, 4, 3}, 5));
+        assertTrue(HeapChecks.isStrongHeap(new int[] {100, 99, 99, 0}, 4));
+
+        // 5 + 5 not < 10
+        assertEquals(3, HeapChecks.firstStrongHeapViolation(new int[] {10, 5, 6, 5, 3}, 5));
+        // 98 + 99 not < 100
+        assertEquals(3, HeapChecks.firstStrongHeapViolation(new int[] {100, 99, 99, 98}, 4));
+        // 100 not < 100
+        assertEquals(1, HeapChecks.firstStrongHeapViolation(new int[] {100, 100, 99}, 3));
+        assertEquals(-1, HeapChecks.firstStrongHeapViolation(new int[] {100, 100, 99}, 1));
+    }
+
+    @Test
+    public void testStrongHeapSumDoesNotOverflow() {
+        int[] heap = {Integer.MAX_VALUE, Integer.MAX_VALUE - 1, 0, Integer.MAX_VALUE - 2};
+        assertEquals(3, HeapChecks.firstStrongHeapViolation(heap, 4));
+
+        int[] negatives = {0, -1, -2, Integer.MIN_VALUE, Integer.MIN_VALUE};
+        assertTrue(HeapChecks.isStrongHeap(negatives, 5));
+    }
+
+    @Test
+    public void testStrongHeapMatchesTree() {
+        Integer[] values = Helpers.makeStrongHeapArray((1 << 12) - 1);
+        int[] heap = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            heap[i] = values[i];
+        }
+        assertTrue(HeapChecks.isStrongHeap(heap, heap.length));
+
+        heap[2000] = heap[0];
+        assertEquals(2000, HeapChecks.firstStrongHeapViolation(heap, heap.length));
+        assertTrue(HeapChecks.isStrongHeap(heap, 2000));
+    }
+
+    @Test
+    public void testMaxHeap() {
+        assertTrue(HeapChecks.isMaxHeap(new int[0], 2));
+        assertFalse(HeapChecks.isMaxHeap(new int[] {5, 5, 3, 1, 5}, 1));
+        assertTrue(HeapChecks.isMaxHeap(new int[] {5, 5, 3, 1, 0}, 1));
+        assertTrue(HeapChecks.isMaxHeap(new int[] {9, 7, 8, 7, 1, 2, 3}, 2));
+        assertEquals(3, HeapChecks.firstMaxHeapViolation(new int[] {9, 7, 8, 8, 1}, 5, 2));
+        assertEquals(-1, HeapChecks.firstMaxHeapViolation(new int[] {9, 7, 8, 8, 1}, 3, 2));
+
+        // the same values are a quaternary heap, but not a binary one
+        int[] heap = {9, 1, 8, 7, 6, 0, 0, 0, 0, 0};
+        assertTrue(HeapChecks.isMaxHeap(heap, 4));
+        assertEquals(3, HeapChecks.firstMaxHeapViolation(heap, heap.length, 2));
+    }
+
+    @Test
+    public void testMaxHeapMatchesHeapify() {
+        Random random = new Random(45);
+        for (int size = 0; size < 200; size++) {
+            Integer[] boxed = new Integer[size];
+            int[] heap = new int[size];
+            for (int i = 0; i < size; i++) {
+                boxed[i] = random.nextInt(50);
+            }
+            QuaternaryHeapsort.quaternaryHeapify(boxed, size, Comparator.naturalOrder());
+            for (int i = 0; i < size; i++) {
+                heap[i] = boxed[i];
+            }
+            assertTrue(HeapChecks.isMaxHeap(heap, 4));
+            assertTrue(HeapChecks.isQuaternaryHeap(boxed, size));
+
+            if (size > 1) {
+                int position = 1 + random.nextInt(size - 1);
+                heap[position] = 100;
+                boxed[position] = 100;
+                assertEquals(position, HeapChecks.firstMaxHeapViolation(heap, size, 4));
+                assertEquals(position, HeapChecks.firstQuaternaryHeapViolation(boxed, size,
+                        Comparator.naturalOrder()));
+            }
+        }
+    }
+
+    @Test
+    public void testQuaternaryHeapComparator() {
+        String[] heap = {"a", "bb", "ccc", "dddd", "ee", "fff"};
+        Comparator<String> byLength = Comparator.comparingInt(String::length);
+        assertFalse(HeapChecks.isQuaternaryHeap(heap, heap.length, byLength));
+        assertTrue(HeapChecks.isQuaternaryHeap(heap, heap.length, byLength.reversed()));
+        assertEquals(1, HeapChecks.firstQuaternaryHeapViolation(heap, heap.length, byLength));
+        assertEquals(-1, HeapChecks.firstQuaternaryHeapViolation(heap, 1, byLength));
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> HeapChecks.isStrongHeap(new int[2], 3));
+        assertThrows(IllegalArgumentException.class,
+                () -> HeapChecks.isMaxHeap(new int[2], -1, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> HeapChecks.isMaxHeap(new int[2], 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> HeapChecks.isQuaternaryHeap(new Integer[2], 3));
+    }
+}
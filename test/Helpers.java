@@ -1,8 +1,27 @@
 import java.util.Arrays;
+import java.util.Random;
 
 public class Helpers {
     // TREE HELPERS
 
+    public static <E> BinaryTree<E> makeTree(BinaryTree<E> left, E value, BinaryTree<E> right) {
+        return new BinaryTree<>(value, left, right);
+    }
+
+    public static <E> BinaryTree<E> makeLeaf(E value) {
+        return new BinaryTree<>(value, null, null);
+    }
+
+    // a tree of the given size with a random shape, and values from 0 to (valueBound - 1)
+    public static BinaryTree<Integer> makeRandomTree(Random random, int size, int valueBound) {
+        if (size == 0) {
+            return null;
+        }
+        int leftSize = random.nextInt(size);
+        return makeTree(makeRandomTree(random, leftSize, valueBound), random.nextInt(valueBound),
+                makeRandomTree(random, size - 1 - leftSize, valueBound));
+    }
+
     public static <E> BinaryTree<E> makeCompleteTree(E[] items) {
         return makeCompleteTreeArray(items)[0];
     }
@@ -0,0 +1,174 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ImmutableBinaryTreeTest {
+
+    private ImmutableBinaryTree.Factory<Integer> factory;
+
+    @Before
+    public void setup() {
+        factory = new ImmutableBinaryTree.Factory<>();
+    }
+
+    @Test
+    public void testInterning() {
+        ImmutableBinaryTree<Integer> first =
+                factory.node(2, factory.leaf(1), factory.leaf(3));
+        ImmutableBinaryTree<Integer> second =
+                factory.node(2, factory.leaf(1), factory.leaf(3));
+        assertSame(first, second);
+        assertSame(first.getLeft(), factory.leaf(1));
+        assertEquals(3, factory.size());
+        assertEquals(3, first.size());
+
+        assertNotSame(first, factory.node(2, factory.leaf(3), factory.leaf(1)));
+        assertNotSame(factory.node(2, factory.leaf(1), null),
+                factory.node(2, null, factory.leaf(1)));
+    }
+
+    @Test
+    public void testSharing() {
+        // a perfect tree of 2^20 - 1 nodes, all with the same value, has one node per level
+        ImmutableBinaryTree<Integer> root = factory.leaf(7);
+        for (int level = 1; level < 20; level++) {
+            root = factory.node(7, root, root);
+        }
+        assertEquals((1 << 20) - 1, root.size());
+        assertEquals(20, factory.size());
+
+        ImmutableBinaryTree<Integer> copy = factory.fromBinaryTree(root.toBinaryTree());
+        assertSame(root, copy);
+        assertEquals(20, factory.size());
+    }
+
+    @Test
+    public void testConversions() {
+        BinaryTree<Integer> original = Helpers.makeTree(
+                Helpers.makeTree(Helpers.makeLeaf(4), 2, null), 1,
+                Helpers.makeTree(Helpers.makeLeaf(4), 2, null));
+        ImmutableBinaryTree<Integer> root = factory.fromBinaryTree(original);
+
+        assertSame(root.getLeft(), root.getRight());
+        assertEquals(3, factory.size());
+        assertEquals(5, root.size());
+        assertEquals(original, root.toBinaryTree());
+        assertEquals(original.fingerprint(), root.fingerprint());
+        assertEquals(original.hashCode(), root.hashCode());
+        assertNull(factory.fromBinaryTree(null));
+    }
+
+    @Test
+    public void testSameChildTwice() {
+        BinaryTree<Integer> twice = Helpers.makeTree(Helpers.makeLeaf(4), 2, null);
+        BinaryTree<Integer> original = Helpers.makeTree(twice, 1, twice);
+        ImmutableBinaryTree<Integer> root = factory.fromBinaryTree(original);
+
+        assertSame(root.getLeft(), root.getRight());
+        assertEquals(3, factory.size());
+        assertEquals(5, root.size());
+        assertEquals(original, root.toBinaryTree());
+
+        // each level is one node used as both children of the next
+        BinaryTree<Integer> doubled = Helpers.makeLeaf(0);
+        for (int i = 1; i <= 20; i++) {
+            doubled = Helpers.makeTree(doubled, i, doubled);
+        }
+        root = factory.fromBinaryTree(doubled);
+        assertEquals((1 << 21) - 1, root.size());
+        assertEquals(3 + 21, factory.size());
+    }
+
+    @Test
+    public void testEqualsAcrossFactories() {
+        ImmutableBinaryTree.Factory<Integer> other = new ImmutableBinaryTree.Factory<>();
+        Random random = new Random(50);
+        for (int i = 0; i < 500; i++) {
+            long seed = random.nextLong();
+            int size = 1 + random.nextInt(15);
+            ImmutableBinaryTree<Integer> first =
+                    factory.fromBinaryTree(Helpers.makeRandomTree(new Random(seed), size, 3));
+            ImmutableBinaryTree<Integer> second =
+                    other.fromBinaryTree(Helpers.makeRandomTree(new Random(seed), size, 3));
+            ImmutableBinaryTree<Integer> third =
+                    other.fromBinaryTree(Helpers.makeRandomTree(random, size, 3));
+
+            assertEquals(first, second);
+            assertEquals(first.hashCode(), second.hashCode());
+            assertEquals(first.toBinaryTree().equals(third.toBinaryTree()), first.equals(third));
+        }
+    }
+
+    @Test
+    public void testWithSubtree() {
+        ImmutableBinaryTree<Integer> root = factory.fromBinaryTree(Helpers.makeTree(
+                Helpers.makeTree(Helpers.makeLeaf(4), 2, Helpers.makeLeaf(5)), 1,
+                Helpers.makeTree(Helpers.makeLeaf(6), 3, null)));
+
+        ImmutableBinaryTree<Integer> updated =
+                factory.withSubtree(root, "LR", factory.leaf(9));
+        assertEquals(Helpers.makeTree(
+                        Helpers.makeTree(Helpers.makeLeaf(4), 2, Helpers.makeLeaf(9)), 1,
+                        Helpers.makeTree(Helpers.makeLeaf(6), 3, null)),
+                updated.toBinaryTree());
+        // the old tree is unchanged, and everything off the path is shared
+        assertEquals(Helpers.makeTree(
+                        Helpers.makeTree(Helpers.makeLeaf(4), 2, Helpers.makeLeaf(5)), 1,
+                        Helpers.makeTree(Helpers.makeLeaf(6), 3, null)),
+                root.toBinaryTree());
+        assertSame(root.getRight(), updated.getRight());
+        assertSame(root.getLeft().getLeft(), updated.getLeft().getLeft());
+
+        // adding a missing child, and removing a subtree
+        ImmutableBinaryTree<Integer> added = factory.withSubtree(root, "RR", factory.leaf(7));
+        assertEquals(Helpers.makeTree(Helpers.makeLeaf(6), 3, Helpers.makeLeaf(7)),
+                added.getRight().toBinaryTree());
+        ImmutableBinaryTree<Integer> removed = factory.withSubtree(root, "L", null);
+        assertNull(removed.getLeft());
+        assertEquals(3, removed.size());
+
+        // undoing an update finds the original nodes
+        assertSame(root, factory.withSubtree(updated, "LR", factory.leaf(5)));
+        assertSame(factory.leaf(8), factory.withSubtree(root, "", factory.leaf(8)));
+    }
+
+    @Test
+    public void testWithValue() {
+        ImmutableBinaryTree<Integer> root = factory.fromBinaryTree(Helpers.makeTree(
+                Helpers.makeTree(Helpers.makeLeaf(4), 2, Helpers.makeLeaf(5)), 1,
+                Helpers.makeLeaf(3)));
+        ImmutableBinaryTree<Integer> updated = factory.withValue(root, "L", 8);
+        assertEquals(Helpers.makeTree(
+                        Helpers.makeTree(Helpers.makeLeaf(4), 8, Helpers.makeLeaf(5)), 1,
+                        Helpers.makeLeaf(3)),
+                updated.toBinaryTree());
+        assertSame(root.getLeft().getRight(), updated.getLeft().getRight());
+        assertEquals(Integer.valueOf(0), factory.withValue(root, "", 0).getValue());
+    }
+
+    @Test
+    public void testInvalidPaths() {
+        ImmutableBinaryTree<Integer> root = factory.node(1, factory.leaf(2), null);
+        assertThrows(IllegalArgumentException.class,
+                () -> factory.withSubtree(root, "RL", factory.leaf(0)));
+        assertThrows(IllegalArgumentException.class,
+                () -> factory.withSubtree(root, "X", factory.leaf(0)));
+        assertThrows(IllegalArgumentException.class, () -> factory.withValue(root, "R", 0));
+        assertThrows(NullPointerException.class, () -> factory.leaf(null));
+    }
+
+    @Test
+    public void testDeepTree() {
+        // conversions in both directions without recursion
+        BinaryTree<Integer> original = Helpers.makeLeaf(0);
+        for (int i = 1; i < 1000000; i++) {
+            original = Helpers.makeTree(original, i % 2, null);
+        }
+        ImmutableBinaryTree<Integer> root = factory.fromBinaryTree(original);
+        assertEquals(1000000, root.size());
+        assertEquals(original, root.toBinaryTree());
+    }
+}
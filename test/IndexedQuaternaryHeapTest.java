@@ -0,0 +1,145 @@
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IndexedQuaternaryHeapTest {
+
+    @Test
+    public void testInsertPoll() {
+        IndexedQuaternaryHeap.OfDouble heap = new IndexedQuaternaryHeap.OfDouble(6);
+        heap.insert(0, 5.0);
+        heap.insert(1, 1.0);
+        heap.insert(2, 100.0);
+        heap.insert(3, 2.0);
+        heap.insert(4, 0.0);
+
+        assertEquals(5, heap.size());
+        assertEquals(4, heap.peek());
+        assertEquals(4, heap.poll());
+        assertEquals(1, heap.poll());
+        assertEquals(3, heap.poll());
+        assertEquals(0, heap.poll());
+        assertEquals(2, heap.poll());
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    public void testDecreaseAndIncreaseKey() {
+        IndexedQuaternaryHeap.OfLong heap = new IndexedQuaternaryHeap.OfLong(10);
+        for (int handle = 0; handle < 10; handle++) {
+            heap.insert(handle, 10 * handle);
+        }
+
+        heap.decreaseKey(7, -1);
+        assertEquals(7, heap.peek());
+        assertEquals(-1, heap.priority(7));
+
+        heap.increaseKey(7, 1000);
+        heap.increaseKey(0, 55);
+        assertEquals(1, heap.poll());
+        assertEquals(2, heap.poll());
+        assertEquals(3, heap.poll());
+        assertEquals(4, heap.poll());
+        assertEquals(5, heap.poll());
+        assertEquals(0, heap.poll());
+    }
+
+    @Test
+    public void testRemoveAndContains() {
+        IndexedQuaternaryHeap.OfObject<String> heap =
+                new IndexedQuaternaryHeap.OfObject<>(4, Comparator.naturalOrder());
+        heap.insert(0, "c");
+        heap.insert(1, "a");
+        heap.insert(3, "b");
+
+        assertTrue(heap.contains(1));
+        assertFalse(heap.contains(2));
+        heap.remove(1);
+        assertFalse(heap.contains(1));
+        assertEquals(3, heap.poll());
+        assertEquals(0, heap.poll());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInsertTwice() {
+        IndexedQuaternaryHeap.OfDouble heap = new IndexedQuaternaryHeap.OfDouble(2);
+        heap.insert(1, 1.0);
+        heap.insert(1, 2.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecreaseKeyIncreasing() {
+        IndexedQuaternaryHeap.OfDouble heap = new IndexedQuaternaryHeap.OfDouble(2);
+        heap.insert(1, 1.0);
+        heap.decreaseKey(1, 2.0);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testRemoveAbsent() {
+        new IndexedQuaternaryHeap.OfDouble(2).remove(0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testHandleOutOfRange() {
+        new IndexedQuaternaryHeap.OfDouble(2).contains(2);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testPollEmpty() {
+        new IndexedQuaternaryHeap.OfLong(2).poll();
+    }
+
+    @Test
+    public void testRandomOperations() {
+        final int capacity = 300;
+        Random random = new Random(3506);
+        IndexedQuaternaryHeap.OfLong heap = new IndexedQuaternaryHeap.OfLong(capacity);
+        Long[] expected = new Long[capacity];
+
+        for (int step = 0; step < 20000; step++) {
+            int handle = random.nextInt(capacity);
+            long priority = random.nextInt(1000);
+            switch (random.nextInt(4)) {
+                case 0:
+                    if (expected[handle] == null) {
+                        heap.insert(handle, priority);
+                        expected[handle] = priority;
+                    }
+                    break;
+                case 1:
+                    if (expected[handle] != null) {
+                        heap.remove(handle);
+                        expected[handle] = null;
+                    }
+                    break;
+                case 2:
+                    if (expected[handle] != null) {
+                        if (priority <= expected[handle]) {
+                            heap.decreaseKey(handle, priority);
+                        } else {
+                            heap.increaseKey(handle, priority);
+                        }
+                        expected[handle] = priority;
+                    }
+                    break;
+                default:
+                    if (!heap.isEmpty()) {
+                        long least = Long.MAX_VALUE;
+                        for (Long value : expected) {
+                            if (value != null) {
+                                least = Math.min(least, value);
+                            }
+                        }
+                        int polled = heap.poll();
+                        assertEquals(least, (long) expected[polled]);
+                        expected[polled] = null;
+                    }
+            }
+            assertEquals(expected[handle] != null, heap.contains(handle));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class KWayMergeTest {
+
+    private static <T> List<T> drain(Iterator<T> iterator) {
+        List<T> result = new ArrayList<>();
+        iterator.forEachRemaining(result::add);
+        return result;
+    }
+
+    @Test
+    public void testMergeIterators() {
+        List<Iterator<Integer>> sources = Arrays.asList(
+                Arrays.asList(1, 4, 7).iterator(),
+                Collections.<Integer>emptyIterator(),
+                Arrays.asList(2, 5, 8, 9).iterator(),
+                Arrays.asList(0, 3, 6).iterator());
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9),
+                drain(KWayMerge.ofIterators(sources)));
+    }
+
+    @Test
+    public void testMergeManyLargeSources() {
+        Random random = new Random(3506);
+        List<Integer> expected = new ArrayList<>();
+        List<Iterator<Integer>> sources = new ArrayList<>();
+        for (int source = 0; source < 37; source++) {
+            List<Integer> run = new ArrayList<>();
+            for (int i = random.nextInt(500); i > 0; i--) {
+                run.add(random.nextInt(1000));
+            }
+            Collections.sort(run);
+            expected.addAll(run);
+            sources.add(run.iterator());
+        }
+        Collections.sort(expected);
+
+        assertEquals(expected, drain(KWayMerge.ofIterators(sources)));
+    }
+
+    @Test
+    public void testMergeArraysComparator() {
+        List<String[]> sources = Arrays.asList(
+                new String[] { "z", "c", "a" },
+                new String[] { "y", "b" });
+
+        assertEquals(Arrays.asList("z", "y", "c", "b", "a"),
+                drain(KWayMerge.ofArrays(sources, Comparator.reverseOrder())));
+    }
+
+    @Test
+    public void testMergeIsStable() {
+        // equal lengths are returned in source order
+        List<String[]> sources = Arrays.asList(
+                new String[] { "b", "dd" },
+                new String[] { "a", "cc", "eee" },
+                new String[] { "f" });
+
+        assertEquals(Arrays.asList("b", "a", "f", "dd", "cc", "eee"),
+                drain(KWayMerge.ofArrays(sources, Comparator.comparingInt(String::length))));
+    }
+
+    @Test
+    public void testNextBatch() {
+        List<Integer[]> sources = Arrays.asList(new Integer[] { 1, 3, 5 },
+                new Integer[] { 2, 4 });
+        KWayMerge<Integer> merge = KWayMerge.ofArrays(sources);
+        Integer[] batch = new Integer[3];
+
+        assertEquals(3, merge.nextBatch(batch));
+        assertArrayEquals(new Integer[] { 1, 2, 3 }, batch);
+        assertEquals(2, merge.nextBatch(batch));
+        assertEquals(Integer.valueOf(5), batch[1]);
+        assertEquals(0, merge.nextBatch(batch));
+        assertFalse(merge.hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testNextWhenEmpty() {
+        KWayMerge.ofArrays(Collections.<Integer[]>emptyList()).next();
+    }
+
+    @Test
+    public void testMergeInts() {
+        KWayMerge.OfInt merge = new KWayMerge.OfInt(new int[] { Integer.MIN_VALUE, 0, 5 },
+                new int[] {}, new int[] { -3, 5, Integer.MAX_VALUE }, new int[] { 1 });
+        int[] merged = new int[10];
+
+        assertEquals(7, merge.nextBatch(merged));
+        assertArrayEquals(new int[] { Integer.MIN_VALUE, -3, 0, 1, 5, 5, Integer.MAX_VALUE },
+                Arrays.copyOf(merged, 7));
+    }
+
+    @Test
+    public void testMergeLongs() {
+        Random random = new Random(3506);
+        long[][] sources = new long[10][];
+        long[] expected = new long[0];
+        for (int source = 0; source < sources.length; source++) {
+            sources[source] = random.longs(random.nextInt(100)).sorted().toArray();
+            long[] combined = Arrays.copyOf(expected, expected.length + sources[source].length);
+            System.arraycopy(sources[source], 0, combined, expected.length,
+                    sources[source].length);
+            expected = combined;
+        }
+        Arrays.sort(expected);
+
+        KWayMerge.OfLong merge = new KWayMerge.OfLong(sources);
+        long[] merged = new long[expected.length];
+        for (int i = 0; i < merged.length; i++) {
+            merged[i] = merge.nextLong();
+        }
+
+        assertArrayEquals(expected, merged);
+        assertFalse(merge.hasNext());
+    }
+}
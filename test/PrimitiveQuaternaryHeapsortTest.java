@@ -0,0 +1,160 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PrimitiveQuaternaryHeapsortTest {
+
+    @Test
+    public void testSortInts() {
+        int[] input = {8,9,8,7,6,11,8,7,6,9,7,8,1};
+
+        PrimitiveQuaternaryHeapsort.quaternaryHeapsort(input, null);
+
+        assertArrayEquals(new int[] { 1,6,6,7,7,7,8,8,8,8,9,9,11 }, input);
+    }
+
+    @Test
+    public void testSortLongsWithCompanion() {
+        long[] keys = {50, 10, 40, 20, 30};
+        int[] companion = {0, 1, 2, 3, 4};
+
+        PrimitiveQuaternaryHeapsort.quaternaryHeapsort(keys, companion);
+
+        assertArrayEquals(new long[] {10, 20, 30, 40, 50}, keys);
+        assertArrayEquals(new int[] {1, 3, 4, 2, 0}, companion);
+    }
+
+    @Test
+    public void testSortDoubles() {
+        double[] input = {2.5, -0.0, Double.NaN, -7.25, 0.0, Double.NEGATIVE_INFINITY};
+        double[] expected = input.clone();
+        Arrays.sort(expected);
+
+        PrimitiveQuaternaryHeapsort.quaternaryHeapsort(input, null);
+
+        assertArrayEquals(expected, input, 0.0);
+    }
+
+    @Test
+    public void testSortRandomWithCompanion() {
+        Random random = new Random(3506);
+        for (int size = 0; size < 100; size++) {
+            int[] keys = new int[size];
+            int[] companion = new int[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = random.nextInt(20) - 10;
+                companion[i] = keys[i] * 3;
+            }
+            int[] expected = keys.clone();
+            Arrays.sort(expected);
+
+            PrimitiveQuaternaryHeapsort.quaternaryHeapsort(keys, companion);
+
+            assertArrayEquals(expected, keys);
+            for (int i = 0; i < size; i++) {
+                assertEquals(keys[i] * 3, companion[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testDownheap() {
+        int[] input = {1, 0, 2, 3, 4, 10, 20, 30, 40};
+
+        PrimitiveQuaternaryHeapsort.quaternaryDownheap(input, null, 1, input.length);
+
+        assertArrayEquals(new int[] { 1, 40, 2, 3, 4, 10, 20, 30, 0 }, input);
+    }
+
+    @Test
+    public void testDownheapEqualChildren() {
+        int[] keys = {0, 5, 5, 5, 5};
+        int[] companion = {0, 1, 2, 3, 4};
+
+        PrimitiveQuaternaryHeapsort.quaternaryDownheap(keys, companion, 0, keys.length);
+
+        // the first of equally large children is chosen
+        assertArrayEquals(new int[] {5, 0, 5, 5, 5}, keys);
+        assertArrayEquals(new int[] {1, 0, 2, 3, 4}, companion);
+    }
+
+    @Test
+    public void testDownheapPartialLastGroup() {
+        int[] keys = {0, 1, 2, 3, 4, 5, 6, 7};
+
+        PrimitiveQuaternaryHeapsort.quaternaryDownheap(keys, null, 1, keys.length);
+
+        // position 1 has only three children, {5, 6, 7}
+        assertArrayEquals(new int[] {0, 7, 2, 3, 4, 5, 6, 1}, keys);
+    }
+
+    @Test
+    public void testArgsortInts() {
+        int[] keys = {50, 10, 40, 20, 30};
+
+        int[] order = PrimitiveQuaternaryHeapsort.quaternaryArgsort(keys);
+
+        assertArrayEquals(new int[] {1, 3, 4, 2, 0}, order);
+        assertArrayEquals(new int[] {50, 10, 40, 20, 30}, keys);
+    }
+
+    @Test
+    public void testArgsortRandom() {
+        Random random = new Random(3506);
+        for (int size = 0; size < 100; size++) {
+            long[] longs = new long[size];
+            double[] doubles = new double[size];
+            for (int i = 0; i < size; i++) {
+                longs[i] = random.nextInt(20);
+                doubles[i] = random.nextGaussian();
+            }
+            long[] sortedLongs = longs.clone();
+            Arrays.sort(sortedLongs);
+            double[] sortedDoubles = doubles.clone();
+            Arrays.sort(sortedDoubles);
+
+            int[] longOrder = PrimitiveQuaternaryHeapsort.quaternaryArgsort(longs);
+            int[] doubleOrder = PrimitiveQuaternaryHeapsort.quaternaryArgsort(doubles);
+
+            for (int i = 0; i < size; i++) {
+                assertEquals(sortedLongs[i], longs[longOrder[i]]);
+                assertEquals(sortedDoubles[i], doubles[doubleOrder[i]], 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelHeapifyMatchesSequential() {
+        Random random = new Random(3506);
+        int size = 500000;
+        int[] ints = new int[size];
+        long[] longs = new long[size];
+        double[] doubles = new double[size];
+        int[] companion = new int[size];
+        for (int i = 0; i < size; i++) {
+            ints[i] = random.nextInt();
+            longs[i] = random.nextLong();
+            doubles[i] = random.nextGaussian();
+            companion[i] = i;
+        }
+        int[] sequentialInts = ints.clone();
+        int[] sequentialCompanion = companion.clone();
+        long[] sequentialLongs = longs.clone();
+        double[] sequentialDoubles = doubles.clone();
+
+        PrimitiveQuaternaryHeapsort.parallelQuaternaryHeapify(ints, companion, size);
+        PrimitiveQuaternaryHeapsort.parallelQuaternaryHeapify(longs, null, size);
+        PrimitiveQuaternaryHeapsort.parallelQuaternaryHeapify(doubles, null, size);
+        PrimitiveQuaternaryHeapsort.quaternaryHeapify(sequentialInts, sequentialCompanion, size);
+        PrimitiveQuaternaryHeapsort.quaternaryHeapify(sequentialLongs, null, size);
+        PrimitiveQuaternaryHeapsort.quaternaryHeapify(sequentialDoubles, null, size);
+
+        assertArrayEquals(sequentialInts, ints);
+        assertArrayEquals(sequentialCompanion, companion);
+        assertArrayEquals(sequentialLongs, longs);
+        assertArrayEquals(sequentialDoubles, doubles, 0.0);
+    }
+}
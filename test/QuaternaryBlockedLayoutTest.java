@@ -0,0 +1,97 @@
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class QuaternaryBlockedLayoutTest {
+
+    @Test
+    public void testPhysicalIsPermutation() {
+        for (int levelsPerBlock = 1; levelsPerBlock <= 4; levelsPerBlock++) {
+            for (int blockedLevels = 0; blockedLevels <= 6; blockedLevels++) {
+                QuaternaryBlockedLayout layout =
+                        new QuaternaryBlockedLayout(levelsPerBlock, blockedLevels);
+                boolean[] used = new boolean[layout.maxSize()];
+                for (int logical = 0; logical < used.length; logical++) {
+                    int physical = layout.physical(logical);
+                    assertFalse(used[physical]);
+                    used[physical] = true;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSingleLevelBlocksArePlain() {
+        QuaternaryBlockedLayout layout = new QuaternaryBlockedLayout(1, 5);
+        for (int logical = 0; logical < layout.maxSize(); logical++) {
+            assertEquals(logical, layout.physical(logical));
+        }
+    }
+
+    @Test
+    public void testBlocksAreContiguous() {
+        // blocks of 2 levels: the root's block, then one block per node on level 2
+        QuaternaryBlockedLayout layout = new QuaternaryBlockedLayout(2, 4);
+        for (int logical = 0; logical <= 4; logical++) {
+            assertEquals(logical, layout.physical(logical));
+        }
+        // node 5 (first on level 2) and its children 21 to 24 form the second block
+        assertEquals(5, layout.physical(5));
+        assertEquals(6, layout.physical(21));
+        assertEquals(9, layout.physical(24));
+        assertEquals(10, layout.physical(6));
+        assertEquals(11, layout.physical(25));
+    }
+
+    @Test
+    public void testPartialLevelIsPlain() {
+        QuaternaryBlockedLayout layout = QuaternaryBlockedLayout.forSize(2, 30);
+        // levels 0 to 2 (21 nodes) are blocked, and level 3 follows them in order
+        for (int logical = 21; logical < 30; logical++) {
+            assertEquals(logical, layout.physical(logical));
+        }
+        assertEquals(85, layout.maxSize());
+    }
+
+    @Test
+    public void testDownheap() {
+        QuaternaryBlockedLayout layout = QuaternaryBlockedLayout.forSize(2, 5);
+        Integer[] heap = new Integer[5];
+        layout.fromPlain(new Integer[] {0, 10, 20, 30, 40}, heap, 5);
+
+        layout.downheap(heap, 0, 5, Comparator.naturalOrder());
+
+        Integer[] plain = new Integer[5];
+        layout.toPlain(heap, plain, 5);
+        assertArrayEquals(new Integer[] {40, 10, 20, 30, 0}, plain);
+    }
+
+    @Test
+    public void testHeapifyMatchesPlain() {
+        Random random = new Random(3506);
+        for (int size = 0; size < 400; size += 7) {
+            Integer[] input = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                input[i] = random.nextInt(100);
+            }
+            QuaternaryBlockedLayout layout = QuaternaryBlockedLayout.forSize(3, size);
+            Integer[] heap = new Integer[size];
+            layout.fromPlain(input, heap, size);
+
+            layout.heapify(heap, size, Comparator.naturalOrder());
+            QuaternaryHeapsort.quaternaryHeapify(input, size, Comparator.naturalOrder());
+
+            Integer[] plain = new Integer[size];
+            layout.toPlain(heap, plain, size);
+            assertArrayEquals(input, plain);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLevelsPerBlock() {
+        new QuaternaryBlockedLayout(0, 3);
+    }
+}
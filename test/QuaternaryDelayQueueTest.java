@@ -0,0 +1,216 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.Assert.*;
+
+public class QuaternaryDelayQueueTest {
+
+    /**
+     * A named timer that expires at a fixed System.nanoTime().
+     */
+    private static class Timer implements Delayed {
+        final String name;
+        final long deadline;
+
+        Timer(String name, long delayMillis) {
+            this.name = name;
+            this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadline, ((Timer) other).deadline);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static List<String> names(List<Timer> timers) {
+        List<String> result = new ArrayList<>();
+        for (Timer timer : timers) {
+            result.add(timer.name);
+        }
+        return result;
+    }
+
+    @Test
+    public void testPollOnlyExpired() {
+        QuaternaryDelayQueue<Timer> queue = new QuaternaryDelayQueue<>();
+        queue.offer(new Timer("later", 60000));
+        queue.offer(new Timer("b", -10));
+        queue.offer(new Timer("a", -20));
+
+        assertEquals(3, queue.size());
+        assertEquals("a", queue.poll().name);
+        assertEquals("b", queue.poll().name);
+        assertNull(queue.poll());
+        assertEquals("later", queue.peek().name);
+    }
+
+    @Test
+    public void testTakeWaitsForDelay() throws InterruptedException {
+        QuaternaryDelayQueue<Timer> queue = new QuaternaryDelayQueue<>();
+        long start = System.nanoTime();
+        queue.put(new Timer("soon", 50));
+
+        assertEquals("soon", queue.take().name);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void testPollTimeout() throws InterruptedException {
+        QuaternaryDelayQueue<Timer> queue = new QuaternaryDelayQueue<>();
+        queue.put(new Timer("later", 60000));
+
+        assertNull(queue.poll(20, TimeUnit.MILLISECONDS));
+        queue.put(new Timer("soon", 10));
+        assertEquals("soon", queue.poll(5, TimeUnit.SECONDS).name);
+    }
+
+    @Test
+    public void testCancel() {
+        QuaternaryDelayQueue<Timer> queue = new QuaternaryDelayQueue<>();
+        QuaternaryDelayQueue.Handle<Timer> first = queue.schedule(new Timer("a", -30));
+        queue.schedule(new Timer("b", -20));
+        QuaternaryDelayQueue.Handle<Timer> third = queue.schedule(new Timer("c", -10));
+
+        assertTrue(first.cancel());
+        assertFalse(first.cancel());
+        assertTrue(first.isCancelled());
+        assertEquals(2, queue.size());
+
+        assertEquals("b", queue.poll().name);
+        assertEquals("c", queue.poll().name);
+        // already taken, so too late to cancel
+        assertFalse(third.cancel());
+        assertFalse(third.isCancelled());
+        assertNull(queue.poll());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testCancelledAreEventuallyPurged() {
+        QuaternaryDelayQueue<Timer> queue = new QuaternaryDelayQueue<>();
+        for (int i = 0; i < 1000; i++) {
+            queue.schedule(new Timer("t" + i, 60000)).cancel();
+        }
+        queue.offer(new Timer("now", -1));
+
+        assertEquals(1, queue.size());
+        assertEquals("now", queue.poll().name);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testDrainExpired() {
+        QuaternaryDelayQueue<Timer> queue = new QuaternaryDelayQueue<>();
+        queue.offer(new Timer("c", -10));
+        queue.offer(new Timer("later", 60000));
+        queue.offer(new Timer("a", -30));
+        queue.schedule(new Timer("cancelled", -25)).cancel();
+        queue.offer(new Timer("b", -20));
+
+        List<Timer> expired = new ArrayList<>();
+        assertEquals(3, queue.drainExpired(expired));
+        assertEquals(Arrays.asList("a", "b", "c"), names(expired));
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void testRemoveAndIterator() {
+        QuaternaryDelayQueue<Timer> queue = new QuaternaryDelayQueue<>();
+        Timer a = new Timer("a", -10);
+        queue.offer(a);
+        queue.offer(new Timer("b", -5));
+
+        assertTrue(queue.remove(a));
+        assertFalse(queue.remove(a));
+        List<Timer> remaining = new ArrayList<>(queue);
+        assertEquals(Arrays.asList("b"), names(remaining));
+
+        Iterator<Timer> iterator = queue.iterator();
+        iterator.next();
+        iterator.remove();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testCancelRacingClear() throws InterruptedException {
+        QuaternaryDelayQueue<Timer> queue = new QuaternaryDelayQueue<>();
+        int rounds = 20000;
+        AtomicReferenceArray<QuaternaryDelayQueue.Handle<Timer>> handles =
+                new AtomicReferenceArray<>(rounds);
+        Thread canceller = new Thread(() -> {
+            for (int round = 0; round < rounds; round++) {
+                QuaternaryDelayQueue.Handle<Timer> handle;
+                while ((handle = handles.get(round)) == null) {
+                    Thread.yield();
+                }
+                handle.cancel();
+            }
+        });
+        canceller.start();
+        for (int round = 0; round < rounds; round++) {
+            handles.set(round, queue.schedule(new Timer("t" + round, 60000)));
+            queue.clear();
+        }
+        canceller.join();
+        assertEquals(0, queue.size());
+
+        // a cancellation counted after its clear would hide this element from size()
+        queue.offer(new Timer("now", -1));
+        assertEquals(1, queue.size());
+        assertEquals("now", queue.poll().name);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testLeaderFollower() throws InterruptedException {
+        QuaternaryDelayQueue<Timer> queue = new QuaternaryDelayQueue<>();
+        List<String> taken = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> takers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread taker = new Thread(() -> {
+                try {
+                    taken.add(queue.take().name);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            takers.add(taker);
+            taker.start();
+        }
+        for (int i = 0; i < 4; i++) {
+            queue.put(new Timer("t" + i, 20 + 10 * i));
+        }
+        for (Thread taker : takers) {
+            taker.join(5000);
+            assertFalse(taker.isAlive());
+        }
+
+        Collections.sort(taken);
+        assertEquals(Arrays.asList("t0", "t1", "t2", "t3"), taken);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testOfferNull() {
+        new QuaternaryDelayQueue<Timer>().offer(null);
+    }
+}
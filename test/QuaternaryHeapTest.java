@@ -0,0 +1,214 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class QuaternaryHeapTest {
+
+    private static <T> List<T> drain(QuaternaryHeap<T> heap) {
+        List<T> result = new ArrayList<>();
+        T next;
+        while ((next = heap.poll()) != null) {
+            result.add(next);
+        }
+        return result;
+    }
+
+    @Test
+    public void testEmpty() {
+        QuaternaryHeap<Integer> heap = new QuaternaryHeap<>();
+        assertTrue(heap.isEmpty());
+        assertNull(heap.peek());
+        assertNull(heap.poll());
+    }
+
+    @Test
+    public void testOfferPoll() {
+        QuaternaryHeap<Integer> heap = new QuaternaryHeap<>();
+        for (int value : new int[] {5, 1, 100, 2, 0, 7, 7}) {
+            heap.offer(value);
+        }
+
+        assertEquals(7, heap.size());
+        assertEquals(Integer.valueOf(0), heap.peek());
+        assertEquals(Arrays.asList(0, 1, 2, 5, 7, 7, 100), drain(heap));
+        assertEquals(0, heap.size());
+    }
+
+    @Test
+    public void testGrowsFromZeroCapacity() {
+        QuaternaryHeap<Integer> heap = new QuaternaryHeap<>(0);
+        for (int i = 100; i > 0; i--) {
+            heap.add(i);
+        }
+
+        assertEquals(100, heap.size());
+        assertEquals(Integer.valueOf(1), heap.peek());
+    }
+
+    @Test
+    public void testComparator() {
+        QuaternaryHeap<String> heap = new QuaternaryHeap<>(Comparator.reverseOrder());
+        heap.addAll(Arrays.asList("c", "a", "e", "b", "z"));
+
+        assertEquals(Arrays.asList("z", "e", "c", "b", "a"), drain(heap));
+    }
+
+    @Test
+    public void testHeapifyCollection() {
+        List<Integer> values = Arrays.asList(8, 9, 8, 7, 6, 11, 8, 7, 6, 9, 7, 8, 1);
+        QuaternaryHeap<Integer> heap = new QuaternaryHeap<>(values);
+
+        assertEquals(13, heap.size());
+        assertEquals(Arrays.asList(1, 6, 6, 7, 7, 7, 8, 8, 8, 8, 9, 9, 11), drain(heap));
+    }
+
+    @Test
+    public void testHeapifyEmptyCollection() {
+        QuaternaryHeap<Integer> heap = new QuaternaryHeap<>(new ArrayList<Integer>());
+        heap.add(3);
+
+        assertEquals(Integer.valueOf(3), heap.poll());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testOfferNull() {
+        new QuaternaryHeap<Integer>().offer(null);
+    }
+
+    @Test
+    public void testMatchesPriorityQueue() {
+        Random random = new Random(3506);
+        QuaternaryHeap<Integer> heap = new QuaternaryHeap<>();
+        PriorityQueue<Integer> expected = new PriorityQueue<>();
+        for (int i = 0; i < 10000; i++) {
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.poll(), heap.poll());
+            } else {
+                int value = random.nextInt(500);
+                expected.offer(value);
+                heap.offer(value);
+            }
+            assertEquals(expected.size(), heap.size());
+            assertEquals(expected.peek(), heap.peek());
+        }
+    }
+
+    @Test
+    public void testRemoveAndContains() {
+        QuaternaryHeap<Integer> heap = new QuaternaryHeap<>();
+        for (int i = 0; i < 30; i++) {
+            heap.add(i);
+        }
+
+        assertTrue(heap.contains(17));
+        assertTrue(heap.remove(17));
+        assertFalse(heap.contains(17));
+        assertFalse(heap.remove(17));
+        assertTrue(heap.remove(0));
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 1; i < 30; i++) {
+            if (i != 17) {
+                expected.add(i);
+            }
+        }
+        assertEquals(expected, drain(heap));
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        Random random = new Random(3506);
+        QuaternaryHeap<Integer> heap = new QuaternaryHeap<>();
+        List<Integer> kept = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            heap.add(random.nextInt(1000));
+        }
+
+        int seen = 0;
+        Iterator<Integer> iterator = heap.iterator();
+        while (iterator.hasNext()) {
+            int value = iterator.next();
+            seen++;
+            if (value % 2 == 0) {
+                iterator.remove();
+            } else {
+                kept.add(value);
+            }
+        }
+
+        assertEquals(200, seen);
+        kept.sort(null);
+        assertEquals(kept, drain(heap));
+    }
+
+    @Test
+    public void testClear() {
+        QuaternaryHeap<Integer> heap = new QuaternaryHeap<>(Arrays.asList(3, 1, 2));
+        heap.clear();
+
+        assertTrue(heap.isEmpty());
+        heap.add(4);
+        assertEquals(Integer.valueOf(4), heap.poll());
+    }
+
+    @Test
+    public void testBlockedLayoutMatchesPriorityQueue() {
+        Random random = new Random(3506);
+        QuaternaryHeap<Integer> heap = new QuaternaryHeap<>(4, null, 2);
+        PriorityQueue<Integer> expected = new PriorityQueue<>();
+        for (int i = 0; i < 5000; i++) {
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.poll(), heap.poll());
+            } else {
+                int value = random.nextInt(1000);
+                heap.offer(value);
+                expected.offer(value);
+            }
+        }
+        assertEquals(expected.size(), heap.size());
+        assertTrue(heap.remove(expected.peek()));
+        expected.remove(expected.peek());
+
+        List<Integer> sorted = new ArrayList<>();
+        while (!expected.isEmpty()) {
+            sorted.add(expected.poll());
+        }
+        assertEquals(sorted, drain(heap));
+    }
+
+    @Test
+    public void testBlockedLayoutIterator() {
+        QuaternaryHeap<Integer> heap = new QuaternaryHeap<>(0, Comparator.reverseOrder(), 3);
+        for (int i = 0; i < 100; i++) {
+            heap.offer(i);
+        }
+        Iterator<Integer> iterator = heap.iterator();
+        int sum = 0;
+        while (iterator.hasNext()) {
+            int value = iterator.next();
+            sum += value;
+            if (value % 2 == 0) {
+                iterator.remove();
+            }
+        }
+
+        assertEquals(4950, sum);
+        assertEquals(50, heap.size());
+        assertEquals(Integer.valueOf(99), heap.peek());
+        heap.clear();
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLevelsPerBlock() {
+        new QuaternaryHeap<Integer>(16, null, -1);
+    }
+}
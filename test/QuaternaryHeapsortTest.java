@@ -1,4 +1,14 @@
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -90,4 +100,264 @@ public class QuaternaryHeapsortTest {
         // we only look at the first node's children, and swap with the largest within our size range
         assertArrayEquals(new Integer[] { 3, 0, 2, 1, 4, 10, 20, 30, 40 }, input);
     }
+
+    @Test
+    public void testSortSecondLevelInternalNode() {
+        // node 1 has a child (position 5), so it must be heapified before sorting
+        Integer[] input = {1, 2, 3, 4, 5, 6};
+
+        QuaternaryHeapsort.quaternaryHeapsort(input);
+
+        assertArrayEquals(new Integer[] { 1, 2, 3, 4, 5, 6 }, input);
+    }
+
+    @Test
+    public void testSortLarge() {
+        Integer[] input = new Integer[100000];
+        Random random = new Random(3506);
+        for (int i = 0; i < input.length; i++) {
+            input[i] = random.nextInt(1000);
+        }
+        Integer[] expected = Helpers.makeSortedCopy(input);
+
+        QuaternaryHeapsort.quaternaryHeapsort(input);
+
+        assertArrayEquals(expected, input);
+    }
+
+    @Test
+    public void testBottomUpSort() {
+        Integer[] input = {8,9,8,7,6,11,8,7,6,9,7,8,1};
+
+        QuaternaryHeapsort.bottomUpQuaternaryHeapsort(input);
+
+        assertArrayEquals(new Integer[] { 1,6,6,7,7,7,8,8,8,8,9,9,11 }, input);
+    }
+
+    @Test
+    public void testBottomUpSortSmall() {
+        Integer[] empty = {};
+        Integer[] single = {1};
+        Integer[] pair = {2, 1};
+
+        QuaternaryHeapsort.bottomUpQuaternaryHeapsort(empty);
+        QuaternaryHeapsort.bottomUpQuaternaryHeapsort(single);
+        QuaternaryHeapsort.bottomUpQuaternaryHeapsort(pair);
+
+        assertArrayEquals(new Integer[] {}, empty);
+        assertArrayEquals(new Integer[] { 1 }, single);
+        assertArrayEquals(new Integer[] { 1, 2 }, pair);
+    }
+
+    @Test
+    public void testBottomUpSortRandom() {
+        Random random = new Random(3506);
+        for (int size = 0; size < 200; size++) {
+            Integer[] input = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                input[i] = random.nextInt(50);
+            }
+            Integer[] expected = Helpers.makeSortedCopy(input);
+
+            QuaternaryHeapsort.bottomUpQuaternaryHeapsort(input);
+
+            assertArrayEquals(expected, input);
+        }
+    }
+
+    @Test
+    public void testBottomUpSortUsesFewerComparisons() {
+        Random random = new Random(3506);
+        CountingKey[] standard = new CountingKey[20000];
+        for (int i = 0; i < standard.length; i++) {
+            standard[i] = new CountingKey(random.nextInt());
+        }
+        CountingKey[] bottomUp = standard.clone();
+
+        CountingKey.comparisons = 0;
+        QuaternaryHeapsort.quaternaryHeapsort(standard);
+        long standardComparisons = CountingKey.comparisons;
+
+        CountingKey.comparisons = 0;
+        QuaternaryHeapsort.bottomUpQuaternaryHeapsort(bottomUp);
+        long bottomUpComparisons = CountingKey.comparisons;
+
+        assertArrayEquals(standard, bottomUp);
+        // bottom-up saves close to one of the four comparisons made per level
+        assertTrue(bottomUpComparisons < standardComparisons * 0.85);
+    }
+
+    /**
+     * An integer key that counts how many times it has been compared.
+     */
+    private static class CountingKey implements Comparable<CountingKey> {
+        static long comparisons;
+        final int key;
+
+        CountingKey(int key) {
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(CountingKey other) {
+            comparisons++;
+            return Integer.compare(key, other.key);
+        }
+    }
+
+    @Test
+    public void testLazySorted() {
+        Integer[] input = {8,9,8,7,6,11,8,7,6,9,7,8,1};
+
+        List<Integer> output = new ArrayList<>();
+        QuaternaryHeapsort.lazySorted(input).forEachRemaining(output::add);
+
+        assertEquals(Arrays.asList(1,6,6,7,7,7,8,8,8,8,9,9,11), output);
+        // fully consumed, the heap is left in descending order
+        assertArrayEquals(new Integer[] { 11,9,9,8,8,8,8,7,7,7,6,6,1 }, input);
+    }
+
+    @Test
+    public void testLazySortedPartial() {
+        Integer[] input = new Integer[1000];
+        Random random = new Random(3506);
+        for (int i = 0; i < input.length; i++) {
+            input[i] = random.nextInt();
+        }
+        Integer[] expected = Helpers.makeSortedCopy(input);
+
+        Iterator<Integer> iterator = QuaternaryHeapsort.lazySorted(input);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(expected[i], iterator.next());
+        }
+        assertTrue(iterator.hasNext());
+
+        Integer[] permutation = Helpers.makeSortedCopy(input);
+        assertArrayEquals(expected, permutation);
+    }
+
+    @Test
+    public void testLazySortedComparator() {
+        String[] input = {"c", "a", "e", "b", "z"};
+
+        List<String> output = new ArrayList<>();
+        QuaternaryHeapsort.lazySorted(input, Comparator.reverseOrder())
+                .forEachRemaining(output::add);
+
+        assertEquals(Arrays.asList("z", "e", "c", "b", "a"), output);
+    }
+
+    @Test
+    public void testLazySortedEmpty() {
+        assertFalse(QuaternaryHeapsort.lazySorted(new Integer[0]).hasNext());
+    }
+
+    @Test
+    public void testSortByIntKey() {
+        String[] input = {"ccc", "a", "eeeee", "bb", "zzzz"};
+
+        QuaternaryHeapsort.sortByIntKey(input, String::length);
+
+        assertArrayEquals(new String[] { "a", "bb", "ccc", "zzzz", "eeeee" }, input);
+    }
+
+    @Test
+    public void testSortByLongKey() {
+        Random random = new Random(3506);
+        Integer[] input = new Integer[1000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = random.nextInt();
+        }
+        Integer[] expected = Helpers.makeSortedCopy(input);
+
+        QuaternaryHeapsort.sortByLongKey(input, Integer::longValue);
+
+        assertArrayEquals(expected, input);
+    }
+
+    @Test
+    public void testSortByDoubleKey() {
+        Double[] input = {2.5, -0.0, Double.NaN, -7.25, 0.0, 1e300};
+        Double[] expected = Helpers.makeSortedCopy(input);
+
+        QuaternaryHeapsort.sortByDoubleKey(input, Double::doubleValue);
+
+        assertArrayEquals(expected, input);
+    }
+
+    @Test
+    public void testArgsort() {
+        String[] input = {"c", "a", "e", "b", "z"};
+
+        int[] order = QuaternaryHeapsort.quaternaryArgsort(input);
+
+        assertArrayEquals(new int[] { 1, 3, 0, 2, 4 }, order);
+        // input is not modified
+        assertArrayEquals(new String[] { "c", "a", "e", "b", "z" }, input);
+    }
+
+    @Test
+    public void testArgsortComparator() {
+        Integer[] input = {8,9,8,7,6,11,8,7,6,9,7,8,1};
+
+        int[] order = QuaternaryHeapsort.quaternaryArgsort(input, Comparator.reverseOrder());
+
+        Integer[] sorted = new Integer[input.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = input[order[i]];
+        }
+        assertArrayEquals(new Integer[] { 11,9,9,8,8,8,8,7,7,7,6,6,1 }, sorted);
+    }
+
+    @Test
+    public void testBlockedSort() {
+        Random random = new Random(3506);
+        for (int levelsPerBlock = 1; levelsPerBlock <= 5; levelsPerBlock++) {
+            for (int size = 0; size < 300; size += 11) {
+                Integer[] input = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    input[i] = random.nextInt(100);
+                }
+                Integer[] expected = Helpers.makeSortedCopy(input);
+
+                QuaternaryHeapsort.blockedQuaternaryHeapsort(input, levelsPerBlock);
+
+                assertArrayEquals(expected, input);
+            }
+        }
+    }
+
+    @Test
+    public void testBlockedSortComparator() {
+        String[] input = {"c", "a", "e", "b", "z"};
+
+        QuaternaryHeapsort.blockedQuaternaryHeapsort(input, 2, Comparator.reverseOrder());
+
+        assertArrayEquals(new String[] { "z", "e", "c", "b", "a" }, input);
+    }
+
+    @Test
+    public void testFarLeftDoesNotOverflow() {
+        // 4i + 1 would overflow for any node past position Integer.MAX_VALUE / 4
+        assertEquals(Integer.MAX_VALUE - 2, QuaternaryHeapsort.farLeft(Integer.MAX_VALUE / 4));
+        assertEquals(Integer.MAX_VALUE, QuaternaryHeapsort.farLeft(Integer.MAX_VALUE / 4 + 1));
+        assertEquals(Integer.MAX_VALUE, QuaternaryHeapsort.farLeft(Integer.MAX_VALUE - 9));
+    }
+
+    @Test
+    public void testParallelHeapifyMatchesSequential() {
+        Random random = new Random(3506);
+        for (int size : new int[] { 0, 1, 5, 1000, 400000 }) {
+            Integer[] parallel = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                parallel[i] = random.nextInt();
+            }
+            Integer[] sequential = parallel.clone();
+
+            QuaternaryHeapsort.parallelQuaternaryHeapify(parallel, size, Comparator.naturalOrder());
+            QuaternaryHeapsort.quaternaryHeapify(sequential, size, Comparator.naturalOrder());
+
+            assertArrayEquals(sequential, parallel);
+        }
+    }
 }
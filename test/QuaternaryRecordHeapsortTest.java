@@ -0,0 +1,158 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class QuaternaryRecordHeapsortTest {
+
+    // 12 byte records: a 4 byte id followed by an 8 byte key
+    private static final int WIDTH = 12;
+
+    private ByteBuffer records(long[] keys) {
+        ByteBuffer buffer = ByteBuffer.allocate(keys.length * WIDTH);
+        for (int i = 0; i < keys.length; i++) {
+            buffer.putInt(i);
+            buffer.putLong(keys[i]);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private void assertSortedRecords(long[] keys, ByteBuffer buffer) {
+        long[] expected = keys.clone();
+        Arrays.sort(expected);
+        boolean[] seen = new boolean[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            int id = buffer.getInt(i * WIDTH);
+            long key = buffer.getLong(i * WIDTH + 4);
+            assertEquals(expected[i], key);
+            // each record moved as a whole
+            assertEquals(keys[id], key);
+            assertFalse(seen[id]);
+            seen[id] = true;
+        }
+    }
+
+    @Test
+    public void testSortLongKeys() {
+        long[] keys = {8, 9, 8, 7, 6, 11, 8, 7, 6, 9, 7, 8, 1};
+        ByteBuffer buffer = records(keys);
+
+        QuaternaryRecordHeapsort.quaternaryHeapsort(buffer, WIDTH, 4,
+                QuaternaryRecordHeapsort.KeyType.LONG);
+
+        assertSortedRecords(keys, buffer);
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testSortRandomDirect() {
+        Random random = new Random(3506);
+        long[] keys = new long[5000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(keys.length * WIDTH);
+        buffer.put(records(keys)).flip();
+
+        QuaternaryRecordHeapsort.quaternaryHeapsort(buffer, WIDTH, 4,
+                QuaternaryRecordHeapsort.KeyType.LONG);
+
+        assertSortedRecords(keys, buffer);
+    }
+
+    @Test
+    public void testSortIntKeysLittleEndian() {
+        int[] keys = {5, -1, 100, 2, 0, Integer.MIN_VALUE};
+        ByteBuffer buffer = ByteBuffer.allocate(keys.length * Integer.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (int key : keys) {
+            buffer.putInt(key);
+        }
+        buffer.flip();
+
+        QuaternaryRecordHeapsort.quaternaryHeapsort(buffer, Integer.BYTES, 0,
+                QuaternaryRecordHeapsort.KeyType.INT);
+
+        int[] sorted = new int[keys.length];
+        buffer.asIntBuffer().get(sorted);
+        assertArrayEquals(new int[] {Integer.MIN_VALUE, -1, 0, 2, 5, 100}, sorted);
+    }
+
+    @Test
+    public void testSortDoubleKeys() {
+        double[] keys = {2.5, -0.0, Double.NaN, -7.25, 0.0, 1e300};
+        ByteBuffer buffer = ByteBuffer.allocate(keys.length * Double.BYTES);
+        for (double key : keys) {
+            buffer.putDouble(key);
+        }
+        buffer.flip();
+
+        QuaternaryRecordHeapsort.quaternaryHeapsort(buffer, Double.BYTES, 0,
+                QuaternaryRecordHeapsort.KeyType.DOUBLE);
+
+        double[] sorted = new double[keys.length];
+        buffer.asDoubleBuffer().get(sorted);
+        double[] expected = keys.clone();
+        Arrays.sort(expected);
+        assertArrayEquals(expected, sorted, 0.0);
+    }
+
+    @Test
+    public void testSortMappedFile() throws IOException {
+        Random random = new Random(3506);
+        long[] keys = new long[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextInt(100);
+        }
+        Path file = Files.createTempFile("records", ".bin");
+        try {
+            Files.write(file, records(keys).array());
+
+            QuaternaryRecordHeapsort.quaternaryHeapsort(file, WIDTH, 4,
+                    QuaternaryRecordHeapsort.KeyType.LONG);
+
+            assertSortedRecords(keys, ByteBuffer.wrap(Files.readAllBytes(file)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testKeyOutsideRecord() {
+        QuaternaryRecordHeapsort.quaternaryHeapsort(ByteBuffer.allocate(24), WIDTH, 8,
+                QuaternaryRecordHeapsort.KeyType.LONG);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPartialRecord() {
+        QuaternaryRecordHeapsort.quaternaryHeapsort(ByteBuffer.allocate(20), WIDTH, 4,
+                QuaternaryRecordHeapsort.KeyType.LONG);
+    }
+
+    @Test
+    public void testMappedFileInvalidWidth() throws IOException {
+        Path file = Files.createTempFile("records", ".bin");
+        try {
+            Files.write(file, new byte[24]);
+            assertThrows(IllegalArgumentException.class, () ->
+                    QuaternaryRecordHeapsort.quaternaryHeapsort(file, 0, 0,
+                            QuaternaryRecordHeapsort.KeyType.INT));
+            assertThrows(IllegalArgumentException.class, () ->
+                    QuaternaryRecordHeapsort.quaternaryHeapsort(file, -8, 0,
+                            QuaternaryRecordHeapsort.KeyType.INT));
+            assertThrows(IllegalArgumentException.class, () ->
+                    QuaternaryRecordHeapsort.quaternaryHeapsort(file, WIDTH, 8,
+                            QuaternaryRecordHeapsort.KeyType.LONG));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SortEngineTest {
+
+    private static Integer[] boxed(int[] values) {
+        return Arrays.stream(values).boxed().toArray(Integer[]::new);
+    }
+
+    private static int[] randomInts(int size, long seed) {
+        Random random = new Random(seed);
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextInt();
+        }
+        return values;
+    }
+
+    @Test
+    public void testAlreadySorted() {
+        Integer[] input = {1, 2, 2, 3, 5};
+
+        assertEquals(SortEngine.Strategy.ALREADY_SORTED, SortEngine.sort(input));
+        assertArrayEquals(new Integer[] {1, 2, 2, 3, 5}, input);
+        assertEquals(SortEngine.Strategy.ALREADY_SORTED, SortEngine.sort(new Integer[0]));
+    }
+
+    @Test
+    public void testReversed() {
+        Integer[] input = {5, 3, 2, 1};
+
+        assertEquals(SortEngine.Strategy.REVERSED, SortEngine.sort(input));
+        assertArrayEquals(new Integer[] {1, 2, 3, 5}, input);
+    }
+
+    @Test
+    public void testInsertionSort() {
+        Integer[] input = {8,9,8,7,6,11,8,7,6,9,7,8,1};
+
+        assertEquals(SortEngine.Strategy.INSERTION_SORT, SortEngine.sort(input));
+        assertArrayEquals(new Integer[] { 1,6,6,7,7,7,8,8,8,8,9,9,11 }, input);
+    }
+
+    @Test
+    public void testRunMerge() {
+        // three long ascending runs and one descending run
+        Integer[] input = new Integer[4000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (i < 3000) ? (i % 1000) * 7 : 10000 - i;
+        }
+        Integer[] expected = Helpers.makeSortedCopy(input);
+
+        assertEquals(SortEngine.Strategy.RUN_MERGE, SortEngine.sort(input));
+        assertArrayEquals(expected, input);
+    }
+
+    @Test
+    public void testHeapsort() {
+        Integer[] input = boxed(randomInts(5000, 3506));
+        Integer[] expected = Helpers.makeSortedCopy(input);
+
+        assertEquals(SortEngine.Strategy.HEAPSORT, SortEngine.sort(input));
+        assertArrayEquals(expected, input);
+    }
+
+    @Test
+    public void testComparator() {
+        String[] input = {"c", "a", "e", "b", "z"};
+
+        SortEngine.sort(input, Comparator.reverseOrder());
+
+        assertArrayEquals(new String[] {"z", "e", "c", "b", "a"}, input);
+    }
+
+    @Test
+    public void testRandomObjectInputs() {
+        Random random = new Random(3506);
+        for (int size = 0; size < 300; size += 7) {
+            Integer[] input = new Integer[size];
+            int runLength = 1 + random.nextInt(200);
+            for (int i = 0; i < size; i++) {
+                input[i] = (i % runLength) + random.nextInt(3);
+            }
+            Integer[] expected = Helpers.makeSortedCopy(input);
+
+            SortEngine.sort(input);
+
+            assertArrayEquals(expected, input);
+        }
+    }
+
+    @Test
+    public void testIntStrategies() {
+        int[] sorted = {1, 2, 3};
+        int[] reversed = {3, 2, 1};
+        int[] small = {2, 3, 1};
+        int[] large = randomInts(1000, 3506);
+        int[] expected = large.clone();
+        Arrays.sort(expected);
+
+        assertEquals(SortEngine.Strategy.ALREADY_SORTED, SortEngine.sort(sorted));
+        assertEquals(SortEngine.Strategy.REVERSED, SortEngine.sort(reversed));
+        assertEquals(SortEngine.Strategy.INSERTION_SORT, SortEngine.sort(small));
+        assertEquals(SortEngine.Strategy.RADIX, SortEngine.sort(large));
+        assertArrayEquals(new int[] {1, 2, 3}, reversed);
+        assertArrayEquals(new int[] {1, 2, 3}, small);
+        assertArrayEquals(expected, large);
+    }
+
+    @Test
+    public void testRadixNegativeAndSmallRange() {
+        int[] ints = {5, -1, Integer.MIN_VALUE, 0, Integer.MAX_VALUE, -1, 7, 3, 2, 9, 1, 4, 6, 8,
+                -5, 10, 12, 11, 13, 15, 14, 16, 18, 17, 19, 21, 20, 22, 24, 23, 25, 26, -26};
+        long[] longs = new long[1000];
+        Random random = new Random(3506);
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = (i % 2 == 0) ? random.nextLong() : random.nextInt(10) - 5;
+        }
+        int[] expectedInts = ints.clone();
+        Arrays.sort(expectedInts);
+        long[] expectedLongs = longs.clone();
+        Arrays.sort(expectedLongs);
+
+        assertEquals(SortEngine.Strategy.RADIX, SortEngine.sort(ints));
+        assertEquals(SortEngine.Strategy.RADIX, SortEngine.sort(longs));
+        assertArrayEquals(expectedInts, ints);
+        assertArrayEquals(expectedLongs, longs);
+    }
+}
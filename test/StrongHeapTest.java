@@ -1,5 +1,10 @@
 import org.junit.Test;
 
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
 import static org.junit.Assert.*;
 
 public class StrongHeapTest {
@@ -97,4 +102,368 @@ public class StrongHeapTest {
         ));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testSumDoesNotOverflow() {
+        // (MAX_VALUE - 2) + (MAX_VALUE - 1) overflows an int, but is not < MAX_VALUE
+        assertFalse(StrongHeap.isStrongHeap(
+                tree(left(leaf(Integer.MAX_VALUE - 2), Integer.MAX_VALUE - 1), Integer.MAX_VALUE,
+                        leaf(0))
+        ));
+    }
+
+    @Test
+    public void testLargeTree() {
+        // 2^21 - 1 nodes, validated without recursion
+        BinaryTree<Integer>[] nodes = Helpers.makeCompleteTreeArray(
+                Helpers.makeStrongHeapArray((1 << 21) - 1));
+
+        assertTrue(StrongHeap.isStrongHeap(nodes[0]));
+
+        // a missing leaf before the last level ends
+        nodes[nodes.length / 2 - 10].setLeft(null);
+        assertFalse(StrongHeap.isStrongHeap(nodes[0]));
+    }
+
+    @Test
+    public void testDeepTree() {
+        // a path far deeper than the call stack could recurse
+        BinaryTree<Integer> root = leaf(0);
+        for (int i = 1; i < 1000000; i++) {
+            root = left(root, i);
+        }
+
+        assertFalse(StrongHeap.isStrongHeap(root));
+    }
+
+    @Test
+    public void testParallelExamples() {
+        assertTrue(StrongHeap.isStrongHeapParallel(leaf(1)));
+        assertTrue(StrongHeap.isStrongHeapParallel(
+                tree(tree(leaf(4), 5, leaf(3)), 10, leaf(6))
+        ));
+        assertFalse(StrongHeap.isStrongHeapParallel(
+                tree(tree(leaf(5), 5, leaf(3)), 10, leaf(6))
+        ));
+        assertFalse(StrongHeap.isStrongHeapParallel(
+                tree(right(5, leaf(3)), 10, leaf(6))
+        ));
+        assertFalse(StrongHeap.isStrongHeapParallel(
+                tree(left(leaf(98), 99), 100, leaf(99))
+        ));
+    }
+
+    @Test
+    public void testParallelMatchesSequential() {
+        // every complete shape up to 2^9 nodes, forked down to the leaves
+        for (int size = 1; size < (1 << 9); size++) {
+            BinaryTree<Integer>[] nodes = Helpers.makeCompleteTreeArray(
+                    Helpers.makeStrongHeapArray(size));
+            assertTrue(StrongHeap.isStrongHeapParallel(nodes[0]));
+
+            // a gap before the last node
+            if (size >= 4) {
+                int removed = size - 2;
+                if (removed % 2 == 1) {
+                    nodes[(removed - 1) / 2].setLeft(null);
+                } else {
+                    nodes[(removed - 1) / 2].setRight(null);
+                }
+                assertFalse(StrongHeap.isStrongHeap(nodes[0]));
+                assertFalse(StrongHeap.isStrongHeapParallel(nodes[0]));
+            }
+        }
+    }
+
+    @Test
+    public void testParallelLargeTree() {
+        BinaryTree<Integer>[] nodes = Helpers.makeCompleteTreeArray(
+                Helpers.makeStrongHeapArray((1 << 21) - 1));
+
+        assertTrue(StrongHeap.isStrongHeapParallel(nodes[0]));
+
+        // a missing leaf in the middle of the last full level
+        int parent = nodes.length / 2 - 10;
+        nodes[parent].setLeft(null);
+        assertFalse(StrongHeap.isStrongHeapParallel(nodes[0]));
+        nodes[parent].setLeft(nodes[2 * parent + 1]);
+        assertTrue(StrongHeap.isStrongHeapParallel(nodes[0]));
+
+        // a value violation deep in one subtree
+        nodes[nodes.length - 1] = new BinaryTree<>(Integer.MAX_VALUE);
+        nodes[(nodes.length - 2) / 2].setRight(nodes[nodes.length - 1]);
+        assertFalse(StrongHeap.isStrongHeapParallel(nodes[0]));
+    }
+
+    @Test
+    public void testParallelDeepTree() {
+        BinaryTree<Integer> root = leaf(0);
+        for (int i = 1; i < 1000000; i++) {
+            root = left(root, i);
+        }
+
+        assertFalse(StrongHeap.isStrongHeapParallel(root));
+    }
+
+    @Test
+    public void testIncrementalExamples() {
+        assertTrue(StrongHeap.isStrongHeapIncremental(leaf(1)));
+        assertTrue(StrongHeap.isStrongHeapIncremental(
+                tree(tree(leaf(4), 5, leaf(3)), 10, leaf(6))
+        ));
+        assertFalse(StrongHeap.isStrongHeapIncremental(
+                tree(tree(leaf(5), 5, leaf(3)), 10, leaf(6))
+        ));
+        assertFalse(StrongHeap.isStrongHeapIncremental(
+                tree(right(5, leaf(3)), 10, leaf(6))
+        ));
+    }
+
+    @Test
+    public void testIncrementalAfterEdits() {
+        BinaryTree<Integer> five = tree(leaf(4), 5, leaf(3));
+        BinaryTree<Integer> root = tree(five, 10, leaf(6));
+        assertTrue(StrongHeap.isStrongHeapIncremental(root));
+
+        // 5 + 5 not < 10
+        five.setLeft(leaf(5));
+        assertFalse(StrongHeap.isStrongHeapIncremental(root));
+        five.setLeft(leaf(2));
+        assertTrue(StrongHeap.isStrongHeapIncremental(root));
+
+        // not complete
+        five.setLeft(null);
+        assertFalse(StrongHeap.isStrongHeapIncremental(root));
+        five.setRight(null);
+        assertTrue(StrongHeap.isStrongHeapIncremental(root));
+
+        // an edit below a newly set child reaches the root through it
+        BinaryTree<Integer> four = leaf(4);
+        five.setLeft(four);
+        assertTrue(StrongHeap.isStrongHeapIncremental(root));
+        four.setLeft(leaf(3));
+        assertFalse(StrongHeap.isStrongHeapIncremental(root));
+    }
+
+    @Test
+    public void testIncrementalMatchesFull() {
+        BinaryTree<Integer>[] nodes = Helpers.makeCompleteTreeArray(
+                Helpers.makeStrongHeapArray((1 << 16) - 1));
+        assertTrue(StrongHeap.isStrongHeapIncremental(nodes[0]));
+
+        Random random = new Random(46);
+        for (int edit = 0; edit < 2000; edit++) {
+            int position = random.nextInt(nodes.length / 2);
+            int child = 2 * position + 1 + random.nextInt(2);
+            BinaryTree<Integer> replacement = random.nextBoolean() ? nodes[child] : null;
+            if (child % 2 == 1) {
+                nodes[position].setLeft(replacement);
+            } else {
+                nodes[position].setRight(replacement);
+            }
+            assertEquals(StrongHeap.isStrongHeap(nodes[0]),
+                    StrongHeap.isStrongHeapIncremental(nodes[0]));
+        }
+    }
+
+    @Test
+    public void testIncrementalDeepTree() {
+        BinaryTree<Integer> root = leaf(0);
+        for (int i = 1; i < 1000000; i++) {
+            root = left(root, i);
+        }
+
+        assertFalse(StrongHeap.isStrongHeapIncremental(root));
+    }
+
+    @Test
+    public void testCompact() {
+        assertTrue(StrongHeap.isStrongHeap(CompactBinaryTree.OfInt.ofComplete(10, 5, 6, 4, 3)));
+        assertFalse(StrongHeap.isStrongHeap(CompactBinaryTree.OfInt.ofComplete(10, 5, 6, 5, 3)));
+        assertTrue(StrongHeap.isStrongHeap(CompactBinaryTree.OfInt.fromBinaryTree(
+                tree(tree(leaf(4), 5, leaf(3)), 10, leaf(6)))));
+        // not complete
+        assertFalse(StrongHeap.isStrongHeap(CompactBinaryTree.OfInt.fromBinaryTree(
+                tree(right(5, leaf(3)), 10, leaf(6)))));
+
+        BinaryTree<Integer>[] nodes = Helpers.makeCompleteTreeArray(
+                Helpers.makeStrongHeapArray((1 << 16) - 1));
+        assertTrue(StrongHeap.isStrongHeap(CompactBinaryTree.OfInt.fromBinaryTree(nodes[0])));
+        nodes[nodes.length / 2 - 10].setLeft(null);
+        assertFalse(StrongHeap.isStrongHeap(CompactBinaryTree.OfInt.fromBinaryTree(nodes[0])));
+    }
+
+    private static boolean isStrongHeapArray(int[] values) {
+        for (int i = 1; i < values.length; i++) {
+            int parent = (i - 1) / 2;
+            if (values[i] >= values[parent]) {
+                return false;
+            }
+            if (parent > 0 && (long) values[i] + values[parent] >= values[(parent - 1) / 2]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isStrongHeapArray(long[] values) {
+        for (int i = 1; i < values.length; i++) {
+            int parent = (i - 1) / 2;
+            if (values[i] >= values[parent]) {
+                return false;
+            }
+            if (parent > 0 && BigInteger.valueOf(values[i]).add(BigInteger.valueOf(values[parent]))
+                    .compareTo(BigInteger.valueOf(values[(parent - 1) / 2])) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tries every permutation of the given values, from the given position on.
+     */
+    private static boolean anyStrongHeap(int[] values, int from) {
+        if (from == values.length) {
+            return isStrongHeapArray(values);
+        }
+        for (int i = from; i < values.length; i++) {
+            int[] swapped = values.clone();
+            swapped[from] = values[i];
+            swapped[i] = values[from];
+            if (anyStrongHeap(swapped, from + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testInsertExtract() {
+        StrongHeap heap = new StrongHeap();
+        for (int value : new int[] {1, 100, 10, 40, 50, 3, 0}) {
+            heap.insert(value);
+            assertTrue(isStrongHeapArray(heap.toArray()));
+        }
+
+        assertEquals(7, heap.size());
+        assertEquals(100, heap.peekMax());
+        int[] expected = {100, 50, 40, 10, 3, 1, 0};
+        for (int value : expected) {
+            assertEquals(value, heap.extractMax());
+            assertTrue(isStrongHeapArray(heap.toArray()));
+        }
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    public void testInsertRejected() {
+        StrongHeap heap = StrongHeap.heapify(100, 50, 40);
+        int[] before = heap.toArray();
+
+        // equal to the root, so cannot be its child or parent
+        assertThrows(IllegalArgumentException.class, () -> heap.insert(100));
+
+        assertArrayEquals(before, heap.toArray());
+    }
+
+    @Test
+    public void testExtractRejected() {
+        // removing 100 leaves 60 above 59 and 35, whose sums are too large
+        StrongHeap heap = StrongHeap.heapify(100, 60, 59, 30, 20, 35);
+        int[] before = heap.toArray();
+
+        assertThrows(IllegalStateException.class, heap::extractMax);
+        assertArrayEquals(before, heap.toArray());
+        assertEquals(100, heap.peekMax());
+    }
+
+    @Test
+    public void testInsertNeedsSearch() {
+        StrongHeap heap = StrongHeap.heapify(19, 12, 2);
+
+        // neither the upheap nor descending level order works, but 19, 12, 18, 2 does
+        heap.insert(18);
+        assertTrue(isStrongHeapArray(heap.toArray()));
+        assertEquals(4, heap.size());
+        assertEquals(19, heap.extractMax());
+        assertEquals(18, heap.peekMax());
+    }
+
+    @Test
+    public void testArrangementMatchesExhaustive() {
+        Random random = new Random(43);
+        for (int i = 0; i < 300; i++) {
+            int[] values = new int[1 + random.nextInt(7)];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = random.nextInt(40) - 10;
+            }
+            boolean exists = anyStrongHeap(values, 0);
+            try {
+                StrongHeap heap = StrongHeap.heapify(values);
+                assertTrue(exists);
+                assertTrue(isStrongHeapArray(heap.toArray()));
+            } catch (IllegalArgumentException e) {
+                assertFalse(exists);
+            }
+        }
+    }
+
+    @Test
+    public void testHeapify() {
+        StrongHeap heap = StrongHeap.heapify(0, 1, 3, 20, 8, 100);
+
+        assertEquals(6, heap.size());
+        assertTrue(isStrongHeapArray(heap.toArray()));
+        assertThrows(IllegalArgumentException.class, () -> StrongHeap.heapify(5, 5));
+    }
+
+    @Test
+    public void testLargeHeap() {
+        Integer[] values = Helpers.makeStrongHeapArray((1 << 16) - 1);
+        StrongHeap heap = new StrongHeap();
+        for (Integer value : values) {
+            heap.insert(value);
+        }
+
+        assertEquals(values.length, heap.size());
+        assertTrue(isStrongHeapArray(heap.toArray()));
+        assertEquals(values[0].intValue(), heap.peekMax());
+    }
+
+    @Test
+    public void testLongInsertExtract() {
+        StrongHeap.OfLong heap = new StrongHeap.OfLong();
+        long[] values = {Long.MAX_VALUE, Long.MAX_VALUE - 1, 0, -1, -Long.MAX_VALUE,
+                Long.MIN_VALUE, -2};
+        for (long value : values) {
+            heap.insert(value);
+            assertTrue(isStrongHeapArray(heap.toArray()));
+        }
+        assertEquals(7, heap.size());
+
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            assertEquals(sorted[i], heap.extractMax());
+            assertTrue(isStrongHeapArray(heap.toArray()));
+        }
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    public void testLongRejected() {
+        StrongHeap.OfLong heap = StrongHeap.OfLong.heapify(Long.MAX_VALUE, 5, 4);
+        long[] before = heap.toArray();
+
+        assertThrows(IllegalArgumentException.class, () -> heap.insert(Long.MAX_VALUE));
+        assertArrayEquals(before, heap.toArray());
+        assertThrows(IllegalArgumentException.class,
+                () -> StrongHeap.OfLong.heapify(Long.MIN_VALUE, Long.MIN_VALUE));
+        assertEquals(0, StrongHeap.OfLong.heapify().size());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testExtractEmpty() {
+        new StrongHeap().extractMax();
+    }
+}